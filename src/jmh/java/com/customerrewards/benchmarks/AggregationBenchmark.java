@@ -0,0 +1,99 @@
+package com.customerrewards.benchmarks;
+
+import com.customerrewards.models.Customer;
+import com.customerrewards.models.Transaction;
+import com.customerrewards.services.ColumnarRewardsEngine;
+import com.customerrewards.services.MonthKeys;
+import com.customerrewards.services.RewardPoints;
+import com.customerrewards.services.RewardsMatrix;
+import com.customerrewards.services.TransactionColumns;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The in-memory aggregation RewardsService originally ran over loaded Transaction entities:
+ * Collectors.groupingBy by customer, then a per-customer HashMap keyed by month strings,
+ * against the primitive columnar reduction of ColumnarRewardsEngine over the same rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int transactionCount;
+
+    private List<Transaction> transactions;
+    private TransactionColumns columns;
+    private int firstMonthOrdinal;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime now = LocalDateTime.now();
+
+        int customerCount = Math.max(1, transactionCount / 100);
+        Customer[] customers = new Customer[customerCount];
+        for (int i = 0; i < customerCount; i++) {
+            customers[i] = new Customer("Customer " + i, "customer" + i + "@bench.com");
+            customers[i].setId((long) i + 1);
+        }
+
+        transactions = new ArrayList<>(transactionCount);
+        for (int i = 0; i < transactionCount; i++) {
+            Customer customer = customers[random.nextInt(customerCount)];
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong(0, 50_000), 2);
+            transactions.add(new Transaction(customer, amount, now.minusMinutes(random.nextInt(0, 90 * 24 * 60)), "Bench"));
+        }
+
+        columns = new TransactionColumns(transactionCount);
+        transactions.stream()
+                .sorted(Comparator.comparing(t -> t.getCustomer().getId()))
+                .forEach(t -> columns.add(t.getCustomer().getId(),
+                        MonthKeys.ordinal(t.getTransactionDate()), RewardPoints.ofCents(t.getAmountInCents())));
+        firstMonthOrdinal = MonthKeys.ordinal(now.minusDays(91));
+    }
+
+    @Benchmark
+    public Map<Long, Map<String, Integer>> groupingBy() {
+        Map<Long, List<Transaction>> byCustomer = transactions.stream()
+                .collect(Collectors.groupingBy(t -> t.getCustomer().getId()));
+
+        Map<Long, Map<String, Integer>> result = new HashMap<>();
+        for (Map.Entry<Long, List<Transaction>> entry : byCustomer.entrySet()) {
+            Map<String, Integer> monthlyPoints = new HashMap<>();
+            for (Transaction transaction : entry.getValue()) {
+                String monthKey = transaction.getTransactionDate().format(DateTimeFormatter.ofPattern("yyyy-MM"));
+                monthlyPoints.merge(monthKey, RewardPoints.of(transaction.getAmount()), Integer::sum);
+            }
+            result.put(entry.getKey(), monthlyPoints);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Map<Long, Map<String, Integer>> singlePassMerge() {
+        DateTimeFormatter monthFormat = DateTimeFormatter.ofPattern("yyyy-MM");
+        Map<Long, Map<String, Integer>> result = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            result.computeIfAbsent(transaction.getCustomer().getId(), id -> new HashMap<>())
+                    .merge(transaction.getTransactionDate().format(monthFormat),
+                            RewardPoints.ofCents(transaction.getAmountInCents()), Integer::sum);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public RewardsMatrix columnar() {
+        return ColumnarRewardsEngine.aggregate(columns, firstMonthOrdinal, 4);
+    }
+}
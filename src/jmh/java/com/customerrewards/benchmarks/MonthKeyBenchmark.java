@@ -0,0 +1,80 @@
+package com.customerrewards.benchmarks;
+
+import com.customerrewards.services.MonthKeys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Month bucketing of a transaction date: the per-row DateTimeFormatter.ofPattern used by
+ * RewardsService originally, against a shared formatter, YearMonth, an int month ordinal and
+ * the ordinal plus its cached MonthKeys label.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonthKeyBenchmark {
+
+    private static final int SIZE = 4096;
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private LocalDateTime[] dates;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime now = LocalDateTime.now();
+        dates = new LocalDateTime[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            dates[i] = now.minusMinutes(random.nextInt(0, 90 * 24 * 60));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void formatterPerRow(Blackhole blackhole) {
+        for (LocalDateTime date : dates) {
+            blackhole.consume(date.format(DateTimeFormatter.ofPattern("yyyy-MM")));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void sharedFormatter(Blackhole blackhole) {
+        for (LocalDateTime date : dates) {
+            blackhole.consume(date.format(MONTH_FORMAT));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void yearMonthToString(Blackhole blackhole) {
+        for (LocalDateTime date : dates) {
+            blackhole.consume(YearMonth.from(date).toString());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void monthOrdinal(Blackhole blackhole) {
+        for (LocalDateTime date : dates) {
+            blackhole.consume(date.getYear() * 12 + date.getMonthValue() - 1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void monthKeysLabel(Blackhole blackhole) {
+        for (LocalDateTime date : dates) {
+            blackhole.consume(MonthKeys.label(MonthKeys.ordinal(date)));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.customerrewards.benchmarks;
+
+import com.customerrewards.services.RewardPoints;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The reference BigDecimal/double calculator against the integer-cents fast path,
+ * over the same randomly generated amounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RewardPointsBenchmark {
+
+    private static final int SIZE = 4096;
+
+    private BigDecimal[] amounts;
+    private long[] amountsInCents;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        amounts = new BigDecimal[SIZE];
+        amountsInCents = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            long cents = random.nextLong(0, 50_000);
+            amountsInCents[i] = cents;
+            amounts[i] = BigDecimal.valueOf(cents, 2);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void bigDecimalReference(Blackhole blackhole) {
+        for (BigDecimal amount : amounts) {
+            blackhole.consume(RewardPoints.of(amount));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void integerCents(Blackhole blackhole) {
+        for (long cents : amountsInCents) {
+            blackhole.consume(RewardPoints.ofCents(cents));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.customerrewards.benchmarks;
+
+import com.customerrewards.config.RewardRulesProperties;
+import com.customerrewards.services.RewardPoints;
+import com.customerrewards.services.RewardRules;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hard-coded integer tiers against the compiled RewardRules, without promotions and with
+ * a set of description and date promotions, over the same randomly generated transactions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RewardRulesBenchmark {
+
+    private static final int SIZE = 4096;
+    private static final String[] DESCRIPTIONS = {
+            "Grocery shopping", "Electronics purchase", "Restaurant dinner", "Fuel", "Online shopping",
+            "Pharmacy", "Clothing purchase", "Home improvement", "Travel booking", "Subscription services"
+    };
+
+    private long[] amountsInCents;
+    private String[] descriptions;
+    private LocalDateTime[] dates;
+    private RewardRules defaultRules;
+    private RewardRules promotionRules;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime now = LocalDateTime.of(2026, 11, 15, 12, 0);
+        amountsInCents = new long[SIZE];
+        descriptions = new String[SIZE];
+        dates = new LocalDateTime[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            amountsInCents[i] = random.nextLong(0, 50_000);
+            descriptions[i] = DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)];
+            dates[i] = now.minusMinutes(random.nextInt(0, 90 * 24 * 60));
+        }
+
+        defaultRules = RewardRules.defaults();
+
+        // a few promotions per description, most of them outside the dates above
+        RewardRulesProperties properties = new RewardRulesProperties();
+        LocalDate start = LocalDate.of(2026, 1, 1);
+        for (int i = 0; i < 30; i++) {
+            RewardRulesProperties.Promotion promotion = new RewardRulesProperties.Promotion();
+            promotion.setDescription(DESCRIPTIONS[i % DESCRIPTIONS.length]);
+            promotion.setFrom(start.plusWeeks(i));
+            promotion.setTo(start.plusWeeks(i + 1));
+            promotion.setMultiplier(2);
+            if (i % 3 == 0) {
+                promotion.setTiers(List.of(new RewardRulesProperties.Tier(new BigDecimal("25"), 1),
+                        new RewardRulesProperties.Tier(new BigDecimal("75"), 3)));
+            }
+            properties.getPromotions().add(promotion);
+        }
+        RewardRulesProperties.Promotion blackFriday = new RewardRulesProperties.Promotion();
+        blackFriday.setFrom(LocalDate.of(2026, 11, 27));
+        blackFriday.setTo(LocalDate.of(2026, 11, 30));
+        blackFriday.setMultiplier(3);
+        properties.getPromotions().add(blackFriday);
+        promotionRules = new RewardRules(properties);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void hardCoded(Blackhole blackhole) {
+        for (long cents : amountsInCents) {
+            blackhole.consume(RewardPoints.ofCents(cents));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void compiledDefaults(Blackhole blackhole) {
+        for (int i = 0; i < SIZE; i++) {
+            blackhole.consume(defaultRules.points(amountsInCents[i], descriptions[i], dates[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void compiledWithPromotions(Blackhole blackhole) {
+        for (int i = 0; i < SIZE; i++) {
+            blackhole.consume(promotionRules.points(amountsInCents[i], descriptions[i], dates[i]));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.customerrewards.benchmarks;
+
+import com.customerrewards.CustomerRewardsApplication;
+import com.customerrewards.dto.CustomerRewardsResponse;
+import com.customerrewards.dto.RewardsPage;
+import com.customerrewards.services.RewardsService;
+import com.customerrewards.services.RewardsWindow;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end RewardsService reads against an in-memory H2 seeded by the synthetic data
+ * generator with the given number of transactions (100 per customer, over the last 3 months).
+ * The per-customer cache is disabled so every call reaches the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class RewardsServiceBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int transactionCount;
+
+    private ConfigurableApplicationContext context;
+    private RewardsService rewardsService;
+    private long[] customerIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // the generator profile seeds the database while the context starts
+        context = new SpringApplicationBuilder(CustomerRewardsApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("generator")
+                .run("--spring.datasource.url=jdbc:h2:mem:bench_" + transactionCount,
+                        "--spring.cache.type=none",
+                        "--rewards.generator.customers=" + Math.max(1, transactionCount / 100),
+                        "--rewards.generator.transactions-per-customer=" + Math.min(100, transactionCount),
+                        "--logging.level.root=WARN");
+        rewardsService = context.getBean(RewardsService.class);
+        customerIds = context.getBean(JdbcTemplate.class)
+                .queryForList("SELECT id FROM customers ORDER BY id", Long.class)
+                .stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<CustomerRewardsResponse> allCustomers() {
+        return rewardsService.getCustomerRewards();
+    }
+
+    @Benchmark
+    public void allCustomersStreamed(Blackhole blackhole) {
+        rewardsService.streamCustomerRewards(RewardsWindow.defaultWindow(), blackhole::consume);
+    }
+
+    @Benchmark
+    public RewardsPage firstPage() {
+        return rewardsService.getCustomerRewardsPage(null, 100, RewardsWindow.defaultWindow());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public CustomerRewardsResponse singleCustomer() {
+        long customerId = customerIds[next++ % customerIds.length];
+        return rewardsService.getVersionedCustomerRewards(customerId, RewardsWindow.defaultWindow()).getRewards();
+    }
+}
@@ -0,0 +1,15 @@
+package com.customerrewards.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Enables Spring's cache abstraction. The caches themselves are Caffeine caches configured
+ * through the spring.cache.* properties. The cache advice runs outside the transaction advice,
+ * so a cache hit never opens a transaction or takes a connection.
+ */
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+}
@@ -5,6 +5,8 @@ import com.customerrewards.models.Transaction;
 import com.customerrewards.repository.CustomerRepository;
 import com.customerrewards.repository.TransactionRepository;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -13,6 +15,9 @@ import java.util.Arrays;
 import java.util.List;
 
 @Component
+@Profile("!generator")
+// The sample data is saved through JPA, which is not shard-aware
+@ConditionalOnExpression("'${rewards.sharding.shards[0].url:}'.isEmpty()")
 public class DataLoader  implements CommandLineRunner {
 
 
@@ -0,0 +1,58 @@
+package com.customerrewards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+
+/**
+ * Settings for the synthetic data generator (profile "generator"), bound from rewards.generator.*.
+ */
+@ConfigurationProperties(prefix = "rewards.generator")
+public class GeneratorProperties {
+
+    public enum AmountDistribution { UNIFORM, LOG_NORMAL }
+
+    private int customers = 1_000;
+    private int transactionsPerCustomer = 100;
+    private AmountDistribution amountDistribution = AmountDistribution.LOG_NORMAL;
+    /** Bounds for UNIFORM amounts; LOG_NORMAL amounts are clamped to them. */
+    private BigDecimal minAmount = new BigDecimal("1.00");
+    private BigDecimal maxAmount = new BigDecimal("1000.00");
+    /** Median and shape of LOG_NORMAL amounts. */
+    private BigDecimal medianAmount = new BigDecimal("60.00");
+    private double sigma = 0.8;
+    /** Transactions are spread uniformly over this many days before now. */
+    private int dateSpreadDays = 90;
+    private long seed = 42;
+    private int batchSize = 10_000;
+
+    public int getCustomers() { return customers; }
+    public void setCustomers(int customers) { this.customers = customers; }
+
+    public int getTransactionsPerCustomer() { return transactionsPerCustomer; }
+    public void setTransactionsPerCustomer(int transactionsPerCustomer) { this.transactionsPerCustomer = transactionsPerCustomer; }
+
+    public AmountDistribution getAmountDistribution() { return amountDistribution; }
+    public void setAmountDistribution(AmountDistribution amountDistribution) { this.amountDistribution = amountDistribution; }
+
+    public BigDecimal getMinAmount() { return minAmount; }
+    public void setMinAmount(BigDecimal minAmount) { this.minAmount = minAmount; }
+
+    public BigDecimal getMaxAmount() { return maxAmount; }
+    public void setMaxAmount(BigDecimal maxAmount) { this.maxAmount = maxAmount; }
+
+    public BigDecimal getMedianAmount() { return medianAmount; }
+    public void setMedianAmount(BigDecimal medianAmount) { this.medianAmount = medianAmount; }
+
+    public double getSigma() { return sigma; }
+    public void setSigma(double sigma) { this.sigma = sigma; }
+
+    public int getDateSpreadDays() { return dateSpreadDays; }
+    public void setDateSpreadDays(int dateSpreadDays) { this.dateSpreadDays = dateSpreadDays; }
+
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+}
@@ -0,0 +1,72 @@
+package com.customerrewards.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Measures replica lag with a heartbeat: the primary's replication_heartbeat row is stamped
+ * with the current time, and each replica's copy of the row shows the newest primary write it
+ * has applied. Lag is the age of that copy, so it is accurate to within the check interval.
+ * Lags are fed to ReplicaRoutingDataSource and published as rewards.datasource.replica.lag.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String STAMP_SQL = "UPDATE replication_heartbeat SET beat_at = ? WHERE id = 1";
+    private static final String READ_SQL = "SELECT beat_at FROM replication_heartbeat WHERE id = 1";
+
+    final private JdbcTemplate primary;
+    final private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    public ReplicaLagMonitor(DataSource primary, ReplicaRoutingDataSource replicaRoutingDataSource, MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primary);
+        this.replicaRoutingDataSource = replicaRoutingDataSource;
+        for (String replica : replicaRoutingDataSource.getReplicas().keySet()) {
+            Gauge.builder("rewards.datasource.replica.lag", replicaRoutingDataSource,
+                            routing -> {
+                                Duration lag = routing.getLag(replica);
+                                return lag == null ? Double.NaN : lag.toMillis() / 1000.0;
+                            })
+                    .description("Seconds the replica is behind the primary (NaN if unknown)")
+                    .baseUnit("seconds")
+                    .tag("replica", replica)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rewards.datasource.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        Instant now = Instant.now();
+        try {
+            primary.update(STAMP_SQL, Timestamp.from(now));
+        } catch (DataAccessException e) {
+            log.warn("Could not stamp the replication heartbeat on the primary", e);
+        }
+
+        for (Map.Entry<String, DataSource> replica : replicaRoutingDataSource.getReplicas().entrySet()) {
+            Duration lag = null;
+            try {
+                Timestamp beatAt = new JdbcTemplate(replica.getValue()).queryForObject(READ_SQL, Timestamp.class);
+                lag = beatAt == null ? null : Duration.between(beatAt.toInstant(), now);
+                if (lag != null && lag.isNegative()) {
+                    lag = Duration.ZERO;
+                }
+            } catch (DataAccessException e) {
+                log.debug("Could not read the replication heartbeat of replica {}", replica.getKey(), e);
+            }
+            replicaRoutingDataSource.recordLag(replica.getKey(), lag);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.customerrewards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas for read-only transactions, bound from rewards.datasource.*. Routing is only
+ * set up when at least one replica url is configured; see ReplicaDataSourceConfig.
+ */
+@ConfigurationProperties(prefix = "rewards.datasource")
+public class ReplicaProperties {
+
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+    }
+
+    private List<Replica> replicas = new ArrayList<>();
+    private ReplicaRoutingDataSource.Selection selection = ReplicaRoutingDataSource.Selection.ROUND_ROBIN;
+    /** Replicas lagging further behind the primary than this are skipped until they catch up. */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    public List<Replica> getReplicas() { return replicas; }
+    public void setReplicas(List<Replica> replicas) { this.replicas = replicas; }
+
+    public ReplicaRoutingDataSource.Selection getSelection() { return selection; }
+    public void setSelection(ReplicaRoutingDataSource.Selection selection) { this.selection = selection; }
+
+    public Duration getMaxLag() { return maxLag; }
+    public void setMaxLag(Duration maxLag) { this.maxLag = maxLag; }
+}
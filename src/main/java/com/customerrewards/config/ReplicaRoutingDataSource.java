@@ -0,0 +1,138 @@
+package com.customerrewards.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Hands out connections to one of several read replicas; it is the read-only target of the
+ * application DataSource (see ReplicaDataSourceConfig). Only replicas whose last measured lag
+ * is within maxLag are eligible. When none is, connections come from the primary, so a read
+ * never sees data older than the staleness tolerance. A replica's lag is unknown, and the
+ * replica ineligible, until ReplicaLagMonitor has measured it.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    public enum Selection { ROUND_ROBIN, LEAST_LOADED }
+
+    final private DataSource primary;
+    final private Map<String, DataSource> replicas;
+    final private Map<String, Duration> lags;
+    final private Selection selection;
+    final private Duration maxLag;
+    final private AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param replicas replica data sources by name, in a fixed order
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Selection selection, Duration maxLag) {
+        this(primary, replicas, selection, maxLag, new ConcurrentHashMap<>());
+    }
+
+    private ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Selection selection, Duration maxLag,
+                                     Map<String, Duration> lags) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.selection = selection;
+        this.maxLag = maxLag;
+        this.lags = lags;
+    }
+
+    /**
+     * Routing over copies of the primary and replica data sources, made by copyPool, that
+     * follows the lags recorded here.
+     */
+    public ReplicaRoutingDataSource copy(UnaryOperator<DataSource> copyPool) {
+        Map<String, DataSource> copies = new LinkedHashMap<>();
+        replicas.forEach((name, replica) -> copies.put(name, copyPool.apply(replica)));
+        return new ReplicaRoutingDataSource(copyPool.apply(primary), copies, selection, maxLag, lags);
+    }
+
+    public Map<String, DataSource> getReplicas() { return replicas; }
+
+    /**
+     * Records how far a replica is behind the primary, or null if it could not be measured.
+     */
+    public void recordLag(String replica, Duration lag) {
+        if (lag == null) {
+            lags.remove(replica);
+        } else {
+            lags.put(replica, lag);
+        }
+    }
+
+    /** The last measured lag of a replica, or null if unknown. */
+    public Duration getLag(String replica) {
+        return lags.get(replica);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return select().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return select().getConnection(username, password);
+    }
+
+    /**
+     * The data source the next read-only connection comes from: a fresh replica chosen by the
+     * selection strategy, or the primary.
+     */
+    DataSource select() {
+        List<DataSource> fresh = new ArrayList<>(replicas.size());
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            Duration lag = lags.get(replica.getKey());
+            if (lag != null && lag.compareTo(maxLag) <= 0) {
+                fresh.add(replica.getValue());
+            }
+        }
+        if (fresh.isEmpty()) {
+            return primary;
+        }
+
+        if (selection == Selection.LEAST_LOADED) {
+            DataSource leastLoaded = fresh.get(0);
+            int fewestActive = activeConnections(leastLoaded);
+            for (int i = 1; i < fresh.size(); i++) {
+                int active = activeConnections(fresh.get(i));
+                if (active < fewestActive) {
+                    leastLoaded = fresh.get(i);
+                    fewestActive = active;
+                }
+            }
+            return leastLoaded;
+        }
+        return fresh.get(Math.floorMod(next.getAndIncrement(), fresh.size()));
+    }
+
+    private static int activeConnections(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections();
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.customerrewards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reward tiers and promotions, bound from rewards.rules.*. The tiers give points per whole
+ * dollar of the part of an amount above each threshold (by default 1 above $50 and 2 above
+ * $100). A promotion applies to transactions whose description equals its description
+ * (ignoring case; any description when unset) and whose date falls in [from, to) (open-ended
+ * when unset); it may bring its own tiers and multiplies the resulting points. The first
+ * matching promotion wins, description-specific ones before the rest. See RewardRules.
+ */
+@ConfigurationProperties(prefix = "rewards.rules")
+public class RewardRulesProperties {
+
+    public static class Tier {
+        private BigDecimal above;
+        private int pointsPerDollar;
+
+        public Tier() {}
+
+        public Tier(BigDecimal above, int pointsPerDollar) {
+            this.above = above;
+            this.pointsPerDollar = pointsPerDollar;
+        }
+
+        public BigDecimal getAbove() { return above; }
+        public void setAbove(BigDecimal above) { this.above = above; }
+
+        public int getPointsPerDollar() { return pointsPerDollar; }
+        public void setPointsPerDollar(int pointsPerDollar) { this.pointsPerDollar = pointsPerDollar; }
+    }
+
+    public static class Promotion {
+        private String description;
+        private LocalDate from;
+        private LocalDate to;
+        private List<Tier> tiers = new ArrayList<>();
+        private int multiplier = 1;
+
+        public String getDescription() { return description; }
+        public void setDescription(String description) { this.description = description; }
+
+        public LocalDate getFrom() { return from; }
+        public void setFrom(LocalDate from) { this.from = from; }
+
+        public LocalDate getTo() { return to; }
+        public void setTo(LocalDate to) { this.to = to; }
+
+        /** Empty to use the base tiers. */
+        public List<Tier> getTiers() { return tiers; }
+        public void setTiers(List<Tier> tiers) { this.tiers = tiers; }
+
+        public int getMultiplier() { return multiplier; }
+        public void setMultiplier(int multiplier) { this.multiplier = multiplier; }
+    }
+
+    private List<Tier> tiers = new ArrayList<>(List.of(
+            new Tier(new BigDecimal("50"), 1),
+            new Tier(new BigDecimal("100"), 2)));
+    private List<Promotion> promotions = new ArrayList<>();
+
+    public List<Tier> getTiers() { return tiers; }
+    public void setTiers(List<Tier> tiers) { this.tiers = tiers; }
+
+    public List<Promotion> getPromotions() { return promotions; }
+    public void setPromotions(List<Promotion> promotions) { this.promotions = promotions; }
+}
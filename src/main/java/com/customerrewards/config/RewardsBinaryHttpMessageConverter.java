@@ -0,0 +1,206 @@
+package com.customerrewards.config;
+
+import com.customerrewards.dto.CustomerRewardsResponse;
+import com.customerrewards.services.MonthKeys;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes rewards as a compact binary alternative to JSON (Accept: application/x-rewards-protobuf).
+ * The body is a sequence of CustomerRewards messages in protobuf wire format, each preceded by
+ * its length as a varint (as protobuf's writeDelimitedTo does), so one schema decodes both the
+ * single-customer and the list endpoints:
+ *
+ * <pre>
+ * message CustomerRewards {
+ *   int64 customer_id = 1;
+ *   string customer_name = 2;
+ *   sint32 total_points = 3;
+ *   repeated MonthPoints months = 4;   // ascending by month
+ * }
+ * message MonthPoints {
+ *   int32 month = 1;                   // year * 12 + month - 1
+ *   sint32 points = 2;
+ * }
+ * </pre>
+ *
+ * Responses are encoded field by field into one reusable buffer per request and copied to the
+ * response stream; no intermediate tree is built. Registered after the JSON converter (see
+ * WebConfig), so JSON stays the default.
+ */
+public class RewardsBinaryHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType APPLICATION_REWARDS_PROTOBUF = MediaType.parseMediaType("application/x-rewards-protobuf");
+
+    public RewardsBinaryHttpMessageConverter() {
+        super(APPLICATION_REWARDS_PROTOBUF);
+    }
+
+    /**
+     * Encodes CustomerRewards messages onto an output stream, reusing its buffer between them.
+     */
+    public static final class Encoder {
+
+        private final OutputStream out;
+        private byte[] buffer = new byte[256];
+        private int position;
+
+        public Encoder(OutputStream out) {
+            this.out = out;
+        }
+
+        /** Writes the response as one length-delimited CustomerRewards message. */
+        public void write(CustomerRewardsResponse response) throws IOException {
+            // the body is encoded after room for the longest length prefix, which goes in front of it
+            position = 5;
+            writeTag(1, 0);
+            writeVarint(response.getCustomerId() == null ? 0 : response.getCustomerId());
+            if (response.getCustomerName() != null) {
+                byte[] name = response.getCustomerName().getBytes(StandardCharsets.UTF_8);
+                writeTag(2, 2);
+                writeVarint(name.length);
+                ensure(name.length);
+                System.arraycopy(name, 0, buffer, position, name.length);
+                position += name.length;
+            }
+            writeTag(3, 0);
+            writeVarint(zigZag(response.getTotalPoints() == null ? 0 : response.getTotalPoints()));
+            writeMonths(response.getMonthlyPoints());
+
+            int length = position - 5;
+            int start = 5 - varintSize(length);
+            position = start;
+            writeVarint(length);
+            out.write(buffer, start, length + 5 - start);
+        }
+
+        private void writeMonths(Map<String, Integer> monthlyPoints) {
+            if (monthlyPoints == null || monthlyPoints.isEmpty()) {
+                return;
+            }
+
+            // month ordinal in the high half, points in the low half, so sorting orders by month
+            long[] months = new long[monthlyPoints.size()];
+            int count = 0;
+            for (Map.Entry<String, Integer> entry : monthlyPoints.entrySet()) {
+                int points = entry.getValue() == null ? 0 : entry.getValue();
+                months[count++] = (long) MonthKeys.ordinal(entry.getKey()) << 32 | (points & 0xFFFFFFFFL);
+            }
+            Arrays.sort(months);
+
+            for (long month : months) {
+                int ordinal = (int) (month >> 32);
+                long points = zigZag((int) month);
+                writeTag(4, 2);
+                writeVarint(2 + varintSize(ordinal) + varintSize(points));
+                writeTag(1, 0);
+                writeVarint(ordinal);
+                writeTag(2, 0);
+                writeVarint(points);
+            }
+        }
+
+        private void writeTag(int field, int wireType) {
+            writeVarint(field << 3 | wireType);
+        }
+
+        private void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+
+        private static long zigZag(int value) {
+            return (value << 1 ^ value >> 31) & 0xFFFFFFFFL;
+        }
+
+        private static int varintSize(long value) {
+            int size = 1;
+            while ((value & ~0x7FL) != 0) {
+                value >>>= 7;
+                size++;
+            }
+            return size;
+        }
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isRewards(type != null ? type : clazz) && canWrite(mediaType);
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        // content negotiation asks by the raw class, which for lists is just the collection type
+        return CustomerRewardsResponse.class.isAssignableFrom(clazz) || Collection.class.isAssignableFrom(clazz)
+                ? getSupportedMediaTypes() : List.of();
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return CustomerRewardsResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        Encoder encoder = new Encoder(outputMessage.getBody());
+        if (body instanceof CustomerRewardsResponse response) {
+            encoder.write(response);
+        } else if (body instanceof Collection<?> responses) {
+            for (Object response : responses) {
+                encoder.write((CustomerRewardsResponse) response);
+            }
+        } else {
+            throw new HttpMessageNotWritableException("Cannot encode " + body.getClass() + " as " + APPLICATION_REWARDS_PROTOBUF);
+        }
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Reading " + APPLICATION_REWARDS_PROTOBUF + " is not supported", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Reading " + APPLICATION_REWARDS_PROTOBUF + " is not supported", inputMessage);
+    }
+
+    private static boolean isRewards(Type type) {
+        if (type instanceof Class<?> clazz) {
+            return CustomerRewardsResponse.class.isAssignableFrom(clazz);
+        }
+        if (type instanceof ParameterizedType parameterized && parameterized.getRawType() instanceof Class<?> raw
+                && Collection.class.isAssignableFrom(raw) && parameterized.getActualTypeArguments().length == 1) {
+            return isRewards(parameterized.getActualTypeArguments()[0]);
+        }
+        return false;
+    }
+}
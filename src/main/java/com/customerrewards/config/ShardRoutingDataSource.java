@@ -0,0 +1,57 @@
+package com.customerrewards.config;
+
+import com.customerrewards.services.ShardContext;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out connections of the shard set in the current thread's ShardContext, shard 0 if none.
+ * Counts the connections handed out per shard.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    final private List<DataSource> shards;
+    final private LongAdder[] connections;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = List.copyOf(shards);
+        Map<Object, Object> targets = new HashMap<>();
+        connections = new LongAdder[shards.size()];
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+            connections[shard] = new LongAdder();
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /** Number of connections handed out for the shard since startup. */
+    public long getConnectionCount(int shard) {
+        return connections[shard].sum();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = ShardContext.current();
+        int key = shard == null ? 0 : shard;
+        connections[key].increment();
+        return key;
+    }
+
+    @Override
+    public void close() {
+        for (DataSource shard : shards) {
+            if (shard instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        }
+    }
+}
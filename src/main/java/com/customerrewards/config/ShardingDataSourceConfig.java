@@ -0,0 +1,62 @@
+package com.customerrewards.config;
+
+import com.customerrewards.services.ShardContext;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads customers over several databases when rewards.sharding.shards are configured.
+ *
+ * The application DataSource is a LazyConnectionDataSourceProxy over a ShardRoutingDataSource:
+ * a physical connection is only fetched on the first statement, from the shard set in the
+ * ShardContext at that moment, so services pick the shard inside their transactions (see
+ * ShardRouter). Flyway migrates every shard. Not combined with rewards.datasource.replicas.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rewards.sharding.shards[0].url")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingDataSourceConfig {
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(ShardingProperties properties) {
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            ShardingProperties.Shard shard = properties.getShards().get(i);
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build();
+            dataSource.setPoolName("shard-" + i);
+            shards.add(dataSource);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public FlywayMigrationStrategy shardedFlywayMigrationStrategy(ShardingProperties properties) {
+        return flyway -> {
+            for (int shard = 0; shard < properties.getShards().size(); shard++) {
+                ShardContext.run(shard, flyway::migrate);
+            }
+        };
+    }
+}
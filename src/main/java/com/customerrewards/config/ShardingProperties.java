@@ -0,0 +1,36 @@
+package com.customerrewards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Customer shards, bound from rewards.sharding.*. Customers and their transactions live on the
+ * shard their id hashes to (see ShardRouter); shard 0 also hands out all entity ids, so ids
+ * stay unique across shards. Sharding is only set up when at least one shard url is configured;
+ * see ShardingDataSourceConfig.
+ */
+@ConfigurationProperties(prefix = "rewards.sharding")
+public class ShardingProperties {
+
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+    }
+
+    private List<Shard> shards = new ArrayList<>();
+
+    public List<Shard> getShards() { return shards; }
+    public void setShards(List<Shard> shards) { this.shards = shards; }
+}
@@ -0,0 +1,150 @@
+package com.customerrewards.config;
+
+import com.customerrewards.repository.SequenceIdAllocator;
+import com.customerrewards.services.MonthlyPointsReconciler;
+import com.customerrewards.services.RewardRules;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+/**
+ * Bulk-loads a reproducible synthetic data set for capacity testing, replacing the sample
+ * data of DataLoader when the "generator" profile is active. Rows go straight to JDBC in
+ * fixed-size batches, with ids reserved from the entities' sequences a block at a time.
+ * The rows bypass the JPA listeners, so they are rated here and the monthly points rollup
+ * is reconciled at the end.
+ */
+@Component
+@Profile("generator")
+// Customers are inserted where their sequence ids come from, which is not shard-aware
+@ConditionalOnExpression("'${rewards.sharding.shards[0].url:}'.isEmpty()")
+@EnableConfigurationProperties(GeneratorProperties.class)
+public class SyntheticDataGenerator implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final String CUSTOMER_INSERT = "INSERT INTO customers (id, name, email) VALUES (?, ?, ?)";
+    private static final String TRANSACTION_INSERT = "INSERT INTO transactions " +
+            "(id, customer_id, amount, transaction_date, description, points) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String[] DESCRIPTIONS = {
+            "Grocery shopping", "Electronics purchase", "Restaurant dinner", "Fuel", "Online shopping",
+            "Pharmacy", "Clothing purchase", "Home improvement", "Travel booking", "Subscription services"
+    };
+
+    final private JdbcTemplate jdbcTemplate;
+    final private TransactionTemplate transactionTemplate;
+    final private GeneratorProperties properties;
+    final private MonthlyPointsReconciler monthlyPointsReconciler;
+    final private RewardRules rewardRules;
+
+    public SyntheticDataGenerator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                  GeneratorProperties properties, MonthlyPointsReconciler monthlyPointsReconciler,
+                                  RewardRules rewardRules) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.monthlyPointsReconciler = monthlyPointsReconciler;
+        this.rewardRules = rewardRules;
+    }
+
+    @Override
+    public void run(String... args) {
+        generate();
+    }
+
+    public void generate() {
+        SplittableRandom random = new SplittableRandom(properties.getSeed());
+        LocalDateTime now = LocalDateTime.now();
+        int batchSize = Math.max(properties.getBatchSize(), SequenceIdAllocator.BLOCK_SIZE);
+        int perCustomer = properties.getTransactionsPerCustomer();
+
+        SequenceIdAllocator customerIds = new SequenceIdAllocator(jdbcTemplate, SequenceIdAllocator.CUSTOMERS_SEQUENCE);
+        SequenceIdAllocator transactionIds = new SequenceIdAllocator(jdbcTemplate, SequenceIdAllocator.TRANSACTIONS_SEQUENCE);
+        long[] batchCustomerIds = new long[batchSize];
+        long transactionCount = 0;
+        long started = System.nanoTime();
+
+        for (int first = 0; first < properties.getCustomers(); first += batchSize) {
+            int customersInBatch = Math.min(batchSize, properties.getCustomers() - first);
+            for (int i = 0; i < customersInBatch; i++) {
+                batchCustomerIds[i] = customerIds.next();
+            }
+
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(CUSTOMER_INSERT, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    long id = batchCustomerIds[i];
+                    ps.setLong(1, id);
+                    ps.setString(2, "Customer " + id);
+                    ps.setString(3, "customer" + id + "@generated.test");
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return customersInBatch;
+                }
+            }));
+
+            // Transactions of this block of customers, flushed every batchSize rows
+            long rowsForBlock = (long) customersInBatch * perCustomer;
+            for (long offset = 0; offset < rowsForBlock; offset += batchSize) {
+                int rows = (int) Math.min(batchSize, rowsForBlock - offset);
+                long firstRow = offset;
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(TRANSACTION_INSERT, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        long row = firstRow + i;
+                        ps.setLong(1, transactionIds.next());
+                        ps.setLong(2, batchCustomerIds[(int) (row / perCustomer)]);
+                        long amountInCents = nextAmountInCents(random);
+                        LocalDateTime transactionDate = now.minusSeconds(random.nextLong(properties.getDateSpreadDays() * 86_400L + 1));
+                        String description = DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)];
+                        ps.setBigDecimal(3, BigDecimal.valueOf(amountInCents, 2));
+                        ps.setTimestamp(4, Timestamp.valueOf(transactionDate));
+                        ps.setString(5, description);
+                        ps.setInt(6, rewardRules.points(amountInCents, description, transactionDate));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows;
+                    }
+                }));
+                transactionCount += rows;
+            }
+        }
+
+        double seconds = (System.nanoTime() - started) / 1e9;
+        log.info("Generated {} customers and {} transactions in {}s ({} rows/min)", properties.getCustomers(),
+                transactionCount, String.format("%.1f", seconds), Math.round((properties.getCustomers() + transactionCount) / seconds * 60));
+
+        monthlyPointsReconciler.reconcile();
+    }
+
+    private long nextAmountInCents(SplittableRandom random) {
+        long min = properties.getMinAmount().movePointRight(2).longValue();
+        long max = properties.getMaxAmount().movePointRight(2).longValue();
+
+        if (properties.getAmountDistribution() == GeneratorProperties.AmountDistribution.UNIFORM) {
+            return random.nextLong(min, max + 1);
+        }
+        double median = properties.getMedianAmount().doubleValue() * 100;
+        long cents = Math.round(median * Math.exp(properties.getSigma() * random.nextGaussian()));
+        return Math.max(min, Math.min(max, cents));
+    }
+}
@@ -0,0 +1,20 @@
+package com.customerrewards.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Adds the binary rewards encoding after the default converters, so JSON is still chosen
+ * unless a client asks for application/x-rewards-protobuf.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new RewardsBinaryHttpMessageConverter());
+    }
+}
@@ -0,0 +1,27 @@
+package com.customerrewards.controllers;
+
+import com.customerrewards.dto.CacheStatsResponse;
+import com.customerrewards.services.RewardsCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/rewards/cache")
+public class RewardsCacheController {
+    final private RewardsCache rewardsCache;
+
+    public RewardsCacheController(RewardsCache rewardsCache) {
+        this.rewardsCache = rewardsCache;
+    }
+
+    /**
+     * Hit/miss/eviction counters of the per-customer rewards cache
+     * GET /api/rewards/cache/stats
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<CacheStatsResponse> getCacheStats() {
+        return ResponseEntity.ok(rewardsCache.stats());
+    }
+}
@@ -1,47 +1,242 @@
 package com.customerrewards.controllers;
 
+import com.customerrewards.config.RewardsBinaryHttpMessageConverter;
 import com.customerrewards.dto.CustomerRewardsResponse;
+import com.customerrewards.dto.RewardsPage;
+import com.customerrewards.dto.VersionedRewards;
 import com.customerrewards.services.RewardsService;
+import com.customerrewards.services.RewardsWindow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/rewards")
 public class RewardsController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     final private RewardsService rewardsService;
+    final private ObjectMapper objectMapper;
 
-    public RewardsController(RewardsService rewardsService) {
+    public RewardsController(RewardsService rewardsService, ObjectMapper objectMapper) {
         this.rewardsService = rewardsService;
+        this.objectMapper = objectMapper;
     }
 
 
     /**
      * Get rewards summary for all customers
      * GET /api/rewards
+     * GET /api/rewards?limit=100&cursor=... (keyset paged; next page token in the X-Next-Cursor header)
+     * GET /api/rewards?from=2025-01&to=2025-03&asOf=2025-03-15 (calendar-month window; default: the
+     * current month and the two before it, as of today)
+     * Accept: application/x-rewards-protobuf for the binary encoding (see RewardsBinaryHttpMessageConverter)
+     * The unpaged summary carries an ETag built from the rewards version read with it;
+     * If-None-Match answers 304 while no customer's rewards version has moved, without
+     * aggregating anything.
      */
     @GetMapping
-    public ResponseEntity<List<CustomerRewardsResponse>> getAllCustomerRewards() {
-        List<CustomerRewardsResponse> rewards = rewardsService.getCustomerRewards();
-        return ResponseEntity.ok(rewards);
+    public ResponseEntity<List<CustomerRewardsResponse>> getAllCustomerRewards(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest webRequest) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            RewardsWindow window = RewardsWindow.parse(from, to, asOf);
+            if (limit == null && cursor == null) {
+                if (isNotModified(webRequest, () -> eTag("all." + rewardsService.getRewardsVersion(), window, accept))) {
+                    return null;
+                }
+                // the tag comes from the version read together with the body
+                VersionedRewards<List<CustomerRewardsResponse>> rewards = rewardsService.getVersionedCustomerRewards(window);
+                return ResponseEntity.ok().eTag(eTag("all." + rewards.getVersion(), window, accept))
+                        .varyBy(HttpHeaders.ACCEPT).body(rewards.getRewards());
+            }
+
+            RewardsPage page = rewardsService.getCustomerRewardsPage(cursor, pageSize, window);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getRewards());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Stream rewards summary for all customers as newline-delimited JSON
+     * GET /api/rewards/stream (accepts the same from/to/asOf window as GET /api/rewards)
+     * Accept: application/x-rewards-protobuf streams length-delimited binary messages instead
+     */
+    @GetMapping(value = "/stream", produces = {"application/x-ndjson", "application/x-rewards-protobuf"})
+    public ResponseEntity<StreamingResponseBody> streamAllCustomerRewards(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        RewardsWindow window;
+        try {
+            window = RewardsWindow.parse(from, to, asOf);
+            // checked up front: once streaming has started the status can no longer change
+            rewardsService.requireRetained(window);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (acceptsBinary(accept)) {
+            StreamingResponseBody body = out -> {
+                RewardsBinaryHttpMessageConverter.Encoder encoder = new RewardsBinaryHttpMessageConverter.Encoder(out);
+                rewardsService.streamCustomerRewards(window, response -> {
+                    try {
+                        encoder.write(response);
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            };
+            return ResponseEntity.ok()
+                    .contentType(RewardsBinaryHttpMessageConverter.APPLICATION_REWARDS_PROTOBUF)
+                    .body(body);
+        }
+
+        StreamingResponseBody body = out -> rewardsService.streamCustomerRewards(window, response -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(response));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
     }
 
     /**
      * Get rewards summary for a specific customer
      * GET /api/rewards/{customerId}
+     * GET /api/rewards/{customerId}?from=2025-01&to=2025-03&asOf=2025-03-15
+     * Carries an ETag built from the customer's rewards version, read with the body; If-None-Match
+     * answers 304 after a single read of that version, without loading transactions or computing
+     * points.
      */
     @GetMapping("/{customerId}")
-    public ResponseEntity<CustomerRewardsResponse> getCustomerRewards(@PathVariable Long customerId) {
+    public ResponseEntity<CustomerRewardsResponse> getCustomerRewards(
+            @PathVariable Long customerId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest webRequest) {
+        RewardsWindow window;
         try {
-            CustomerRewardsResponse rewards = rewardsService.getCustomerRewards(customerId);
-            return ResponseEntity.ok(rewards);
+            window = RewardsWindow.parse(from, to, asOf);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            // unknown customers have no version and fall through to the 404 below
+            if (isNotModified(webRequest, () -> rewardsService.getRewardsVersion(customerId)
+                    .map(version -> eTag(customerId + "." + version, window, accept)).orElse(null))) {
+                return null;
+            }
+
+            // the tag comes from the version read together with the body
+            VersionedRewards<CustomerRewardsResponse> rewards = rewardsService.getVersionedCustomerRewards(customerId, window);
+            return ResponseEntity.ok().eTag(eTag(customerId + "." + rewards.getVersion(), window, accept))
+                    .varyBy(HttpHeaders.ACCEPT).body(rewards.getRewards());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * A strong entity tag for one representation: the rewards version it was computed from,
+     * the resolved window (asOf included, as it moves the default window and its cut-off) and
+     * whether it is the binary encoding.
+     */
+    static String eTag(String version, RewardsWindow window, String accept) {
+        return "\"" + version + "." + window.getFromMonth() + "." + window.getToMonth() + "." + window.getAsOf()
+                + (acceptsBinary(accept) ? ".bin" : "") + "\"";
+    }
+
+    /**
+     * Whether If-None-Match already holds the current tag. Only a conditional request reads the
+     * version up front; the 200 path takes its tag from the version read with the body. The
+     * current tag is handed to checkNotModified only on a match, as that call would otherwise
+     * put it on the response in place of the body's.
+     */
+    private static boolean isNotModified(WebRequest webRequest, Supplier<String> currentETag) {
+        String[] ifNoneMatch = webRequest.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String eTag = currentETag.get();
+        if (eTag == null) {
+            return false;
+        }
+
+        ETag current = ETag.create(eTag);
+        for (String header : ifNoneMatch) {
+            for (ETag candidate : ETag.parse(header)) {
+                if (candidate.isWildcard() || candidate.compare(current, false)) {
+                    return webRequest.checkNotModified(eTag);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the client named the binary encoding explicitly; wildcards keep newline-delimited JSON.
+     */
+    private static boolean acceptsBinary(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        try {
+            for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                if (mediaType.equalsTypeAndSubtype(RewardsBinaryHttpMessageConverter.APPLICATION_REWARDS_PROTOBUF)
+                        && mediaType.getQualityValue() > 0) {
+                    return true;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        return false;
+    }
 }
@@ -0,0 +1,103 @@
+package com.customerrewards.controllers;
+
+import com.customerrewards.dto.ExportJobStatus;
+import com.customerrewards.services.RewardsExportService;
+import com.customerrewards.services.RewardsWindow;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/rewards/exports")
+public class RewardsExportController {
+    static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
+    final private RewardsExportService rewardsExportService;
+
+    public RewardsExportController(RewardsExportService rewardsExportService) {
+        this.rewardsExportService = rewardsExportService;
+    }
+
+    /**
+     * Start a background export of all customers' rewards as gzip CSV
+     * POST /api/rewards/exports
+     * POST /api/rewards/exports?from=2025-01&to=2025-03&asOf=2025-03-15 (same window as GET /api/rewards)
+     * Returns 202 with the job status; poll the Location header for progress.
+     */
+    @PostMapping
+    public ResponseEntity<ExportJobStatus> startExport(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf) throws IOException {
+        ExportJobStatus status;
+        try {
+            status = rewardsExportService.startExport(RewardsWindow.parse(from, to, asOf));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.accepted().location(URI.create("/api/rewards/exports/" + status.getId())).body(status);
+    }
+
+    /**
+     * Get progress and throughput of an export job
+     * GET /api/rewards/exports/{id}
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ExportJobStatus> getExportStatus(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(rewardsExportService.getStatus(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Resume a failed export job from its last checkpoint
+     * POST /api/rewards/exports/{id}/resume
+     */
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<ExportJobStatus> resumeExport(@PathVariable String id) throws IOException {
+        try {
+            return ResponseEntity.accepted().body(rewardsExportService.resume(id));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Download the file of a completed export job
+     * GET /api/rewards/exports/{id}/file
+     */
+    @GetMapping("/{id}/file")
+    public ResponseEntity<Resource> getExportFile(@PathVariable String id) {
+        try {
+            Resource file = new FileSystemResource(rewardsExportService.getExportFile(id));
+            return ResponseEntity.ok()
+                    .contentType(APPLICATION_GZIP)
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename("rewards-" + id + ".csv.gz").build().toString())
+                    .body(file);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
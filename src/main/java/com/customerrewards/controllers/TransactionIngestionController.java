@@ -0,0 +1,41 @@
+package com.customerrewards.controllers;
+
+import com.customerrewards.dto.IngestionReport;
+import com.customerrewards.services.TransactionIngestionService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/transactions")
+public class TransactionIngestionController {
+    static final String TEXT_CSV = "text/csv";
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    final private TransactionIngestionService transactionIngestionService;
+
+    public TransactionIngestionController(TransactionIngestionService transactionIngestionService) {
+        this.transactionIngestionService = transactionIngestionService;
+    }
+
+    /**
+     * Bulk-load transactions, one per line, streamed from the request body
+     * POST /api/transactions/batch (Content-Type: application/x-ndjson or text/csv)
+     * CSV columns: customerId,customerEmail,amount,transactionDate,description
+     */
+    @PostMapping(value = "/batch", consumes = {APPLICATION_NDJSON, TEXT_CSV})
+    public ResponseEntity<IngestionReport> ingestBatch(
+            @RequestHeader("Content-Type") MediaType contentType,
+            InputStream body) throws IOException {
+        TransactionIngestionService.Format format = contentType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV))
+                ? TransactionIngestionService.Format.CSV
+                : TransactionIngestionService.Format.NDJSON;
+        return ResponseEntity.ok(transactionIngestionService.ingest(body, format));
+    }
+}
@@ -0,0 +1,21 @@
+package com.customerrewards.dto;
+
+public class ArchiveReport {
+    private long monthsArchived;
+    private long transactionsDeleted;
+
+    public ArchiveReport() {}
+
+    public ArchiveReport(long monthsArchived, long transactionsDeleted) {
+        this.monthsArchived = monthsArchived;
+        this.transactionsDeleted = transactionsDeleted;
+    }
+
+    /** Number of months rolled into the monthly summary for the first time. */
+    public long getMonthsArchived() { return monthsArchived; }
+    public void setMonthsArchived(long monthsArchived) { this.monthsArchived = monthsArchived; }
+
+    /** Number of raw transaction rows deleted, including late rows in months archived before. */
+    public long getTransactionsDeleted() { return transactionsDeleted; }
+    public void setTransactionsDeleted(long transactionsDeleted) { this.transactionsDeleted = transactionsDeleted; }
+}
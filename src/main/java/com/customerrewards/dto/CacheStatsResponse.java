@@ -0,0 +1,41 @@
+package com.customerrewards.dto;
+
+public class CacheStatsResponse {
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private double hitRate;
+    private long invalidationCount;
+
+    public CacheStatsResponse() {}
+
+    public CacheStatsResponse(long size, long hitCount, long missCount, long evictionCount, double hitRate, long invalidationCount) {
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.hitRate = hitRate;
+        this.invalidationCount = invalidationCount;
+    }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public long getHitCount() { return hitCount; }
+    public void setHitCount(long hitCount) { this.hitCount = hitCount; }
+
+    public long getMissCount() { return missCount; }
+    public void setMissCount(long missCount) { this.missCount = missCount; }
+
+    /** Entries dropped by the size or TTL bound; explicit invalidations are not counted. */
+    public long getEvictionCount() { return evictionCount; }
+    public void setEvictionCount(long evictionCount) { this.evictionCount = evictionCount; }
+
+    public double getHitRate() { return hitRate; }
+    public void setHitRate(double hitRate) { this.hitRate = hitRate; }
+
+    /** Explicit evictions caused by transaction writes and month boundaries. */
+    public long getInvalidationCount() { return invalidationCount; }
+    public void setInvalidationCount(long invalidationCount) { this.invalidationCount = invalidationCount; }
+}
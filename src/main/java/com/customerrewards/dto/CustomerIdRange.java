@@ -0,0 +1,9 @@
+package com.customerrewards.dto;
+
+/**
+ * Lowest and highest customer id; both null when there are no customers.
+ */
+public interface CustomerIdRange {
+    Long getMinId();
+    Long getMaxId();
+}
@@ -0,0 +1,11 @@
+package com.customerrewards.dto;
+
+/**
+ * Projection row: one customer's reward points and transaction count for a single month.
+ */
+public interface CustomerMonthTotal {
+    Long getCustomerId();
+    String getCustomerName();
+    Long getPoints();
+    Long getTransactionCount();
+}
@@ -0,0 +1,14 @@
+package com.customerrewards.dto;
+
+/**
+ * One row of the database-side points aggregation: the total points a customer
+ * earned in a single calendar month.
+ */
+public interface CustomerMonthlyPoints {
+    Long getCustomerId();
+    String getCustomerName();
+    Integer getYear();
+    Integer getMonth();
+    Long getPoints();
+    Long getTransactionCount();
+}
@@ -0,0 +1,9 @@
+package com.customerrewards.dto;
+
+/**
+ * Column projection of a Customer used for batched name lookups.
+ */
+public interface CustomerName {
+    Long getId();
+    String getName();
+}
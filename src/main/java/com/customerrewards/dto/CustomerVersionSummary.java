@@ -0,0 +1,10 @@
+package com.customerrewards.dto;
+
+/**
+ * Number of customers and the highest rewards version among them; maxVersion is null when
+ * there are no customers.
+ */
+public interface CustomerVersionSummary {
+    Long getCustomerCount();
+    Long getMaxVersion();
+}
@@ -0,0 +1,64 @@
+package com.customerrewards.dto;
+
+import java.time.Instant;
+
+public class ExportJobStatus {
+
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private String id;
+    private State state;
+    private String fromMonth;
+    private String toMonth;
+    private String asOf;
+    private long customersExported;
+    private long totalCustomers;
+    private int chunksWritten;
+    private long bytesWritten;
+    private double customersPerSecond;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+
+    public ExportJobStatus() {}
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public State getState() { return state; }
+    public void setState(State state) { this.state = state; }
+
+    public String getFromMonth() { return fromMonth; }
+    public void setFromMonth(String fromMonth) { this.fromMonth = fromMonth; }
+
+    public String getToMonth() { return toMonth; }
+    public void setToMonth(String toMonth) { this.toMonth = toMonth; }
+
+    public String getAsOf() { return asOf; }
+    public void setAsOf(String asOf) { this.asOf = asOf; }
+
+    public long getCustomersExported() { return customersExported; }
+    public void setCustomersExported(long customersExported) { this.customersExported = customersExported; }
+
+    public long getTotalCustomers() { return totalCustomers; }
+    public void setTotalCustomers(long totalCustomers) { this.totalCustomers = totalCustomers; }
+
+    public int getChunksWritten() { return chunksWritten; }
+    public void setChunksWritten(int chunksWritten) { this.chunksWritten = chunksWritten; }
+
+    public long getBytesWritten() { return bytesWritten; }
+    public void setBytesWritten(long bytesWritten) { this.bytesWritten = bytesWritten; }
+
+    /** Throughput of the current run (since the job was last started or resumed). */
+    public double getCustomersPerSecond() { return customersPerSecond; }
+    public void setCustomersPerSecond(double customersPerSecond) { this.customersPerSecond = customersPerSecond; }
+
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
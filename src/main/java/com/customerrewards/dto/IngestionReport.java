@@ -0,0 +1,66 @@
+package com.customerrewards.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class IngestionReport {
+
+    public static class BatchResult {
+        private int batch;
+        private int accepted;
+        private int rejected;
+
+        public BatchResult() {}
+
+        public BatchResult(int batch, int accepted, int rejected) {
+            this.batch = batch;
+            this.accepted = accepted;
+            this.rejected = rejected;
+        }
+
+        public int getBatch() { return batch; }
+        public void setBatch(int batch) { this.batch = batch; }
+
+        public int getAccepted() { return accepted; }
+        public void setAccepted(int accepted) { this.accepted = accepted; }
+
+        public int getRejected() { return rejected; }
+        public void setRejected(int rejected) { this.rejected = rejected; }
+    }
+
+    public static class Rejection {
+        private long line;
+        private String reason;
+
+        public Rejection() {}
+
+        public Rejection(long line, String reason) {
+            this.line = line;
+            this.reason = reason;
+        }
+
+        public long getLine() { return line; }
+        public void setLine(long line) { this.line = line; }
+
+        public String getReason() { return reason; }
+        public void setReason(String reason) { this.reason = reason; }
+    }
+
+    private long accepted;
+    private long rejected;
+    private List<BatchResult> batches = new ArrayList<>();
+    private List<Rejection> rejections = new ArrayList<>();
+
+    public long getAccepted() { return accepted; }
+    public void setAccepted(long accepted) { this.accepted = accepted; }
+
+    public long getRejected() { return rejected; }
+    public void setRejected(long rejected) { this.rejected = rejected; }
+
+    public List<BatchResult> getBatches() { return batches; }
+    public void setBatches(List<BatchResult> batches) { this.batches = batches; }
+
+    /** The first rejected lines with their reason; capped, so rejected counts may exceed its size. */
+    public List<Rejection> getRejections() { return rejections; }
+    public void setRejections(List<Rejection> rejections) { this.rejections = rejections; }
+}
@@ -0,0 +1,26 @@
+package com.customerrewards.dto;
+
+public class LedgerReconcileReport {
+    private long rowsChecked;
+    private long driftedRows;
+    private long pointsDrift;
+
+    public LedgerReconcileReport() {}
+
+    public LedgerReconcileReport(long rowsChecked, long driftedRows, long pointsDrift) {
+        this.rowsChecked = rowsChecked;
+        this.driftedRows = driftedRows;
+        this.pointsDrift = pointsDrift;
+    }
+
+    public long getRowsChecked() { return rowsChecked; }
+    public void setRowsChecked(long rowsChecked) { this.rowsChecked = rowsChecked; }
+
+    /** Number of (customer, month) rows whose rollup disagreed with the raw transactions. */
+    public long getDriftedRows() { return driftedRows; }
+    public void setDriftedRows(long driftedRows) { this.driftedRows = driftedRows; }
+
+    /** Sum of the absolute point differences that were corrected. */
+    public long getPointsDrift() { return pointsDrift; }
+    public void setPointsDrift(long pointsDrift) { this.pointsDrift = pointsDrift; }
+}
@@ -0,0 +1,9 @@
+package com.customerrewards.dto;
+
+/**
+ * Projection row: one customer's reward points for a single month (yyyy-MM) of the rollup.
+ */
+public interface MonthPoints {
+    String getMonthKey();
+    Long getPoints();
+}
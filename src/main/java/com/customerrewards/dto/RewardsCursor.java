@@ -0,0 +1,36 @@
+package com.customerrewards.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in the (customerName, customerId) ordering of the rewards list.
+ * Clients only see the opaque token produced by {@link #encode()}.
+ */
+public class RewardsCursor {
+    private final String customerName;
+    private final Long customerId;
+
+    public RewardsCursor(String customerName, Long customerId) {
+        this.customerName = customerName;
+        this.customerId = customerId;
+    }
+
+    public String getCustomerName() { return customerName; }
+    public Long getCustomerId() { return customerId; }
+
+    public String encode() {
+        String raw = customerId + ":" + customerName;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static RewardsCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new RewardsCursor(raw.substring(separator + 1), Long.valueOf(raw.substring(0, separator)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.customerrewards.dto;
+
+import java.util.List;
+
+public class RewardsPage {
+    private List<CustomerRewardsResponse> rewards;
+    private String nextCursor;
+
+    public RewardsPage() {}
+
+    public RewardsPage(List<CustomerRewardsResponse> rewards, String nextCursor) {
+        this.rewards = rewards;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<CustomerRewardsResponse> getRewards() { return rewards; }
+    public void setRewards(List<CustomerRewardsResponse> rewards) { this.rewards = rewards; }
+
+    /** Token for the following page, or null when this is the last page. */
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,13 @@
+package com.customerrewards.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Column projection of a Transaction carrying only what the rewards calculation needs.
+ */
+public interface TransactionAmount {
+    Long getId();
+    Long getAmountInCents();
+    Integer getPoints();
+    LocalDateTime getTransactionDate();
+}
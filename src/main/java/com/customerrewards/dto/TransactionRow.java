@@ -0,0 +1,40 @@
+package com.customerrewards.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One incoming transaction of a batch upload. The customer is referenced either by id or by email.
+ */
+public class TransactionRow {
+    private Long customerId;
+    private String customerEmail;
+    private BigDecimal amount;
+    private LocalDateTime transactionDate;
+    private String description;
+
+    public TransactionRow() {}
+
+    public TransactionRow(Long customerId, String customerEmail, BigDecimal amount, LocalDateTime transactionDate, String description) {
+        this.customerId = customerId;
+        this.customerEmail = customerEmail;
+        this.amount = amount;
+        this.transactionDate = transactionDate;
+        this.description = description;
+    }
+
+    public Long getCustomerId() { return customerId; }
+    public void setCustomerId(Long customerId) { this.customerId = customerId; }
+
+    public String getCustomerEmail() { return customerEmail; }
+    public void setCustomerEmail(String customerEmail) { this.customerEmail = customerEmail; }
+
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+
+    public LocalDateTime getTransactionDate() { return transactionDate; }
+    public void setTransactionDate(LocalDateTime transactionDate) { this.transactionDate = transactionDate; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+}
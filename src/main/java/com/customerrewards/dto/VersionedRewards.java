@@ -0,0 +1,24 @@
+package com.customerrewards.dto;
+
+/**
+ * Rewards together with the rewards version they were computed from, read in the same
+ * transaction before the rewards, so a tag derived from the version never claims a newer state
+ * than the body it is sent with.
+ */
+public class VersionedRewards<T> {
+    private String version;
+    private T rewards;
+
+    public VersionedRewards() {}
+
+    public VersionedRewards(String version, T rewards) {
+        this.version = version;
+        this.rewards = rewards;
+    }
+
+    public String getVersion() { return version; }
+    public void setVersion(String version) { this.version = version; }
+
+    public T getRewards() { return rewards; }
+    public void setRewards(T rewards) { this.rewards = rewards; }
+}
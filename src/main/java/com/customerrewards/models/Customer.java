@@ -1,14 +1,21 @@
 package com.customerrewards.models;
 
+import com.customerrewards.services.CustomerNameInvalidator;
+import com.customerrewards.services.ShardWriteGuard;
 import jakarta.persistence.*;
 
 import java.util.List;
 
 @Entity
-@Table(name="customers")
+@Table(name="customers", indexes = {
+        @Index(name = "idx_customers_name_id", columnList = "name, id"),
+        @Index(name = "idx_customers_rewards_version", columnList = "rewards_version")
+})
+@EntityListeners({ShardWriteGuard.class, CustomerNameInvalidator.class})
 public class Customer {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customers_seq")
+    @SequenceGenerator(name = "customers_seq", sequenceName = "customers_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -17,6 +24,16 @@ public class Customer {
     @Column(unique = true, nullable = false)
     private String email;
 
+    // Assigned by the database on insert, on every write to the customer's transaction points
+    // (see MonthlyPointsLedger) and on a rename (see CustomerNameInvalidator), never by
+    // Hibernate; reflects the row as loaded
+    @Column(name = "rewards_version", nullable = false, insertable = false, updatable = false)
+    private long rewardsVersion;
+
+    // Name as last read from or written to the database, so a rename can be detected on update
+    @Transient
+    private String persistedName;
+
     @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Transaction> transactions;
 
@@ -36,6 +53,14 @@ public class Customer {
     public String getEmail() { return email; }
     public void setEmail(String email) { this.email = email; }
 
+    public long getRewardsVersion() { return rewardsVersion; }
+
+    public String getPersistedName() { return persistedName; }
+
+    public void rememberPersistedName() {
+        this.persistedName = name;
+    }
+
     public List<Transaction> getTransactions() { return transactions; }
     public void setTransactions(List<Transaction> transactions) { this.transactions = transactions; }
 }
@@ -0,0 +1,38 @@
+package com.customerrewards.models;
+
+import jakarta.persistence.*;
+
+/**
+ * Running total of a customer's reward points for one calendar month.
+ * Maintained by MonthlyPointsLedger in the same transaction as every Transaction write.
+ */
+@Entity
+@Table(name = "customer_monthly_points")
+public class MonthlyPointsRollup {
+
+    @EmbeddedId
+    private MonthlyPointsRollupId id;
+
+    @Column(nullable = false)
+    private Long points;
+
+    @Column(nullable = false)
+    private Long transactionCount;
+
+    public MonthlyPointsRollup() {}
+
+    public MonthlyPointsRollup(MonthlyPointsRollupId id, Long points, Long transactionCount) {
+        this.id = id;
+        this.points = points;
+        this.transactionCount = transactionCount;
+    }
+
+    public MonthlyPointsRollupId getId() { return id; }
+    public void setId(MonthlyPointsRollupId id) { this.id = id; }
+
+    public Long getPoints() { return points; }
+    public void setPoints(Long points) { this.points = points; }
+
+    public Long getTransactionCount() { return transactionCount; }
+    public void setTransactionCount(Long transactionCount) { this.transactionCount = transactionCount; }
+}
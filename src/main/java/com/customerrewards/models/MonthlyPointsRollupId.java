@@ -0,0 +1,43 @@
+package com.customerrewards.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@Embeddable
+public class MonthlyPointsRollupId implements Serializable {
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    /** Calendar month formatted as yyyy-MM. */
+    @Column(name = "month_key", nullable = false, length = 7)
+    private String monthKey;
+
+    public MonthlyPointsRollupId() {}
+
+    public MonthlyPointsRollupId(Long customerId, String monthKey) {
+        this.customerId = customerId;
+        this.monthKey = monthKey;
+    }
+
+    public Long getCustomerId() { return customerId; }
+    public void setCustomerId(Long customerId) { this.customerId = customerId; }
+
+    public String getMonthKey() { return monthKey; }
+    public void setMonthKey(String monthKey) { this.monthKey = monthKey; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MonthlyPointsRollupId other)) return false;
+        return Objects.equals(customerId, other.customerId) && Objects.equals(monthKey, other.monthKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(customerId, monthKey);
+    }
+}
@@ -1,19 +1,31 @@
 package com.customerrewards.models;
 
+import com.customerrewards.services.MonthlyPointsLedger;
+import com.customerrewards.services.ShardWriteGuard;
+import com.customerrewards.services.TransactionCacheInvalidator;
+import com.customerrewards.services.TransactionPointsRater;
 import jakarta.persistence.*;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name="transactions")
+@Table(name="transactions", indexes = {
+        @Index(name = "idx_transactions_customer_date_amount", columnList = "customer_id, transaction_date, amount, points"),
+        @Index(name = "idx_transactions_date_customer_amount", columnList = "transaction_date, customer_id, amount, points")
+})
+@EntityListeners({ShardWriteGuard.class, TransactionPointsRater.class, TransactionCacheInvalidator.class, MonthlyPointsLedger.class})
 public class Transaction {
 
+    private static final long UNKNOWN_CENTS = Long.MIN_VALUE;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id", nullable = false)
     private Customer customer;
 
@@ -25,6 +37,22 @@ public class Transaction {
 
     private String description;
 
+    // reward points, rated by TransactionPointsRater when the row is written
+    @Column(nullable = false)
+    private int points;
+
+    // amount in cents, derived from amount on first use
+    @Transient
+    private long amountInCents = UNKNOWN_CENTS;
+
+    // State as last read from or written to the database, so the ledger can reverse it on update/delete
+    @Transient
+    private Long persistedCustomerId;
+    @Transient
+    private int persistedPoints;
+    @Transient
+    private LocalDateTime persistedTransactionDate;
+
     public Transaction() {}
 
     public Transaction(Customer customer, BigDecimal amount, LocalDateTime transactionDate, String description) {
@@ -41,11 +69,38 @@ public class Transaction {
     public void setCustomer(Customer customer) { this.customer = customer; }
 
     public BigDecimal getAmount() { return amount; }
-    public void setAmount(BigDecimal amount) { this.amount = amount; }
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+        this.amountInCents = UNKNOWN_CENTS;
+    }
+
+    /**
+     * The amount as integer cents, rounded to the column's scale of 2. Converted from the
+     * BigDecimal once and then read as a primitive.
+     */
+    public long getAmountInCents() {
+        if (amountInCents == UNKNOWN_CENTS) {
+            amountInCents = amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        }
+        return amountInCents;
+    }
 
     public LocalDateTime getTransactionDate() { return transactionDate; }
     public void setTransactionDate(LocalDateTime transactionDate) { this.transactionDate = transactionDate; }
 
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
+
+    public int getPoints() { return points; }
+    public void setPoints(int points) { this.points = points; }
+
+    public Long getPersistedCustomerId() { return persistedCustomerId; }
+    public int getPersistedPoints() { return persistedPoints; }
+    public LocalDateTime getPersistedTransactionDate() { return persistedTransactionDate; }
+
+    public void rememberPersistedState() {
+        this.persistedCustomerId = customer.getId();
+        this.persistedPoints = points;
+        this.persistedTransactionDate = transactionDate;
+    }
 }
@@ -1,9 +1,80 @@
 package com.customerrewards.repository;
 
+import com.customerrewards.dto.CustomerIdRange;
+import com.customerrewards.dto.CustomerName;
+import com.customerrewards.dto.CustomerVersionSummary;
 import com.customerrewards.models.Customer;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
+
+    String HAS_TRANSACTION_IN_WINDOW = "EXISTS (SELECT 1 FROM Transaction t WHERE t.customer = c " +
+            "AND t.transactionDate >= :startDate AND t.transactionDate < :endDate) ";
+
+    @Query("SELECT c.name FROM Customer c WHERE c.id = :customerId")
+    Optional<String> findNameById(@Param("customerId") Long customerId);
+
+    @Query("SELECT c.rewardsVersion FROM Customer c WHERE c.id = :customerId")
+    Optional<Long> findRewardsVersionById(@Param("customerId") Long customerId);
+
+    /**
+     * Changes whenever a customer is added or removed or any customer's rewards version moves.
+     */
+    @Query("SELECT COUNT(c) AS customerCount, MAX(c.rewardsVersion) AS maxVersion FROM Customer c")
+    CustomerVersionSummary findVersionSummary();
+
+    @Query("SELECT MIN(c.id) AS minId, MAX(c.id) AS maxId FROM Customer c")
+    CustomerIdRange findIdRange();
+
+    /**
+     * Resolves the names of a whole page of customers in a single statement.
+     */
+    @Query("SELECT c.id AS id, c.name AS name FROM Customer c WHERE c.id IN :customerIds")
+    List<CustomerName> findNamesByIdIn(@Param("customerIds") Collection<Long> customerIds);
+
+    /**
+     * Keyset chunk of all customers with id > afterId, ordered by id; used to walk the whole
+     * customer table in resumable steps.
+     */
+    @Query("SELECT c.id AS id, c.name AS name FROM Customer c WHERE c.id > :afterId ORDER BY c.id")
+    List<CustomerName> findChunkAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * First keyset page of customers with at least one transaction in the window, ordered by
+     * (name, id); later pages come from findPageWithTransactionsAfter.
+     */
+    @Query("SELECT c.id AS id, c.name AS name FROM Customer c " +
+            "WHERE " + HAS_TRANSACTION_IN_WINDOW + "ORDER BY c.name, c.id")
+    List<CustomerName> findFirstPageWithTransactions(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            Limit limit
+    );
+
+    /**
+     * Keyset page of customers with at least one transaction in the window that come after
+     * (afterName, afterId) in (name, id) order. The range on name alone seeks the (name, id)
+     * index, so a deep page costs the same as the first; the rest of the row comparison only
+     * filters the ties on afterName.
+     */
+    @Query("SELECT c.id AS id, c.name AS name FROM Customer c " +
+            "WHERE c.name >= :afterName AND (c.name > :afterName OR c.id > :afterId) " +
+            "AND " + HAS_TRANSACTION_IN_WINDOW + "ORDER BY c.name, c.id")
+    List<CustomerName> findPageWithTransactionsAfter(
+            @Param("afterName") String afterName,
+            @Param("afterId") Long afterId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            Limit limit
+    );
 }
@@ -0,0 +1,54 @@
+package com.customerrewards.repository;
+
+import com.customerrewards.dto.CustomerMonthTotal;
+import com.customerrewards.dto.MonthPoints;
+import com.customerrewards.models.MonthlyPointsRollup;
+import com.customerrewards.models.MonthlyPointsRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface MonthlyPointsRollupRepository extends JpaRepository<MonthlyPointsRollup, MonthlyPointsRollupId> {
+
+    /**
+     * Every customer's rollup row for one month (yyyy-MM), with their name, ordered by customer id.
+     */
+    @Query("SELECT c.id AS customerId, c.name AS customerName, r.points AS points, r.transactionCount AS transactionCount " +
+            "FROM MonthlyPointsRollup r JOIN Customer c ON c.id = r.id.customerId " +
+            "WHERE r.id.monthKey = :monthKey AND r.transactionCount > 0 ORDER BY c.id")
+    List<CustomerMonthTotal> findTotalsByMonth(@Param("monthKey") String monthKey);
+
+    /**
+     * Primary-key range scan over one customer's months, inclusive on both ends (yyyy-MM).
+     * Months whose transactions have all been deleted are skipped.
+     */
+    @Query("SELECT r.id.monthKey AS monthKey, r.points AS points FROM MonthlyPointsRollup r WHERE r.id.customerId = :customerId " +
+            "AND r.id.monthKey >= :fromMonth AND r.id.monthKey <= :toMonth AND r.transactionCount > 0")
+    List<MonthPoints> findByCustomerIdAndMonthRange(
+            @Param("customerId") Long customerId,
+            @Param("fromMonth") String fromMonth,
+            @Param("toMonth") String toMonth
+    );
+
+    /**
+     * As findByCustomerIdAndMonthRange, limited to archived months, whose rollup rows are final
+     * before any reconcile has run.
+     */
+    @Query(value = "SELECT r.month_key AS \"monthKey\", r.points AS \"points\" " +
+            "FROM customer_monthly_points r JOIN archived_months a ON a.month_key = r.month_key " +
+            "WHERE r.customer_id = :customerId AND r.month_key >= :fromMonth AND r.month_key <= :toMonth " +
+            "AND r.transaction_count > 0", nativeQuery = true)
+    List<MonthPoints> findArchivedByCustomerIdAndMonthRange(
+            @Param("customerId") Long customerId,
+            @Param("fromMonth") String fromMonth,
+            @Param("toMonth") String toMonth
+    );
+
+    /**
+     * Whether the month's raw transactions have been archived, leaving the rollup as its only record.
+     */
+    @Query(value = "SELECT COUNT(*) > 0 FROM archived_months WHERE month_key = :monthKey", nativeQuery = true)
+    boolean isArchived(@Param("monthKey") String monthKey);
+}
@@ -0,0 +1,36 @@
+package com.customerrewards.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Hands out ids from a database sequence one block per round trip, using the same pooled-lo
+ * scheme Hibernate applies to the entities, so JDBC bulk inserts and JPA inserts never collide.
+ * Not thread-safe; use one allocator per loader.
+ */
+public class SequenceIdAllocator {
+
+    // Must match the allocationSize of the entities' @SequenceGenerator
+    public static final int BLOCK_SIZE = 50;
+
+    public static final String CUSTOMERS_SEQUENCE = "customers_seq";
+    public static final String TRANSACTIONS_SEQUENCE = "transactions_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String sequence;
+    private long next;
+    private long remaining;
+
+    public SequenceIdAllocator(JdbcTemplate jdbcTemplate, String sequence) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sequence = sequence;
+    }
+
+    public long next() {
+        if (remaining == 0) {
+            next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+            remaining = BLOCK_SIZE;
+        }
+        remaining--;
+        return next++;
+    }
+}
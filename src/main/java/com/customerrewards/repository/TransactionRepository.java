@@ -1,15 +1,42 @@
 package com.customerrewards.repository;
 
+import com.customerrewards.dto.CustomerMonthTotal;
+import com.customerrewards.dto.CustomerMonthlyPoints;
+import com.customerrewards.dto.TransactionAmount;
 import com.customerrewards.models.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
+    /**
+     * Reward points of a single transaction, rated by the RewardRules when it was written.
+     */
+    String POINTS = "t.points";
+
+    String MONTHLY_POINTS_SELECT = "SELECT c.id AS customerId, c.name AS customerName, " +
+            "YEAR(t.transactionDate) AS year, MONTH(t.transactionDate) AS month, " +
+            "SUM(" + POINTS + ") AS points, COUNT(t) AS transactionCount " +
+            "FROM Transaction t JOIN t.customer c ";
+
+    String IN_WINDOW = "WHERE t.transactionDate >= :startDate AND t.transactionDate < :endDate ";
+
+    String MONTHLY_POINTS_GROUP_BY = "GROUP BY c.id, c.name, YEAR(t.transactionDate), MONTH(t.transactionDate)";
+
+    /**
+     * Loads transactions together with their customer in one joined statement.
+     */
+    @EntityGraph(attributePaths = "customer")
     @Query("SELECT t FROM Transaction t WHERE t.transactionDate >= :startDate AND t.transactionDate < :endDate")
     List<Transaction> findTransactionsByDateRange(
             @Param("startDate") LocalDateTime startDate,
@@ -22,4 +49,67 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate
     );
+
+    /**
+     * Loads only id, amount (as integer cents), points and date for a customer's transactions;
+     * no entity, Customer association or BigDecimal is built.
+     */
+    @Query("SELECT t.id AS id, CAST(t.amount * 100 AS Long) AS amountInCents, t.points AS points, " +
+            "t.transactionDate AS transactionDate FROM Transaction t " +
+            "WHERE t.customer.id = :customerId AND t.transactionDate >= :startDate AND t.transactionDate < :endDate")
+    List<TransactionAmount> findAmountsByCustomerIdAndDateRange(
+            @Param("customerId") Long customerId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Aggregates reward points per customer and calendar month inside the database.
+     */
+    @Query(MONTHLY_POINTS_SELECT + IN_WINDOW + MONTHLY_POINTS_GROUP_BY)
+    List<CustomerMonthlyPoints> sumPointsByCustomerAndMonth(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Points per customer over the whole window, ordered by customer id; used for
+     * single-month windows, where it is the per-month total.
+     */
+    @Query("SELECT c.id AS customerId, c.name AS customerName, SUM(" + POINTS + ") AS points, COUNT(t) AS transactionCount " +
+            "FROM Transaction t JOIN t.customer c " + IN_WINDOW + "GROUP BY c.id, c.name ORDER BY c.id")
+    List<CustomerMonthTotal> sumPointsByCustomer(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Same aggregation as sumPointsByCustomerAndMonth, restricted to a set of customers
+     * so a page only reads its own customers' transactions.
+     */
+    @Query(MONTHLY_POINTS_SELECT + IN_WINDOW + "AND c.id IN :customerIds " + MONTHLY_POINTS_GROUP_BY)
+    List<CustomerMonthlyPoints> sumPointsByCustomerIdsAndMonth(
+            @Param("customerIds") Collection<Long> customerIds,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * Same aggregation as sumPointsByCustomerAndMonth, ordered by customer so a caller
+     * can fold one customer at a time. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(MONTHLY_POINTS_SELECT + IN_WINDOW + MONTHLY_POINTS_GROUP_BY + " ORDER BY c.name, c.id")
+    Stream<CustomerMonthlyPoints> streamPointsByCustomerAndMonth(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    /**
+     * The aggregation over the whole history, ordered by (customer id, month), used to
+     * reconcile the customer_monthly_points rollup. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(MONTHLY_POINTS_SELECT + MONTHLY_POINTS_GROUP_BY + " ORDER BY c.id, YEAR(t.transactionDate), MONTH(t.transactionDate)")
+    Stream<CustomerMonthlyPoints> streamAllPointsByCustomerAndMonth();
 }
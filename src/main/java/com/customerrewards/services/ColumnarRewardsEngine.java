@@ -0,0 +1,148 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.CustomerRewardsResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * In-memory rewards aggregation for batch statement runs (rewards.aggregation.engine=columnar).
+ * Transactions are read into primitive columns, reduced in parallel on the common fork-join
+ * pool into a dense customer x month int matrix, and only boxed into responses at the end.
+ */
+@Component
+public class ColumnarRewardsEngine {
+
+    // Stop splitting once a task covers this few rows
+    private static final int LEAF_ROWS = 16_384;
+
+    // Rows arrive grouped by customer, straight off the (customer_id, transaction_date, amount, points) index
+    private static final String COLUMNS_SQL = "SELECT customer_id, " +
+            "EXTRACT(YEAR FROM transaction_date) * 12 + EXTRACT(MONTH FROM transaction_date) - 1, " +
+            "points " +
+            "FROM transactions WHERE transaction_date >= ? AND transaction_date < ? ORDER BY customer_id";
+
+    private static final String NAMES_SQL = "SELECT id, name FROM customers WHERE id >= ? AND id <= ? ORDER BY id";
+
+    final private JdbcTemplate jdbcTemplate;
+    final private boolean enabled;
+
+    public ColumnarRewardsEngine(JdbcTemplate jdbcTemplate,
+                                 @Value("${rewards.aggregation.engine:database}") String engine) {
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(10_000);
+        this.enabled = "columnar".equalsIgnoreCase(engine);
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Rewards of every customer with a transaction in [startDate, endDate), ordered by name.
+     */
+    public List<CustomerRewardsResponse> computeRewards(LocalDateTime startDate, LocalDateTime endDate) {
+        TransactionColumns columns = new TransactionColumns(1_024);
+        jdbcTemplate.query(COLUMNS_SQL, rs -> { columns.add(rs.getLong(1), rs.getInt(2), rs.getInt(3)); },
+                Timestamp.valueOf(startDate), Timestamp.valueOf(endDate));
+
+        int firstMonth = MonthKeys.ordinal(startDate);
+        RewardsMatrix matrix = aggregate(columns, firstMonth, MonthKeys.ordinal(endDate) - firstMonth + 1);
+        if (matrix.customerCount() == 0) {
+            return List.of();
+        }
+
+        // Both sides are ordered by id, so names are merged in without a lookup table
+        List<CustomerRewardsResponse> responses = new ArrayList<>(matrix.customerCount());
+        int[] next = {0};
+        jdbcTemplate.query(NAMES_SQL, rs -> {
+            long id = rs.getLong(1);
+            while (next[0] < matrix.customerCount() && matrix.customerId(next[0]) < id) {
+                next[0]++;
+            }
+            if (next[0] < matrix.customerCount() && matrix.customerId(next[0]) == id) {
+                responses.add(matrix.toResponse(next[0]++, rs.getString(2)));
+            }
+        }, matrix.customerId(0), matrix.customerId(matrix.customerCount() - 1));
+
+        responses.sort(Comparator.comparing(CustomerRewardsResponse::getCustomerName));
+        return responses;
+    }
+
+    /**
+     * Reduces the columns into a customer x month matrix covering monthCount months from
+     * firstMonthOrdinal; rows outside those months are ignored. Customers are split into
+     * disjoint ranges, so the parallel tasks write to disjoint cells and need no merging.
+     */
+    public static RewardsMatrix aggregate(TransactionColumns columns, int firstMonthOrdinal, int monthCount) {
+        long[] customerIds = columns.customerIds();
+        int size = columns.size();
+
+        // One sequential pass finds each customer's first row
+        int distinct = 0;
+        for (int row = 0; row < size; row++) {
+            if (row == 0 || customerIds[row] != customerIds[row - 1]) {
+                distinct++;
+            }
+        }
+        long[] ids = new long[distinct];
+        int[] firstRow = new int[distinct + 1];
+        for (int row = 0, customer = -1; row < size; row++) {
+            if (row == 0 || customerIds[row] != customerIds[row - 1]) {
+                ids[++customer] = customerIds[row];
+                firstRow[customer] = row;
+            }
+        }
+        firstRow[distinct] = size;
+
+        RewardsMatrix matrix = new RewardsMatrix(ids, firstMonthOrdinal, monthCount);
+        if (distinct > 0) {
+            ForkJoinPool.commonPool().invoke(new CustomerRangeTask(columns, firstRow, matrix, 0, distinct));
+        }
+        return matrix;
+    }
+
+    private static final class CustomerRangeTask extends RecursiveAction {
+        private final TransactionColumns columns;
+        private final int[] firstRow;
+        private final RewardsMatrix matrix;
+        private final int fromCustomer;
+        private final int toCustomer;
+
+        CustomerRangeTask(TransactionColumns columns, int[] firstRow, RewardsMatrix matrix, int fromCustomer, int toCustomer) {
+            this.columns = columns;
+            this.firstRow = firstRow;
+            this.matrix = matrix;
+            this.fromCustomer = fromCustomer;
+            this.toCustomer = toCustomer;
+        }
+
+        @Override
+        protected void compute() {
+            if (toCustomer - fromCustomer > 1 && firstRow[toCustomer] - firstRow[fromCustomer] > LEAF_ROWS) {
+                int middle = (fromCustomer + toCustomer) >>> 1;
+                invokeAll(new CustomerRangeTask(columns, firstRow, matrix, fromCustomer, middle),
+                        new CustomerRangeTask(columns, firstRow, matrix, middle, toCustomer));
+                return;
+            }
+
+            int[] monthOrdinals = columns.monthOrdinals();
+            int[] points = columns.points();
+            int firstMonth = matrix.firstMonthOrdinal();
+            for (int customer = fromCustomer; customer < toCustomer; customer++) {
+                for (int row = firstRow[customer]; row < firstRow[customer + 1]; row++) {
+                    int month = monthOrdinals[row] - firstMonth;
+                    if (month >= 0 && month < matrix.monthCount()) {
+                        matrix.add(customer, month, points[row]);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.customerrewards.services;
+
+import com.customerrewards.models.Customer;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Objects;
+
+/**
+ * JPA entity listener on Customer. The customer's name is part of every rewards response, so
+ * renaming a customer moves their rewards version on (see MonthlyPointsLedger), which changes
+ * both their own ETag and the summary's, and evicts their cached rewards and the closed-month
+ * snapshots that list them. Like TransactionCacheInvalidator it only delegates to the
+ * singletons and does nothing where they are not configured. Bulk updates of customers bypass
+ * it.
+ */
+public class CustomerNameInvalidator {
+
+    final private ObjectProvider<MonthlyPointsLedger> monthlyPointsLedger;
+    final private ObjectProvider<RewardsCache> rewardsCache;
+    final private ObjectProvider<RewardsSnapshotStore> rewardsSnapshotStore;
+
+    public CustomerNameInvalidator(ObjectProvider<MonthlyPointsLedger> monthlyPointsLedger,
+                                   ObjectProvider<RewardsCache> rewardsCache,
+                                   ObjectProvider<RewardsSnapshotStore> rewardsSnapshotStore) {
+        this.monthlyPointsLedger = monthlyPointsLedger;
+        this.rewardsCache = rewardsCache;
+        this.rewardsSnapshotStore = rewardsSnapshotStore;
+    }
+
+    @PostLoad
+    @PostPersist
+    void remember(Customer customer) {
+        customer.rememberPersistedName();
+    }
+
+    @PostUpdate
+    void afterUpdate(Customer customer) {
+        if (!Objects.equals(customer.getName(), customer.getPersistedName())) {
+            monthlyPointsLedger.ifAvailable(ledger -> ledger.bumpRewardsVersion(customer.getId()));
+            rewardsCache.ifAvailable(cache -> cache.evictCustomer(customer.getId()));
+            rewardsSnapshotStore.ifAvailable(store -> store.invalidateCustomer(customer.getId()));
+        }
+        customer.rememberPersistedName();
+    }
+}
@@ -0,0 +1,162 @@
+package com.customerrewards.services;
+
+import com.customerrewards.config.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Splits the customer id space into contiguous ranges and queries them concurrently, one
+ * virtual thread per range. The ranges are forked and joined inside a single scope: the call
+ * returns only once every range has finished, and the first failure cancels the rest.
+ *
+ * Range queries run on pools of their own, copies of the application's pools limited to
+ * rewards.fanout.max-connections connections each; with read replicas they are routed like
+ * other read-only work. The caller keeps its application connection while it waits for its
+ * ranges, so ranges taking theirs from the same pool could leave every connection held by a
+ * request waiting for its ranges. A fair semaphore of the same size
+ * queues ranges across all callers instead of letting them time out in the pool. Range
+ * queries do not see a caller's uncommitted writes.
+ */
+@Component
+public class CustomerPartitionFanOut {
+
+    /** Fetches the rows of the customers with fromId <= id < toId, on the fan-out pool. */
+    @FunctionalInterface
+    public interface PartitionQuery<T> {
+        List<T> fetch(JdbcTemplate jdbcTemplate, long fromId, long toId);
+    }
+
+    final private int partitions;
+    final private int maxConnections;
+    final private Semaphore connectionBudget;
+    final private DataSource dataSource;
+    final private ReplicaRoutingDataSource replicaDataSource;
+    final private List<HikariDataSource> pools = new ArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CustomerPartitionFanOut(@Value("${rewards.fanout.partitions:1}") int partitions,
+                                   @Value("${rewards.fanout.max-connections:4}") int maxConnections,
+                                   ObjectProvider<DataSource> dataSource,
+                                   ObjectProvider<ReplicaRoutingDataSource> replicaDataSource) {
+        this.partitions = Math.max(1, partitions);
+        this.maxConnections = Math.max(1, maxConnections);
+        this.connectionBudget = new Semaphore(this.maxConnections, true);
+        this.dataSource = dataSource.getIfAvailable();
+        this.replicaDataSource = replicaDataSource.getIfAvailable();
+    }
+
+    /** Without a data source; queries are handed a null JdbcTemplate. */
+    public CustomerPartitionFanOut(int partitions, int maxConnections) {
+        this.partitions = Math.max(1, partitions);
+        this.maxConnections = Math.max(1, maxConnections);
+        this.connectionBudget = new Semaphore(this.maxConnections, true);
+        this.dataSource = null;
+        this.replicaDataSource = null;
+    }
+
+    public boolean isEnabled() { return partitions > 1; }
+
+    /**
+     * Runs the query for each id range of [minId, maxId] and returns the rows in range order.
+     */
+    public <T> List<T> forEachPartition(long minId, long maxId, PartitionQuery<T> query) {
+        long span = maxId - minId + 1;
+        int count = (int) Math.min(partitions, span);
+        JdbcTemplate jdbcTemplate = jdbcTemplate();
+
+        try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<T>>> forks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long fromId = minId + span * i / count;
+                long toId = minId + span * (i + 1) / count;
+                forks.add(scope.submit(() -> withConnection(() -> query.fetch(jdbcTemplate, fromId, toId))));
+            }
+
+            List<T> rows = new ArrayList<>();
+            for (Future<List<T>> fork : forks) {
+                try {
+                    rows.addAll(fork.get());
+                } catch (ExecutionException e) {
+                    scope.shutdownNow();
+                    if (e.getCause() instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new IllegalStateException("Customer partition query failed", e.getCause());
+                }
+            }
+            return rows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for customer partition queries", e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    /**
+     * The fan-out pools, created on first use.
+     */
+    private synchronized JdbcTemplate jdbcTemplate() {
+        if (jdbcTemplate == null && dataSource != null) {
+            if (replicaDataSource != null) {
+                jdbcTemplate = new JdbcTemplate(replicaDataSource.copy(this::copyPool));
+            } else {
+                DataSource target = dataSource;
+                while (target instanceof DelegatingDataSource delegating && delegating.getTargetDataSource() != null) {
+                    target = delegating.getTargetDataSource();
+                }
+                jdbcTemplate = new JdbcTemplate(copyPool(target));
+            }
+        }
+        return jdbcTemplate;
+    }
+
+    /**
+     * A copy of a connection pool limited to maxConnections; a data source that does not pool
+     * its connections (such as an embedded test database) is used as it is.
+     */
+    private DataSource copyPool(DataSource dataSource) {
+        if (!(dataSource instanceof HikariDataSource hikari)) {
+            return dataSource;
+        }
+        HikariConfig config = new HikariConfig();
+        hikari.copyStateTo(config);
+        config.setPoolName("fanout-" + hikari.getPoolName());
+        config.setMaximumPoolSize(maxConnections);
+        config.setMinimumIdle(0);
+        config.setReadOnly(true);
+        HikariDataSource pool = new HikariDataSource(config);
+        pools.add(pool);
+        return pool;
+    }
+
+    private <T> List<T> withConnection(Supplier<List<T>> work) throws InterruptedException {
+        connectionBudget.acquire();
+        try {
+            return work.get();
+        } finally {
+            connectionBudget.release();
+        }
+    }
+}
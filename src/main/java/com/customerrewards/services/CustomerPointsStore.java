@@ -0,0 +1,276 @@
+package com.customerrewards.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Off-heap points of every customer for the last RING_MONTHS months, in a memory-mapped file
+ * of fixed-size records indexed by customer id. Each record is the sequence of the last event
+ * applied to it and a ring of monthly counters, one slot per month ordinal modulo RING_MONTHS;
+ * a slot still tagged with an older month is reset when a newer month reaches it. Reads and
+ * updates touch only the mapped file, so the state allocates nothing on the heap and is still
+ * there when the process restarts.
+ *
+ * There is a single writer (the projection). Readers see each month's points and count
+ * together, since both are packed into one aligned long. Because the record remembers its last
+ * sequence, replaying events it has already seen is harmless. An update first saves the slot's
+ * counter and tag as an undo image in the record, then marks the new sequence pending, changes
+ * the counter and finally clears the mark; a record found pending was interrupted by a crash
+ * and is rolled back before its next use, so replaying the log counts that event exactly once.
+ * Records are 64 bytes and aligned, so none straddles a page.
+ */
+public final class CustomerPointsStore implements AutoCloseable {
+
+    static final int RING_MONTHS = 2;
+    // sequence, month tags (int), counters (long: transaction count << 32 | points), undo image
+    // (counter, tag, slot), padding
+    static final int RECORD_BYTES = 64;
+    static final int HEADER_BYTES = 64;
+    private static final int MAGIC = 0x43505331;
+    // customers per mapped region; the file stays sparse where no customer has points
+    private static final int CHUNK_RECORDS = 1 << 16;
+    private static final long CHUNK_BYTES = (long) CHUNK_RECORDS * RECORD_BYTES;
+    static final int TAGS = 8;
+    static final int COUNTERS = TAGS + RING_MONTHS * 4;
+    static final int UNDO_COUNTER = COUNTERS + RING_MONTHS * 8;
+    static final int UNDO_TAG = UNDO_COUNTER + 8;
+    static final int UNDO_SLOT = UNDO_TAG + 4;
+    // set on a record's sequence while its counter is being changed
+    static final long PENDING = Long.MIN_VALUE;
+
+    /** Receives a customer's points in a month without boxing. */
+    @FunctionalInterface
+    public interface PointsConsumer {
+        void accept(long customerId, long points);
+    }
+
+    final private Path path;
+    private MappedByteBuffer header;
+    // written only by the single writer, replaced rather than resized in place
+    private volatile MappedByteBuffer[] chunks;
+    private volatile long maxCustomerId;
+
+    public CustomerPointsStore(Path path) throws IOException {
+        this.path = path;
+        open();
+    }
+
+    /** Identity of the database the store was derived from (see setEpoch), 0 for a new store. */
+    public long getEpoch() { return header.getLong(24); }
+
+    public void setEpoch(long epoch) { header.putLong(24, epoch); }
+
+    /** Sequence of the last event applied to the whole store, 0 for a new store. */
+    public long getAppliedSequence() { return header.getLong(8); }
+
+    public void setAppliedSequence(long sequence) { header.putLong(8, sequence); }
+
+    public long getMaxCustomerId() { return maxCustomerId; }
+
+    /**
+     * Adds the event unless the customer's record has already seen its sequence.
+     */
+    public void apply(long sequence, long customerId, int monthOrdinal, long points, long transactionCount) {
+        MappedByteBuffer chunk = writableChunk(customerId);
+        int record = recordOffset(customerId);
+        if (recordedSequence(chunk, record) >= sequence) {
+            return;
+        }
+        int slot = Math.floorMod(monthOrdinal, RING_MONTHS);
+        int tag = record + TAGS + slot * 4;
+        if (chunk.getInt(tag) > monthOrdinal) {
+            // the month has already left the ring
+            return;
+        }
+
+        chunk.putLong(record + UNDO_COUNTER, chunk.getLong(record + COUNTERS + slot * 8));
+        chunk.putInt(record + UNDO_TAG, chunk.getInt(tag));
+        chunk.putInt(record + UNDO_SLOT, slot);
+        chunk.putLong(record, sequence | PENDING);
+        add(chunk, record, monthOrdinal, points, transactionCount);
+        chunk.putLong(record, sequence);
+    }
+
+    /**
+     * Adds totals loaded from elsewhere and marks the record as covering events up to the
+     * sequence. Used to seed the store; unlike apply it never skips.
+     */
+    public void load(long sequence, long customerId, int monthOrdinal, long points, long transactionCount) {
+        MappedByteBuffer chunk = writableChunk(customerId);
+        int record = recordOffset(customerId);
+        long recorded = recordedSequence(chunk, record);
+        add(chunk, record, monthOrdinal, points, transactionCount);
+        chunk.putLong(record, Math.max(sequence, recorded));
+    }
+
+    /**
+     * The customer's points in the month, or -1 if they have no transactions in it (or the
+     * month has left the ring).
+     */
+    public long getPoints(long customerId, int monthOrdinal) {
+        MappedByteBuffer chunk = readableChunk(customerId);
+        return chunk == null ? -1 : readPoints(chunk, recordOffset(customerId), monthOrdinal);
+    }
+
+    /**
+     * Hands every customer with transactions in the month to the consumer, in id order.
+     */
+    public void forEachCustomer(int monthOrdinal, PointsConsumer consumer) {
+        MappedByteBuffer[] mapped = chunks;
+        long last = maxCustomerId;
+        for (int c = 0; c < mapped.length && (long) c * CHUNK_RECORDS <= last; c++) {
+            if (mapped[c] == null) {
+                continue;
+            }
+            long firstId = (long) c * CHUNK_RECORDS;
+            int records = (int) Math.min(CHUNK_RECORDS, last - firstId + 1);
+            for (int i = 0; i < records; i++) {
+                long points = readPoints(mapped[c], i * RECORD_BYTES, monthOrdinal);
+                if (points >= 0) {
+                    consumer.accept(firstId + i, points);
+                }
+            }
+        }
+    }
+
+    /** Writes the mapped records and then the header to disk. */
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            if (chunk != null) {
+                chunk.force();
+            }
+        }
+        header.force();
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    private synchronized void open() throws IOException {
+        Files.createDirectories(path.getParent());
+        boolean existing = Files.exists(path) && Files.size(path) >= HEADER_BYTES;
+        header = map(0, HEADER_BYTES);
+        if (!existing || header.getInt(0) != MAGIC || header.getInt(4) != RECORD_BYTES) {
+            header.putLong(8, 0);
+            header.putLong(16, 0);
+            header.putLong(24, 0);
+            header.putInt(4, RECORD_BYTES);
+            header.putInt(0, MAGIC);
+            chunks = new MappedByteBuffer[0];
+            maxCustomerId = 0;
+            return;
+        }
+
+        maxCustomerId = header.getLong(16);
+        int chunkCount = (int) ((Files.size(path) - HEADER_BYTES + CHUNK_BYTES - 1) / CHUNK_BYTES);
+        MappedByteBuffer[] mapped = new MappedByteBuffer[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            mapped[c] = map(HEADER_BYTES + c * CHUNK_BYTES, CHUNK_BYTES);
+        }
+        chunks = mapped;
+    }
+
+    private boolean add(MappedByteBuffer chunk, int record, int monthOrdinal, long points, long transactionCount) {
+        int slot = Math.floorMod(monthOrdinal, RING_MONTHS);
+        int tag = record + TAGS + slot * 4;
+        int counter = record + COUNTERS + slot * 8;
+        int slotMonth = chunk.getInt(tag);
+        if (slotMonth > monthOrdinal) {
+            // the month has already left the ring
+            return false;
+        }
+        if (slotMonth != monthOrdinal) {
+            // untag first so no reader pairs the old month with the new counter
+            chunk.putInt(tag, 0);
+            chunk.putLong(counter, 0);
+            chunk.putInt(tag, monthOrdinal);
+        }
+        chunk.putLong(counter, chunk.getLong(counter) + (transactionCount << 32) + points);
+        return true;
+    }
+
+    /**
+     * The record's sequence, after rolling back an update that a crash interrupted: the slot
+     * gets its undo image back and the sequence drops to just below the pending one. No other
+     * event of the customer lies between the two, so the replay applies that event again.
+     */
+    private static long recordedSequence(MappedByteBuffer chunk, int record) {
+        long sequence = chunk.getLong(record);
+        if ((sequence & PENDING) == 0) {
+            return sequence;
+        }
+
+        int slot = chunk.getInt(record + UNDO_SLOT);
+        int tag = record + TAGS + slot * 4;
+        chunk.putInt(tag, 0);
+        chunk.putLong(record + COUNTERS + slot * 8, chunk.getLong(record + UNDO_COUNTER));
+        chunk.putInt(tag, chunk.getInt(record + UNDO_TAG));
+        sequence = (sequence & ~PENDING) - 1;
+        chunk.putLong(record, sequence);
+        return sequence;
+    }
+
+    private static long readPoints(MappedByteBuffer chunk, int record, int monthOrdinal) {
+        int slot = Math.floorMod(monthOrdinal, RING_MONTHS);
+        int tag = record + TAGS + slot * 4;
+        if (chunk.getInt(tag) != monthOrdinal) {
+            return -1;
+        }
+        long counter = chunk.getLong(record + COUNTERS + slot * 8);
+        if (chunk.getInt(tag) != monthOrdinal || counter >>> 32 == 0) {
+            return -1;
+        }
+        return (int) counter;
+    }
+
+    private MappedByteBuffer readableChunk(long customerId) {
+        MappedByteBuffer[] mapped = chunks;
+        long c = checkId(customerId) / CHUNK_RECORDS;
+        return c < mapped.length ? mapped[(int) c] : null;
+    }
+
+    private synchronized MappedByteBuffer writableChunk(long customerId) {
+        int c = (int) (checkId(customerId) / CHUNK_RECORDS);
+        MappedByteBuffer[] mapped = chunks;
+        if (c >= mapped.length || mapped[c] == null) {
+            mapped = Arrays.copyOf(mapped, Math.max(mapped.length, c + 1));
+            try {
+                mapped[c] = map(HEADER_BYTES + c * CHUNK_BYTES, CHUNK_BYTES);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map customer points from " + path, e);
+            }
+            chunks = mapped;
+        }
+        if (customerId > maxCustomerId) {
+            maxCustomerId = customerId;
+            header.putLong(16, customerId);
+        }
+        return mapped[c];
+    }
+
+    private static int recordOffset(long customerId) {
+        return (int) (customerId % CHUNK_RECORDS) * RECORD_BYTES;
+    }
+
+    private static long checkId(long customerId) {
+        if (customerId < 0) {
+            throw new IllegalArgumentException("Invalid customer id: " + customerId);
+        }
+        return customerId;
+    }
+
+    private MappedByteBuffer map(long position, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        }
+    }
+}
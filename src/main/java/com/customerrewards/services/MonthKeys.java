@@ -0,0 +1,74 @@
+package com.customerrewards.services;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Calendar months as int ordinals (year * 12 + month - 1), computed arithmetically, with
+ * their yyyy-MM labels built once and shared. Bucket by ordinal and turn only the distinct
+ * buckets into labels at the end.
+ */
+public final class MonthKeys {
+
+    private static final int FIRST_CACHED_YEAR = 1970;
+    private static final int LAST_CACHED_YEAR = 2199;
+    private static final String[] LABELS = new String[(LAST_CACHED_YEAR - FIRST_CACHED_YEAR + 1) * 12];
+
+    static {
+        for (int i = 0; i < LABELS.length; i++) {
+            LABELS[i] = YearMonth.of(FIRST_CACHED_YEAR + i / 12, i % 12 + 1).toString();
+        }
+    }
+
+    private MonthKeys() {}
+
+    public static int ordinal(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    public static int ordinal(YearMonth month) {
+        return ordinal(month.getYear(), month.getMonthValue());
+    }
+
+    public static int ordinal(LocalDateTime dateTime) {
+        return ordinal(dateTime.getYear(), dateTime.getMonthValue());
+    }
+
+    /**
+     * Ordinal of a yyyy-MM label, parsed without allocating.
+     */
+    public static int ordinal(String label) {
+        if (label.length() != 7 || label.charAt(4) != '-') {
+            throw new IllegalArgumentException("Not a yyyy-MM month: " + label);
+        }
+        int year = digit(label, 0) * 1000 + digit(label, 1) * 100 + digit(label, 2) * 10 + digit(label, 3);
+        int month = digit(label, 5) * 10 + digit(label, 6);
+        if (month < 1 || month > 12) {
+            throw new IllegalArgumentException("Not a yyyy-MM month: " + label);
+        }
+        return ordinal(year, month);
+    }
+
+    /**
+     * The yyyy-MM label of an ordinal; the same String instance for every call in the cached years.
+     */
+    public static String label(int ordinal) {
+        int index = ordinal - FIRST_CACHED_YEAR * 12;
+        if (index >= 0 && index < LABELS.length) {
+            return LABELS[index];
+        }
+        return YearMonth.of(Math.floorDiv(ordinal, 12), Math.floorMod(ordinal, 12) + 1).toString();
+    }
+
+    public static String label(LocalDateTime dateTime) {
+        return label(ordinal(dateTime));
+    }
+
+    private static int digit(String label, int index) {
+        char c = label.charAt(index);
+        if (c < '0' || c > '9') {
+            throw new IllegalArgumentException("Not a yyyy-MM month: " + label);
+        }
+        return c - '0';
+    }
+}
@@ -0,0 +1,121 @@
+package com.customerrewards.services;
+
+import com.customerrewards.models.Transaction;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * JPA entity listener that keeps the customer_monthly_points rollup in step with the
+ * transactions table. Deltas are applied through plain JDBC on the connection of the
+ * surrounding transaction, so the rollup commits or rolls back together with the write
+ * and the Hibernate session being flushed is never touched. Deltas caused by transaction
+ * writes are also published as TransactionPointsEvents and move the customer's rewards
+ * version to the next value of rewards_version_seq, as does a rename (see
+ * CustomerNameInvalidator).
+ */
+@Component
+public class MonthlyPointsLedger {
+
+    private static final String ADD_SQL =
+            "MERGE INTO customer_monthly_points p " +
+            "USING (VALUES (CAST(? AS BIGINT), CAST(? AS VARCHAR(7)), CAST(? AS BIGINT), CAST(? AS BIGINT))) " +
+            "AS d(customer_id, month_key, points, transaction_count) " +
+            "ON (p.customer_id = d.customer_id AND p.month_key = d.month_key) " +
+            "WHEN MATCHED THEN UPDATE SET points = p.points + d.points, " +
+            "transaction_count = p.transaction_count + d.transaction_count " +
+            "WHEN NOT MATCHED THEN INSERT (customer_id, month_key, points, transaction_count) " +
+            "VALUES (d.customer_id, d.month_key, d.points, d.transaction_count)";
+
+    private static final String BUMP_VERSION_SQL =
+            "UPDATE customers SET rewards_version = NEXT VALUE FOR rewards_version_seq WHERE id = ?";
+
+    final private JdbcTemplate jdbcTemplate;
+    final private ApplicationEventPublisher eventPublisher;
+
+    // Only trusted for reads once a reconcile has confirmed or repaired the rollup
+    private volatile boolean ready;
+
+    public MonthlyPointsLedger(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public boolean isReady() { return ready; }
+    void setReady(boolean ready) { this.ready = ready; }
+
+    @PostLoad
+    void onLoad(Transaction transaction) {
+        transaction.rememberPersistedState();
+    }
+
+    @PostPersist
+    void onInsert(Transaction transaction) {
+        apply(transaction.getCustomer().getId(), transaction.getTransactionDate(), transaction.getPoints(), 1);
+        transaction.rememberPersistedState();
+    }
+
+    @PostUpdate
+    void onUpdate(Transaction transaction) {
+        Long customerId = transaction.getCustomer().getId();
+        boolean unchanged = Objects.equals(customerId, transaction.getPersistedCustomerId())
+                && MonthKeys.ordinal(transaction.getTransactionDate()) == MonthKeys.ordinal(transaction.getPersistedTransactionDate())
+                && transaction.getPoints() == transaction.getPersistedPoints();
+
+        if (!unchanged) {
+            apply(transaction.getPersistedCustomerId(), transaction.getPersistedTransactionDate(), transaction.getPersistedPoints(), -1);
+            apply(customerId, transaction.getTransactionDate(), transaction.getPoints(), 1);
+        }
+        transaction.rememberPersistedState();
+    }
+
+    @PostRemove
+    void onDelete(Transaction transaction) {
+        apply(transaction.getPersistedCustomerId(), transaction.getPersistedTransactionDate(), transaction.getPersistedPoints(), -1);
+    }
+
+    /**
+     * Adds a points and transaction-count delta to one (customer, month) row, creating it if needed.
+     */
+    public void add(Long customerId, String monthKey, long points, long transactionCount) {
+        jdbcTemplate.update(ADD_SQL, customerId, monthKey, points, transactionCount);
+    }
+
+    /**
+     * Adds many deltas in one JDBC batch, each as {customerId, monthKey, points, transactionCount}.
+     */
+    public void addAll(List<Object[]> deltas) {
+        jdbcTemplate.batchUpdate(ADD_SQL, deltas);
+    }
+
+    /**
+     * Adds the delta caused by writing transactions, bumps the customer's rewards version and
+     * publishes it. Repairs of the rollup itself (reconcile, archiving) go through add() and
+     * change neither.
+     */
+    public void record(Long customerId, String monthKey, long points, long transactionCount) {
+        add(customerId, monthKey, points, transactionCount);
+        bumpRewardsVersion(customerId);
+        eventPublisher.publishEvent(new TransactionPointsEvent(customerId, MonthKeys.ordinal(monthKey), points, transactionCount));
+    }
+
+    /**
+     * Moves the customer's rewards version on, in the surrounding transaction.
+     */
+    public void bumpRewardsVersion(Long customerId) {
+        jdbcTemplate.update(BUMP_VERSION_SQL, customerId);
+    }
+
+    private void apply(Long customerId, LocalDateTime transactionDate, int points, int sign) {
+        String monthKey = MonthKeys.label(transactionDate);
+        record(customerId, monthKey, (long) sign * points, sign);
+    }
+}
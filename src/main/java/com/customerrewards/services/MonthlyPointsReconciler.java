@@ -0,0 +1,181 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.CustomerMonthlyPoints;
+import com.customerrewards.dto.LedgerReconcileReport;
+import com.customerrewards.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Recomputes the customer_monthly_points rollup from the raw transactions and repairs any drift.
+ * Both sides are streamed in (customer id, month) order and merge-joined, so memory stays
+ * constant however large the history is. Archived months are skipped: their raw rows are
+ * gone and the rollup is the record (see TransactionArchiver). The rewards projection, when
+ * running, is checked against the transactions table in the same pass.
+ * <p>
+ * The comparison reads both sides in one REPEATABLE READ transaction, so they come from the
+ * same snapshot and a write committed meanwhile is on both sides or on neither. A drift found
+ * there is a difference the ledger's own writes never change, so the corrections stay valid
+ * when they are applied afterwards, as relative deltas in JDBC batches.
+ */
+@Component
+public class MonthlyPointsReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(MonthlyPointsReconciler.class);
+
+    private static final String ARCHIVED_MONTHS_SQL = "SELECT month_key FROM archived_months";
+    private static final String ROLLUP_SQL = "SELECT customer_id, month_key, points, transaction_count " +
+            "FROM customer_monthly_points ORDER BY customer_id, month_key";
+    private static final int REPAIR_BATCH_SIZE = 1000;
+
+    private record RollupRow(Long customerId, String monthKey, long points, long transactionCount) {}
+
+    final private TransactionRepository transactionRepository;
+    final private JdbcTemplate jdbcTemplate;
+    final private MonthlyPointsLedger monthlyPointsLedger;
+    final private TransactionTemplate snapshotTemplate;
+    final private TransactionTemplate transactionTemplate;
+    final private RewardsSnapshotStore rewardsSnapshotStore;
+    final private ShardRouter shardRouter;
+    final private ObjectProvider<RewardsProjection> rewardsProjection;
+
+    public MonthlyPointsReconciler(TransactionRepository transactionRepository, JdbcTemplate jdbcTemplate,
+                                   MonthlyPointsLedger monthlyPointsLedger, PlatformTransactionManager transactionManager,
+                                   RewardsSnapshotStore rewardsSnapshotStore, ShardRouter shardRouter,
+                                   ObjectProvider<RewardsProjection> rewardsProjection) {
+        this.transactionRepository = transactionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthlyPointsLedger = monthlyPointsLedger;
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rewardsSnapshotStore = rewardsSnapshotStore;
+        this.shardRouter = shardRouter;
+        this.rewardsProjection = rewardsProjection;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    @Scheduled(cron = "${rewards.ledger.reconcile-cron:0 30 3 * * *}")
+    public void reconcileNightly() {
+        reconcile();
+    }
+
+    /**
+     * Compares every rollup row with the raw transactions, corrects the rollup and reports the drift.
+     * The ledger is marked ready for reads once the rollup is known to be consistent.
+     * Each shard holds its own customers' rollup and is reconciled on its own.
+     */
+    public LedgerReconcileReport reconcile() {
+        LedgerReconcileReport report = new LedgerReconcileReport(0, 0, 0);
+        List<LedgerReconcileReport> shardReports = shardRouter.forEachShard(shard -> {
+            List<Object[]> corrections = new ArrayList<>();
+            LedgerReconcileReport shardReport = snapshotTemplate.execute(status -> findDrift(corrections));
+            transactionTemplate.executeWithoutResult(status -> repair(corrections));
+            return List.of(shardReport);
+        });
+        for (LedgerReconcileReport shardReport : shardReports) {
+            report = new LedgerReconcileReport(report.getRowsChecked() + shardReport.getRowsChecked(),
+                    report.getDriftedRows() + shardReport.getDriftedRows(),
+                    report.getPointsDrift() + shardReport.getPointsDrift());
+        }
+        monthlyPointsLedger.setReady(true);
+
+        if (report.getDriftedRows() > 0) {
+            // snapshots may have been built from the drifted rows
+            rewardsSnapshotStore.clear();
+            log.warn("Monthly points rollup repaired: {} of {} rows drifted by {} points in total",
+                    report.getDriftedRows(), report.getRowsChecked(), report.getPointsDrift());
+        } else {
+            log.info("Monthly points rollup consistent across {} rows", report.getRowsChecked());
+        }
+        rewardsProjection.ifAvailable(RewardsProjection::reconcile);
+        return report;
+    }
+
+    /**
+     * Merge-joins the expected and the actual rollup and collects a correcting delta for every
+     * drifted row; only the drifted rows are held in memory.
+     */
+    private LedgerReconcileReport findDrift(List<Object[]> corrections) {
+        long rowsChecked = 0;
+        long driftedRows = 0;
+        long pointsDrift = 0;
+        Set<String> archivedMonths = new HashSet<>(jdbcTemplate.queryForList(ARCHIVED_MONTHS_SQL, String.class));
+
+        try (Stream<CustomerMonthlyPoints> expectedRows = transactionRepository.streamAllPointsByCustomerAndMonth();
+             Stream<RollupRow> actualRows = jdbcTemplate.queryForStream(ROLLUP_SQL, (rs, i) -> new RollupRow(
+                     rs.getLong("customer_id"), rs.getString("month_key"), rs.getLong("points"), rs.getLong("transaction_count")))) {
+
+            Iterator<CustomerMonthlyPoints> expectedIterator = expectedRows
+                    .filter(row -> !archivedMonths.contains(MonthKeys.label(MonthKeys.ordinal(row.getYear(), row.getMonth()))))
+                    .iterator();
+            Iterator<RollupRow> actualIterator = actualRows.filter(row -> !archivedMonths.contains(row.monthKey())).iterator();
+            RollupRow expected = next(expectedIterator);
+            RollupRow actual = actualIterator.hasNext() ? actualIterator.next() : null;
+
+            while (expected != null || actual != null) {
+                int order = expected == null ? 1 : actual == null ? -1 : compare(expected, actual);
+                Long customerId = order <= 0 ? expected.customerId() : actual.customerId();
+                String monthKey = order <= 0 ? expected.monthKey() : actual.monthKey();
+                long pointsDelta = (order <= 0 ? expected.points() : 0) - (order >= 0 ? actual.points() : 0);
+                long countDelta = (order <= 0 ? expected.transactionCount() : 0) - (order >= 0 ? actual.transactionCount() : 0);
+
+                rowsChecked++;
+                if (pointsDelta != 0 || countDelta != 0) {
+                    driftedRows++;
+                    pointsDrift += Math.abs(pointsDelta);
+                    corrections.add(new Object[]{customerId, monthKey, pointsDelta, countDelta});
+                }
+
+                if (order <= 0) {
+                    expected = next(expectedIterator);
+                }
+                if (order >= 0) {
+                    actual = actualIterator.hasNext() ? actualIterator.next() : null;
+                }
+            }
+        }
+
+        return new LedgerReconcileReport(rowsChecked, driftedRows, pointsDrift);
+    }
+
+    private void repair(List<Object[]> corrections) {
+        for (int from = 0; from < corrections.size(); from += REPAIR_BATCH_SIZE) {
+            monthlyPointsLedger.addAll(corrections.subList(from, Math.min(from + REPAIR_BATCH_SIZE, corrections.size())));
+        }
+    }
+
+    private static RollupRow next(Iterator<CustomerMonthlyPoints> iterator) {
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        CustomerMonthlyPoints row = iterator.next();
+        return new RollupRow(row.getCustomerId(), MonthKeys.label(MonthKeys.ordinal(row.getYear(), row.getMonth())),
+                row.getPoints(), row.getTransactionCount());
+    }
+
+    private static int compare(RollupRow a, RollupRow b) {
+        int byCustomer = a.customerId().compareTo(b.customerId());
+        return byCustomer != 0 ? byCustomer : a.monthKey().compareTo(b.monthKey());
+    }
+}
@@ -0,0 +1,44 @@
+package com.customerrewards.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * How many calendar months of raw transactions are kept, counting the current month.
+ * Older months are rolled into the customer_monthly_points summary and their raw rows are
+ * deleted by TransactionArchiver, so they can only be served as whole months from the
+ * snapshots. rewards.retention.months=0 keeps everything.
+ */
+@Component
+public class RetentionPolicy {
+
+    final private int months;
+
+    public RetentionPolicy(@Value("${rewards.retention.months:24}") int months) {
+        this.months = Math.max(0, months);
+    }
+
+    /** The oldest month whose raw transactions are kept, or null if nothing is archived. */
+    public YearMonth getFirstRetainedMonth() {
+        return months == 0 ? null : YearMonth.now().minusMonths(months - 1);
+    }
+
+    /** Whether the month is older than the retention window, so its raw rows may be archived. */
+    public boolean isBeyondRetention(YearMonth month) {
+        YearMonth firstRetained = getFirstRetainedMonth();
+        return firstRetained != null && month.isBefore(firstRetained);
+    }
+
+    /**
+     * @throws IllegalArgumentException if raw transactions from the given date on may have been archived
+     */
+    public void requireRetained(LocalDateTime from) {
+        if (from != null && isBeyondRetention(YearMonth.from(from))) {
+            throw new IllegalArgumentException("Transactions before " + getFirstRetainedMonth()
+                    + " are archived and only available as whole months in the rewards summary");
+        }
+    }
+}
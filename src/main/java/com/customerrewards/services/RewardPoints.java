@@ -0,0 +1,46 @@
+package com.customerrewards.services;
+
+import java.math.BigDecimal;
+
+/**
+ * The default reward tiers, hard-coded: 1 point per dollar between $50 and $100, 2 above.
+ * {@link #of(BigDecimal)} is the reference implementation; {@link #ofCents(long)} is the
+ * allocation-free integer path. Transactions are rated by RewardRules, which compiles the
+ * configured tiers and promotions; these stay as the baseline it is checked and benchmarked
+ * against.
+ */
+public final class RewardPoints {
+
+    private RewardPoints() {}
+
+    public static int of(BigDecimal amount) {
+        int points = 0;
+        double amountValue = amount.doubleValue();
+
+        if (amountValue > 100) {
+            // 2 points for amount over $100
+            points += (int) ((amountValue - 100) * 2);
+            // 1 point for the $50-$100 range
+            points += 50;
+        } else if (amountValue > 50) {
+            // 1 point for amount between $50 and $100
+            points += (int) (amountValue - 50);
+        }
+
+        return points;
+    }
+
+    /**
+     * Same tiers as {@link #of(BigDecimal)} for an amount in integer cents, using only long
+     * arithmetic: floor(2 * (amount - 100)) + 50 above $100, floor(amount - 50) above $50.
+     */
+    public static int ofCents(long amountInCents) {
+        if (amountInCents > 10_000) {
+            // every 50 cents over $100 is worth one point
+            return (int) ((amountInCents - 10_000) / 50) + 50;
+        } else if (amountInCents > 5_000) {
+            return (int) ((amountInCents - 5_000) / 100);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,177 @@
+package com.customerrewards.services;
+
+import com.customerrewards.config.RewardRulesProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The reward tiers and promotions of RewardRulesProperties, compiled once at startup into
+ * flat tables so rating a transaction costs a few array reads and no allocation.
+ *
+ * A tier table holds each threshold in cents, the points per dollar above it and the points
+ * (in hundredths) earned below it, so points are one multiply-add on the highest threshold
+ * the amount exceeds, floored to whole points. Promotions are grouped by description
+ * (ignoring case) and scanned in configuration order for the first whose dates match; without
+ * promotions the base table is used directly.
+ *
+ * Transactions are rated when they are written (see TransactionPointsRater) and the points
+ * are stored with them, so every read path sums the same points and a rule change applies
+ * to transactions written from then on.
+ */
+@Component
+@EnableConfigurationProperties(RewardRulesProperties.class)
+public class RewardRules {
+
+    /** A compiled tier list with a points multiplier. */
+    static final class TierTable {
+        final long[] thresholdsInCents;
+        final long[] pointsPerDollar;
+        // points * 100 earned below each threshold
+        final long[] basePointCents;
+        final int multiplier;
+
+        TierTable(List<RewardRulesProperties.Tier> tiers, int multiplier) {
+            int size = tiers.size();
+            thresholdsInCents = new long[size];
+            pointsPerDollar = new long[size];
+            basePointCents = new long[size];
+            this.multiplier = multiplier;
+            if (multiplier < 0) {
+                throw new IllegalArgumentException("Invalid reward multiplier: " + multiplier);
+            }
+
+            for (int i = 0; i < size; i++) {
+                RewardRulesProperties.Tier tier = tiers.get(i);
+                if (tier.getAbove() == null || tier.getPointsPerDollar() < 0) {
+                    throw new IllegalArgumentException("Invalid reward tier " + i);
+                }
+                thresholdsInCents[i] = tier.getAbove().movePointRight(2).longValueExact();
+                pointsPerDollar[i] = tier.getPointsPerDollar();
+                if (i > 0) {
+                    if (thresholdsInCents[i] <= thresholdsInCents[i - 1]) {
+                        throw new IllegalArgumentException("Reward tier thresholds must ascend: " + tier.getAbove());
+                    }
+                    basePointCents[i] = basePointCents[i - 1] + pointsPerDollar[i - 1] * (thresholdsInCents[i] - thresholdsInCents[i - 1]);
+                }
+            }
+        }
+
+        int points(long amountInCents) {
+            for (int i = thresholdsInCents.length - 1; i >= 0; i--) {
+                if (amountInCents > thresholdsInCents[i]) {
+                    return (int) ((basePointCents[i] + pointsPerDollar[i] * (amountInCents - thresholdsInCents[i])) / 100) * multiplier;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /** A compiled promotion: a tier table valid for [fromEpochDay, toEpochDay). */
+    static final class Promotion {
+        final long fromEpochDay;
+        final long toEpochDay;
+        final TierTable table;
+
+        Promotion(RewardRulesProperties.Promotion promotion, List<RewardRulesProperties.Tier> baseTiers) {
+            this.fromEpochDay = promotion.getFrom() == null ? Long.MIN_VALUE : promotion.getFrom().toEpochDay();
+            this.toEpochDay = promotion.getTo() == null ? Long.MAX_VALUE : promotion.getTo().toEpochDay();
+            if (fromEpochDay >= toEpochDay) {
+                throw new IllegalArgumentException("Promotion must end after it starts: " + promotion.getDescription());
+            }
+            this.table = new TierTable(promotion.getTiers().isEmpty() ? baseTiers : promotion.getTiers(), promotion.getMultiplier());
+        }
+    }
+
+    private static final Promotion[] NONE = new Promotion[0];
+    // distinct description spellings remembered with their promotions; beyond this many,
+    // new spellings are looked up every time
+    private static final int MAX_RESOLVED = 4_096;
+
+    final private TierTable baseTable;
+    final private Map<String, Promotion[]> promotionsByDescription;
+    final private ConcurrentMap<String, Promotion[]> resolved = new ConcurrentHashMap<>();
+    final private Promotion[] anyDescription;
+    final private boolean hasPromotions;
+
+    public RewardRules(RewardRulesProperties properties) {
+        this.baseTable = new TierTable(properties.getTiers(), 1);
+
+        Map<String, List<Promotion>> byDescription = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        List<Promotion> unkeyed = new ArrayList<>();
+        for (RewardRulesProperties.Promotion promotion : properties.getPromotions()) {
+            Promotion compiled = new Promotion(promotion, properties.getTiers());
+            if (promotion.getDescription() == null) {
+                unkeyed.add(compiled);
+            } else {
+                byDescription.computeIfAbsent(promotion.getDescription(), key -> new ArrayList<>()).add(compiled);
+            }
+        }
+
+        Map<String, Promotion[]> promotions = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        byDescription.forEach((description, list) -> promotions.put(description, list.toArray(NONE)));
+        this.promotionsByDescription = promotions;
+        this.anyDescription = unkeyed.toArray(NONE);
+        this.hasPromotions = !properties.getPromotions().isEmpty();
+    }
+
+    /** Rules with the default tiers and no promotions. */
+    public static RewardRules defaults() {
+        return new RewardRules(new RewardRulesProperties());
+    }
+
+    /**
+     * Points of an amount in cents under the base tiers, ignoring promotions.
+     */
+    public int points(long amountInCents) {
+        return baseTable.points(amountInCents);
+    }
+
+    /**
+     * Points of a transaction: the first promotion matching its description and date, or the
+     * base tiers.
+     */
+    public int points(long amountInCents, String description, LocalDateTime transactionDate) {
+        if (!hasPromotions || transactionDate == null) {
+            return baseTable.points(amountInCents);
+        }
+
+        long epochDay = transactionDate.toLocalDate().toEpochDay();
+        TierTable table = description == null ? null : match(promotionsFor(description), epochDay);
+        if (table == null) {
+            table = match(anyDescription, epochDay);
+        }
+        return (table == null ? baseTable : table).points(amountInCents);
+    }
+
+    /**
+     * The promotions of a description. The case-insensitive lookup runs once per spelling;
+     * after that it is a hash lookup on the string's cached hash code.
+     */
+    private Promotion[] promotionsFor(String description) {
+        Promotion[] promotions = resolved.get(description);
+        if (promotions == null) {
+            promotions = promotionsByDescription.getOrDefault(description, NONE);
+            if (resolved.size() < MAX_RESOLVED) {
+                resolved.put(description, promotions);
+            }
+        }
+        return promotions;
+    }
+
+    private static TierTable match(Promotion[] promotions, long epochDay) {
+        for (Promotion promotion : promotions) {
+            if (epochDay >= promotion.fromEpochDay && epochDay < promotion.toEpochDay) {
+                return promotion.table;
+            }
+        }
+        return null;
+    }
+}
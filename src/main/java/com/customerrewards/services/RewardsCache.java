@@ -0,0 +1,109 @@
+package com.customerrewards.services;
+
+import com.customerrewards.config.ReplicaRoutingDataSource;
+import com.customerrewards.dto.CacheStatsResponse;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Invalidation and statistics for the per-customer rewards cache. Every Transaction write
+ * evicts exactly the affected customer (see TransactionCacheInvalidator); the entry is evicted
+ * again after commit so a read racing the write cannot re-cache the old result.
+ *
+ * With read replicas, results that go into the cache are read from the primary (see load()):
+ * a replica may not have applied the write that evicted the entry yet, and nothing would
+ * evict the stale result it returned until the customer's next write.
+ */
+@Component
+public class RewardsCache {
+
+    public static final String CUSTOMER_REWARDS = "customerRewards";
+
+    final private ObjectProvider<CacheManager> cacheManager;
+    final private AtomicLong invalidationCount = new AtomicLong();
+    final private TransactionTemplate primaryTemplate;
+    final private boolean replicated;
+
+    public RewardsCache(ObjectProvider<CacheManager> cacheManager, PlatformTransactionManager transactionManager,
+                        ObjectProvider<ReplicaRoutingDataSource> replicaDataSource) {
+        this.cacheManager = cacheManager;
+        // a new read-write transaction takes its connection from the primary (see ReplicaDataSourceConfig)
+        this.primaryTemplate = new TransactionTemplate(transactionManager);
+        this.primaryTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.replicated = replicaDataSource.getIfAvailable() != null;
+    }
+
+    /**
+     * Runs a read whose result is about to be cached: on the primary, in a transaction of its own,
+     * when a read-only transaction would otherwise take it to a replica.
+     */
+    public <T> T load(Supplier<T> read) {
+        if (replicated && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primaryTemplate.execute(status -> read.get());
+        }
+        return read.get();
+    }
+
+    public void evictCustomer(Long customerId) {
+        Cache cache = customerRewardsCache();
+        if (cache == null || customerId == null) {
+            return;
+        }
+
+        cache.evict(customerId);
+        invalidationCount.incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.evict(customerId);
+                }
+            });
+        }
+    }
+
+    /**
+     * The 3-month window drops a month at each month boundary, so every cached result is stale.
+     */
+    @Scheduled(cron = "0 0 0 1 * *")
+    public void evictAllOnMonthBoundary() {
+        evictAll();
+    }
+
+    public void evictAll() {
+        Cache cache = customerRewardsCache();
+        if (cache != null) {
+            cache.clear();
+            invalidationCount.incrementAndGet();
+        }
+    }
+
+    public CacheStatsResponse stats() {
+        if (!(customerRewardsCache() instanceof CaffeineCache caffeineCache)) {
+            return new CacheStatsResponse(0, 0, 0, 0, 0, invalidationCount.get());
+        }
+
+        CacheStats stats = caffeineCache.getNativeCache().stats();
+        return new CacheStatsResponse(caffeineCache.getNativeCache().estimatedSize(), stats.hitCount(),
+                stats.missCount(), stats.evictionCount(), stats.hitRate(), invalidationCount.get());
+    }
+
+    private Cache customerRewardsCache() {
+        CacheManager manager = cacheManager.getIfAvailable();
+        return manager == null ? null : manager.getCache(CUSTOMER_REWARDS);
+    }
+}
@@ -0,0 +1,545 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.CustomerName;
+import com.customerrewards.dto.CustomerRewardsResponse;
+import com.customerrewards.dto.ExportJobStatus;
+import com.customerrewards.repository.CustomerRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the rewards summary of every customer to a gzip CSV file on local disk, in the
+ * background. A job walks the customers in id order, one chunk at a time, computes each chunk
+ * with RewardsService and writes it as its own gzip part file. After every part a checkpoint
+ * (the last exported customer id and the counters) is written next to it, so a job interrupted
+ * by a crash or shutdown resumes after its last complete chunk on the next startup, and a failed
+ * job can be resumed on request. When the last chunk is written the parts are concatenated
+ * into a single gzip file (a gzip stream may consist of several members).
+ *
+ * Part and checkpoint files are written to a temporary name, forced to disk and then moved
+ * into place, so a file that exists under its final name is always complete.
+ *
+ * Completed and failed jobs are kept for rewards.export.retention after they finished; then
+ * the job and its directory are removed, by an hourly sweep and when found on startup.
+ */
+@Service
+public class RewardsExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(RewardsExportService.class);
+
+    static final String CHECKPOINT_FILE = "checkpoint.properties";
+    static final String EXPORT_FILE = "rewards.csv.gz";
+    private static final String PART_PREFIX = "part-";
+    private static final String PART_SUFFIX = ".csv.gz";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /** A job's state; guarded by its own monitor and mirrored in its checkpoint file. */
+    private static final class Job {
+        final String id;
+        final RewardsWindow window;
+        final Path directory;
+        ExportJobStatus.State state = ExportJobStatus.State.QUEUED;
+        long lastCustomerId;
+        long customersExported;
+        long totalCustomers;
+        int chunksWritten;
+        long bytesWritten;
+        Instant startedAt;
+        Instant finishedAt;
+        String error;
+        // throughput of the current run, which may have started from a checkpoint
+        long runStartNanos;
+        long runEndNanos;
+        long runStartCustomers;
+
+        Job(String id, RewardsWindow window, Path directory) {
+            this.id = id;
+            this.window = window;
+            this.directory = directory;
+        }
+    }
+
+    final private CustomerRepository customerRepository;
+    final private RewardsService rewardsService;
+    final private ShardRouter shardRouter;
+    final private Path exportDirectory;
+    final private int chunkSize;
+    final private ExecutorService workers;
+    final private Duration retention;
+    final private Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private volatile boolean shuttingDown;
+
+    public RewardsExportService(CustomerRepository customerRepository, RewardsService rewardsService, ShardRouter shardRouter,
+                                @Value("${rewards.export.directory:${java.io.tmpdir}/rewards-exports}") String exportDirectory,
+                                @Value("${rewards.export.chunk-size:1000}") int chunkSize,
+                                @Value("${rewards.export.max-concurrent-jobs:1}") int maxConcurrentJobs,
+                                @Value("${rewards.export.retention:7d}") Duration retention) {
+        this.customerRepository = customerRepository;
+        this.rewardsService = rewardsService;
+        this.shardRouter = shardRouter;
+        this.exportDirectory = Paths.get(exportDirectory);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.workers = Executors.newFixedThreadPool(Math.max(1, maxConcurrentJobs),
+                Thread.ofPlatform().name("rewards-export-", 0).daemon(true).factory());
+        this.retention = retention;
+    }
+
+    /**
+     * Picks up the jobs found in the export directory and resumes those that were queued or
+     * running when the application stopped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        if (!Files.isDirectory(exportDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> directories = Files.newDirectoryStream(exportDirectory, Files::isDirectory)) {
+            for (Path directory : directories) {
+                Job job = loadCheckpoint(directory);
+                if (job == null) {
+                    continue;
+                }
+                if (isExpired(job, Instant.now())) {
+                    deleteJobDirectory(job);
+                    continue;
+                }
+                jobs.putIfAbsent(job.id, job);
+                if (job.state == ExportJobStatus.State.COMPLETED) {
+                    // parts left behind by a stop between the final checkpoint and their removal
+                    deleteParts(job, 0);
+                } else if (job.state == ExportJobStatus.State.QUEUED || job.state == ExportJobStatus.State.RUNNING) {
+                    log.info("Resuming rewards export {} after customer {}", job.id, job.lastCustomerId);
+                    submit(job);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not scan rewards export directory {}", exportDirectory, e);
+        }
+    }
+
+    @Scheduled(cron = "${rewards.export.cleanup-cron:0 15 * * * *}")
+    public void expireFinishedJobs() {
+        expireFinishedJobs(Instant.now());
+    }
+
+    /**
+     * Removes the completed and failed jobs that finished more than the retention before now,
+     * with their directories.
+     */
+    void expireFinishedJobs(Instant now) {
+        for (Job job : jobs.values()) {
+            synchronized (job) {
+                if (isExpired(job, now)) {
+                    // under the monitor, so a resume waiting for it finds the job gone
+                    jobs.remove(job.id);
+                    deleteJobDirectory(job);
+                }
+            }
+        }
+    }
+
+    private boolean isExpired(Job job, Instant now) {
+        boolean finished = job.state == ExportJobStatus.State.COMPLETED || job.state == ExportJobStatus.State.FAILED;
+        return finished && job.finishedAt != null && job.finishedAt.plus(retention).isBefore(now);
+    }
+
+    private void deleteJobDirectory(Job job) {
+        try (Stream<Path> files = Files.walk(job.directory)) {
+            // children before their directory
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+            log.info("Removed rewards export {} finished at {}", job.id, job.finishedAt);
+        } catch (IOException e) {
+            log.warn("Could not remove rewards export directory {}", job.directory, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // running jobs keep their RUNNING checkpoint and resume on the next startup
+        shuttingDown = true;
+        workers.shutdownNow();
+    }
+
+    /**
+     * Queues an export of every customer's rewards over the window and returns its initial status.
+     *
+     * @throws IllegalArgumentException if part of the window has been archived
+     */
+    public ExportJobStatus startExport(RewardsWindow window) throws IOException {
+        rewardsService.requireRetained(window);
+        String id = UUID.randomUUID().toString();
+        Job job = new Job(id, window, exportDirectory.resolve(id));
+        job.totalCustomers = shardRouter.forEachShard(shard -> List.of(customerRepository.count()))
+                .stream().mapToLong(Long::longValue).sum();
+
+        Files.createDirectories(job.directory);
+        writeCheckpoint(job);
+        jobs.put(id, job);
+        submit(job);
+        return getStatus(id);
+    }
+
+    /**
+     * Get the progress of an export job.
+     *
+     * @throws RuntimeException if there is no such job
+     */
+    public ExportJobStatus getStatus(String id) {
+        Job job = getJob(id);
+        synchronized (job) {
+            ExportJobStatus status = new ExportJobStatus();
+            status.setId(job.id);
+            status.setState(job.state);
+            status.setFromMonth(job.window.getFromMonth().toString());
+            status.setToMonth(job.window.getToMonth().toString());
+            status.setAsOf(job.window.getAsOf().toString());
+            status.setCustomersExported(job.customersExported);
+            status.setTotalCustomers(job.totalCustomers);
+            status.setChunksWritten(job.chunksWritten);
+            status.setBytesWritten(job.bytesWritten);
+            status.setStartedAt(job.startedAt);
+            status.setFinishedAt(job.finishedAt);
+            status.setError(job.error);
+            if (job.runStartNanos != 0) {
+                long endNanos = job.runEndNanos != 0 ? job.runEndNanos : System.nanoTime();
+                double seconds = Math.max(endNanos - job.runStartNanos, 1) / 1e9;
+                status.setCustomersPerSecond((job.customersExported - job.runStartCustomers) / seconds);
+            }
+            return status;
+        }
+    }
+
+    /**
+     * Resumes a failed export job after its last checkpointed chunk.
+     *
+     * @throws RuntimeException if there is no such job
+     * @throws IllegalStateException if the job has not failed
+     */
+    public ExportJobStatus resume(String id) throws IOException {
+        Job job = getJob(id);
+        synchronized (job) {
+            if (jobs.get(id) != job) {
+                throw new RuntimeException("Export job not found with id: " + id);
+            }
+            if (job.state != ExportJobStatus.State.FAILED) {
+                throw new IllegalStateException("Only a failed export can be resumed; job " + id + " is " + job.state);
+            }
+            job.state = ExportJobStatus.State.QUEUED;
+            job.error = null;
+            job.finishedAt = null;
+            writeCheckpoint(job);
+        }
+        submit(job);
+        return getStatus(id);
+    }
+
+    /**
+     * The exported file of a completed job.
+     *
+     * @throws RuntimeException if there is no such job
+     * @throws IllegalStateException if the job has not completed
+     */
+    public Path getExportFile(String id) {
+        Job job = getJob(id);
+        synchronized (job) {
+            if (job.state != ExportJobStatus.State.COMPLETED) {
+                throw new IllegalStateException("Export job " + id + " is " + job.state);
+            }
+            return job.directory.resolve(EXPORT_FILE);
+        }
+    }
+
+    private Job getJob(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new RuntimeException("Export job not found with id: " + id);
+        }
+        return job;
+    }
+
+    private void submit(Job job) {
+        workers.execute(() -> run(job));
+    }
+
+    private void run(Job job) {
+        try {
+            synchronized (job) {
+                job.state = ExportJobStatus.State.RUNNING;
+                job.startedAt = job.startedAt == null ? Instant.now() : job.startedAt;
+                job.runStartNanos = System.nanoTime();
+                job.runEndNanos = 0;
+                job.runStartCustomers = job.customersExported;
+                writeCheckpoint(job);
+            }
+            discardUncheckpointedFiles(job);
+
+            String header = csvHeader(job.window);
+            while (true) {
+                List<CustomerName> customers = nextChunk(job.lastCustomerId);
+                if (customers.isEmpty()) {
+                    break;
+                }
+
+                List<CustomerRewardsResponse> rewards = rewardsService.getCustomerRewards(customers, job.window);
+                Path part = job.directory.resolve(partName(job.chunksWritten));
+                long bytes = writePart(part, job.chunksWritten == 0 ? header : null, job.window, rewards);
+
+                synchronized (job) {
+                    job.lastCustomerId = customers.get(customers.size() - 1).getId();
+                    job.customersExported += customers.size();
+                    job.totalCustomers = Math.max(job.totalCustomers, job.customersExported);
+                    job.chunksWritten++;
+                    job.bytesWritten += bytes;
+                    writeCheckpoint(job);
+                }
+                if (customers.size() < chunkSize) {
+                    break;
+                }
+            }
+
+            if (job.chunksWritten == 0) {
+                // no customers at all: the export is just the header
+                writePart(job.directory.resolve(partName(0)), header, job.window, List.of());
+                synchronized (job) {
+                    job.chunksWritten = 1;
+                }
+            }
+            concatenateParts(job);
+
+            synchronized (job) {
+                job.state = ExportJobStatus.State.COMPLETED;
+                job.finishedAt = Instant.now();
+                job.runEndNanos = System.nanoTime();
+                writeCheckpoint(job);
+                // under the monitor, so a job is only seen as completed once its parts are gone
+                deleteParts(job, 0);
+            }
+            log.info("Rewards export {} completed: {} customers, {} bytes", job.id, job.customersExported, job.bytesWritten);
+        } catch (Exception e) {
+            if (shuttingDown) {
+                log.info("Rewards export {} interrupted by shutdown after customer {}", job.id, job.lastCustomerId);
+                return;
+            }
+            log.error("Rewards export {} failed after customer {}", job.id, job.lastCustomerId, e);
+            synchronized (job) {
+                job.state = ExportJobStatus.State.FAILED;
+                job.error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+                job.finishedAt = Instant.now();
+                job.runEndNanos = System.nanoTime();
+                try {
+                    writeCheckpoint(job);
+                } catch (IOException checkpointFailure) {
+                    log.error("Could not checkpoint failed rewards export {}", job.id, checkpointFailure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes what a previous run wrote after its last checkpoint: temporary files and parts
+     * beyond the checkpointed count.
+     */
+    private void discardUncheckpointedFiles(Job job) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(job.directory, "*" + TMP_SUFFIX)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        deleteParts(job, job.chunksWritten);
+    }
+
+    private void deleteParts(Job job, int fromPart) throws IOException {
+        try (DirectoryStream<Path> parts = Files.newDirectoryStream(job.directory, PART_PREFIX + "*" + PART_SUFFIX)) {
+            for (Path part : parts) {
+                String name = part.getFileName().toString();
+                int number = Integer.parseInt(name.substring(PART_PREFIX.length(), name.length() - PART_SUFFIX.length()));
+                if (number >= fromPart) {
+                    Files.delete(part);
+                }
+            }
+        }
+    }
+
+    private long writePart(Path part, String header, RewardsWindow window, List<CustomerRewardsResponse> rewards)
+            throws IOException {
+        Path tmp = part.resolveSibling(part.getFileName() + TMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+            if (header != null) {
+                writer.write(header);
+            }
+            int firstMonth = MonthKeys.ordinal(window.getFromMonth());
+            StringBuilder line = new StringBuilder(128);
+            for (CustomerRewardsResponse response : rewards) {
+                line.setLength(0);
+                line.append(response.getCustomerId()).append(',').append(csvField(response.getCustomerName()));
+                for (int month = 0; month < window.getMonthCount(); month++) {
+                    Integer points = response.getMonthlyPoints().get(MonthKeys.label(firstMonth + month));
+                    line.append(',').append(points == null ? 0 : points);
+                }
+                line.append(',').append(response.getTotalPoints()).append('\n');
+                writer.append(line);
+            }
+            writer.flush();
+            gzip.finish();
+            channel.force(true);
+        }
+        Files.move(tmp, part, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return Files.size(part);
+    }
+
+    /**
+     * Appends the gzip parts, in order, to the export file with channel-to-channel transfers.
+     */
+    private void concatenateParts(Job job) throws IOException {
+        Path target = job.directory.resolve(EXPORT_FILE);
+        Path tmp = target.resolveSibling(EXPORT_FILE + TMP_SUFFIX);
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int number = 0; number < job.chunksWritten; number++) {
+                try (FileChannel in = FileChannel.open(job.directory.resolve(partName(number)), StandardOpenOption.READ)) {
+                    long size = in.size();
+                    for (long position = 0; position < size; ) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+            out.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void writeCheckpoint(Job job) throws IOException {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("id", job.id);
+        checkpoint.setProperty("from", job.window.getFromMonth().toString());
+        checkpoint.setProperty("to", job.window.getToMonth().toString());
+        checkpoint.setProperty("asOf", job.window.getAsOf().toString());
+        checkpoint.setProperty("state", job.state.name());
+        checkpoint.setProperty("lastCustomerId", Long.toString(job.lastCustomerId));
+        checkpoint.setProperty("customersExported", Long.toString(job.customersExported));
+        checkpoint.setProperty("totalCustomers", Long.toString(job.totalCustomers));
+        checkpoint.setProperty("chunksWritten", Integer.toString(job.chunksWritten));
+        checkpoint.setProperty("bytesWritten", Long.toString(job.bytesWritten));
+        if (job.startedAt != null) checkpoint.setProperty("startedAt", job.startedAt.toString());
+        if (job.finishedAt != null) checkpoint.setProperty("finishedAt", job.finishedAt.toString());
+        if (job.error != null) checkpoint.setProperty("error", job.error);
+
+        Path target = job.directory.resolve(CHECKPOINT_FILE);
+        Path tmp = target.resolveSibling(CHECKPOINT_FILE + TMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            checkpoint.store(out, "rewards export checkpoint");
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Job loadCheckpoint(Path directory) {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            Properties checkpoint = new Properties();
+            checkpoint.load(in);
+            RewardsWindow window = RewardsWindow.of(YearMonth.parse(checkpoint.getProperty("from")),
+                    YearMonth.parse(checkpoint.getProperty("to")), LocalDate.parse(checkpoint.getProperty("asOf")));
+
+            Job job = new Job(checkpoint.getProperty("id"), window, directory);
+            job.state = ExportJobStatus.State.valueOf(checkpoint.getProperty("state"));
+            job.lastCustomerId = Long.parseLong(checkpoint.getProperty("lastCustomerId"));
+            job.customersExported = Long.parseLong(checkpoint.getProperty("customersExported"));
+            job.totalCustomers = Long.parseLong(checkpoint.getProperty("totalCustomers"));
+            job.chunksWritten = Integer.parseInt(checkpoint.getProperty("chunksWritten"));
+            job.bytesWritten = Long.parseLong(checkpoint.getProperty("bytesWritten"));
+            String startedAt = checkpoint.getProperty("startedAt");
+            job.startedAt = startedAt == null ? null : Instant.parse(startedAt);
+            String finishedAt = checkpoint.getProperty("finishedAt");
+            job.finishedAt = finishedAt == null ? null : Instant.parse(finishedAt);
+            job.error = checkpoint.getProperty("error");
+            return job;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Skipping unreadable rewards export checkpoint {}", file, e);
+            return null;
+        }
+    }
+
+    private static String partName(int number) {
+        return String.format("%s%05d%s", PART_PREFIX, number, PART_SUFFIX);
+    }
+
+    /**
+     * The next customers in id order; when sharded, each shard's next chunk merged by id.
+     */
+    private List<CustomerName> nextChunk(long afterId) {
+        List<CustomerName> customers = shardRouter.forEachShard(shard -> customerRepository.findChunkAfter(afterId, Limit.of(chunkSize)));
+        if (!shardRouter.isSharded()) {
+            return customers;
+        }
+        return customers.stream().sorted(Comparator.comparing(CustomerName::getId)).limit(chunkSize).toList();
+    }
+
+    private static String csvHeader(RewardsWindow window) {
+        StringBuilder header = new StringBuilder("customerId,customerName");
+        int firstMonth = MonthKeys.ordinal(window.getFromMonth());
+        for (int month = 0; month < window.getMonthCount(); month++) {
+            header.append(',').append(MonthKeys.label(firstMonth + month));
+        }
+        return header.append(",totalPoints\n").toString();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
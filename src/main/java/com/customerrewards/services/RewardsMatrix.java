@@ -0,0 +1,61 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.CustomerRewardsResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reward points as a dense customer x month matrix of ints, customer-major. Customers are
+ * indexed in ascending id order; month m is the month with ordinal firstMonthOrdinal + m.
+ * Nothing is boxed until a customer's row is turned into a response.
+ */
+public final class RewardsMatrix {
+
+    final private long[] customerIds;
+    final private int firstMonthOrdinal;
+    final private int monthCount;
+    final private int[] points;
+    final private int[] transactionCounts;
+    final private int[] totalPoints;
+
+    RewardsMatrix(long[] customerIds, int firstMonthOrdinal, int monthCount) {
+        this.customerIds = customerIds;
+        this.firstMonthOrdinal = firstMonthOrdinal;
+        this.monthCount = monthCount;
+        this.points = new int[customerIds.length * monthCount];
+        this.transactionCounts = new int[customerIds.length * monthCount];
+        this.totalPoints = new int[customerIds.length];
+    }
+
+    public int customerCount() { return customerIds.length; }
+    public long customerId(int customer) { return customerIds[customer]; }
+    public int totalPoints(int customer) { return totalPoints[customer]; }
+    public int firstMonthOrdinal() { return firstMonthOrdinal; }
+    public int monthCount() { return monthCount; }
+
+    public int points(int customer, int month) { return points[customer * monthCount + month]; }
+    public int transactionCount(int customer, int month) { return transactionCounts[customer * monthCount + month]; }
+
+    /**
+     * Boxes one customer's row into a response; months without transactions are left out,
+     * as in the database aggregation.
+     */
+    public CustomerRewardsResponse toResponse(int customer, String customerName) {
+        Map<String, Integer> monthlyPoints = new HashMap<>();
+        for (int month = 0; month < monthCount; month++) {
+            if (transactionCount(customer, month) > 0) {
+                monthlyPoints.put(MonthKeys.label(firstMonthOrdinal + month), points(customer, month));
+            }
+        }
+        return new CustomerRewardsResponse(customerIds[customer], customerName, monthlyPoints, totalPoints[customer]);
+    }
+
+    // Only called for disjoint customer ranges, so concurrent callers never share a cell
+    void add(int customer, int month, int rewardPoints) {
+        int cell = customer * monthCount + month;
+        points[cell] += rewardPoints;
+        transactionCounts[cell]++;
+        totalPoints[customer] += rewardPoints;
+    }
+}
@@ -0,0 +1,71 @@
+package com.customerrewards.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Micrometer meters for the stages of a rewards request, exposed on /actuator/prometheus:
+ *
+ * rewards.stage (timer with histogram; tags operation, stage) - time spent per stage:
+ *   snapshot  - reading closed months from their snapshots
+ *   fetch     - loading rows from the database
+ *   grouping  - folding rows into one response per customer
+ *   points    - calculating points from raw transaction amounts
+ *   assembly  - labelling months and sorting/building the response
+ * rewards.transactions.scanned (counter; tag operation) - raw transactions read or aggregated
+ *   per request; closed months served from snapshots scan none.
+ *
+ * Meters are created once per (operation, stage) and cached, so recording allocates nothing
+ * beyond the timer sample.
+ */
+@Component
+public class RewardsMetrics {
+
+    public static final String ALL_CUSTOMERS = "all";
+    public static final String ONE_CUSTOMER = "customer";
+    public static final String PAGE = "page";
+
+    public static final String SNAPSHOT = "snapshot";
+    public static final String FETCH = "fetch";
+    public static final String GROUPING = "grouping";
+    public static final String POINTS = "points";
+    public static final String ASSEMBLY = "assembly";
+
+    final private MeterRegistry meterRegistry;
+    final private Map<String, Timer> timers = new ConcurrentHashMap<>();
+    final private Map<String, Counter> scannedCounters = new ConcurrentHashMap<>();
+
+    public RewardsMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Records the time since the sample was started against the stage and starts a new
+     * sample for the next one.
+     */
+    public Timer.Sample stop(Timer.Sample sample, String operation, String stage) {
+        sample.stop(timers.computeIfAbsent(operation + '.' + stage, key -> Timer.builder("rewards.stage")
+                .description("Time spent in one stage of a rewards request")
+                .tag("operation", operation)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry)));
+        return start();
+    }
+
+    public void transactionsScanned(String operation, long count) {
+        scannedCounters.computeIfAbsent(operation, key -> Counter.builder("rewards.transactions.scanned")
+                .description("Raw transactions read or aggregated to answer rewards requests")
+                .tag("operation", operation)
+                .register(meterRegistry)).increment(count);
+    }
+}
@@ -0,0 +1,369 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.CustomerMonthlyPoints;
+import com.customerrewards.repository.TransactionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Points of every customer in the current and previous month, kept up to date by consuming
+ * the TransactionEventLog on a background thread (rewards.aggregation.engine=projection).
+ * Reads of the open month are then lookups instead of scans of the transactions table;
+ * earlier months are closed and still come from the snapshots.
+ *
+ * The state lives off-heap in a CustomerPointsStore file next to the log, together with the
+ * sequence of the last applied event, so a restarted node comes back warm and replays only the
+ * log tail. The store is forced to disk periodically and on shutdown, after which the log
+ * segments it covers are deleted. The store is stamped with the identity of the database it
+ * was derived from (the database_identity table), so a store left behind by another database,
+ * such as a recreated in-memory one, is never reused.
+ *
+ * Without a usable store it is bootstrapped from the transactions table at a consistent cut of
+ * the log (see TransactionEventLog.atConsistentCut) and positioned at its end, so every write
+ * is counted exactly once. reconcile() compares the store with the table at such a cut and
+ * rebuilds it on drift, which catches events lost to a crash between a commit and its append.
+ * A rebuild loads a new store file beside the live one and then swaps it in, so reads keep
+ * being answered from the old store until the new one is complete.
+ * The log describes this process's writes, so only one application instance may write to the
+ * database.
+ */
+@Component
+public class RewardsProjection {
+
+    private static final Logger log = LoggerFactory.getLogger(RewardsProjection.class);
+
+    private static final String STORE_FILE = "customer-points.store";
+    private static final String REBUILD_FILE = STORE_FILE + ".rebuild";
+    // The open month and the one before; older months are closed and served from snapshots
+    private static final int KEPT_MONTHS = CustomerPointsStore.RING_MONTHS;
+    private static final LocalDateTime BOOTSTRAP_END = LocalDateTime.of(9999, 1, 1, 0, 0);
+    private static final String DATABASE_IDENTITY_SQL = "SELECT id FROM database_identity";
+
+    final private TransactionEventLog eventLog;
+    final private TransactionRepository transactionRepository;
+    final private JdbcTemplate jdbcTemplate;
+    final private RewardsCache rewardsCache;
+    final private ShardRouter shardRouter;
+    final private Path storeFile;
+    final private Object applyLock = new Object();
+    // replaced as a whole by a rebuild; readers use whichever store they find
+    private volatile CustomerPointsStore store;
+    private volatile long appliedSequence;
+    private volatile long replayNanos;
+    private volatile long replayedEvents;
+    private volatile boolean started;
+    private Thread consumer;
+
+    public RewardsProjection(TransactionEventLog eventLog, TransactionRepository transactionRepository,
+                             JdbcTemplate jdbcTemplate, RewardsCache rewardsCache, ShardRouter shardRouter,
+                             MeterRegistry meterRegistry,
+                             @Value("${rewards.projection.directory:${java.io.tmpdir}/rewards-projection}") String directory) {
+        this.eventLog = eventLog;
+        this.transactionRepository = transactionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.rewardsCache = rewardsCache;
+        this.shardRouter = shardRouter;
+        this.storeFile = Paths.get(directory).resolve(STORE_FILE);
+
+        if (eventLog.isEnabled()) {
+            Gauge.builder("rewards.projection.lag", this, RewardsProjection::getLag)
+                    .description("Events appended to the transaction event log but not yet applied to the projection")
+                    .baseUnit("events")
+                    .register(meterRegistry);
+            TimeGauge.builder("rewards.projection.replay", this, TimeUnit.NANOSECONDS, projection -> projection.replayNanos)
+                    .description("Time the projection took to open its store and replay the log tail at startup")
+                    .register(meterRegistry);
+            Gauge.builder("rewards.projection.replayed", this, projection -> projection.replayedEvents)
+                    .description("Log events replayed on top of the store at startup")
+                    .baseUnit("events")
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled() { return eventLog.isEnabled(); }
+
+    /** Events appended to the log that have not been applied yet. */
+    public long getLag() {
+        return Math.max(0, eventLog.getLastSequence() - appliedSequence);
+    }
+
+    public long getAppliedSequence() { return appliedSequence; }
+
+    /**
+     * Whether the projection can answer [startDate, endDate): it must be running, hold every
+     * month from startDate on, and endDate must not cut off anything written so far.
+     */
+    public boolean covers(LocalDateTime startDate, LocalDateTime endDate) {
+        return started && MonthKeys.ordinal(startDate) >= firstKeptMonth() && endDate.isAfter(LocalDateTime.now());
+    }
+
+    /**
+     * The customer's points in the month, or -1 if they have no transactions in it.
+     */
+    public long getPoints(long customerId, int monthOrdinal) {
+        return store.getPoints(customerId, monthOrdinal);
+    }
+
+    /**
+     * Hands every customer with transactions in the month and their points to the consumer.
+     */
+    public void forEachCustomer(int monthOrdinal, CustomerPointsStore.PointsConsumer consumer) {
+        store.forEachCustomer(monthOrdinal, consumer);
+    }
+
+    /**
+     * Opens the store, replays the log tail and starts consuming new events.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void start() {
+        if (!isEnabled() || started) {
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        try {
+            if (store == null) {
+                store = new CustomerPointsStore(storeFile);
+            }
+            long epoch = databaseEpoch();
+            long storeSequence = store.getAppliedSequence();
+            if (store.getEpoch() != epoch || storeSequence == 0 || storeSequence > eventLog.getLastSequence()
+                    || !eventLog.contains(storeSequence + 1)) {
+                eventLog.atConsistentCut(() -> {
+                    rebuild(epoch);
+                    return null;
+                });
+            } else {
+                appliedSequence = storeSequence;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the rewards projection store " + storeFile, e);
+        }
+        replayedEvents = applyAvailable(false);
+        replayNanos = System.nanoTime() - startedAt;
+        log.info("Rewards projection replayed {} events in {} ms", replayedEvents, TimeUnit.NANOSECONDS.toMillis(replayNanos));
+
+        started = true;
+        consumer = Thread.ofPlatform().name("rewards-projection").daemon(true).start(this::consume);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (!started) {
+            return;
+        }
+        consumer.interrupt();
+        consumer.join();
+        started = false;
+        checkpoint();
+    }
+
+    /**
+     * Forces the store, and with it the last applied sequence, to disk, then deletes the log
+     * segments it covers.
+     */
+    @Scheduled(fixedDelayString = "${rewards.projection.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        if (!isEnabled() || store == null) {
+            return;
+        }
+
+        long sequence;
+        synchronized (applyLock) {
+            sequence = appliedSequence;
+            store.force();
+        }
+        try {
+            eventLog.deleteSegmentsUpTo(sequence);
+        } catch (IOException e) {
+            log.warn("Could not delete transaction event log segments up to {}", sequence, e);
+        }
+    }
+
+    /**
+     * Compares the kept months of the store with the transactions table at a consistent cut of
+     * the log and rebuilds the store if they differ. Writes wait while the table is read.
+     *
+     * @return the number of customer months that had drifted
+     */
+    public long reconcile() {
+        if (!started) {
+            return 0;
+        }
+
+        long drifted = eventLog.atConsistentCut(() -> {
+            synchronized (applyLock) {
+                applyAvailable(false);
+                long drift = compare(queryKeptMonths());
+                if (drift > 0) {
+                    rebuild(store.getEpoch());
+                }
+                return drift;
+            }
+        });
+        if (drifted > 0) {
+            rewardsCache.evictAll();
+            log.warn("Rewards projection rebuilt: {} customer months differed from the transactions table", drifted);
+        }
+        return drifted;
+    }
+
+    private void consume() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                eventLog.awaitAppendedAfter(appliedSequence, 1_000);
+                applyAvailable(true);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.error("Could not apply transaction events to the rewards projection", e);
+            }
+        }
+    }
+
+    /**
+     * Applies the events appended since the last applied one and returns how many there were.
+     */
+    private long applyAvailable(boolean evict) {
+        long from;
+        long to;
+        Set<Long> customers = new HashSet<>();
+        synchronized (applyLock) {
+            from = appliedSequence + 1;
+            to = eventLog.getLastSequence();
+            if (to < from) {
+                return 0;
+            }
+            int firstKept = firstKeptMonth();
+            eventLog.read(from, to, (sequence, customerId, month, points, transactionCount) -> {
+                if (month >= firstKept) {
+                    store.apply(sequence, customerId, month, points, transactionCount);
+                    customers.add(customerId);
+                }
+            });
+            store.setAppliedSequence(to);
+            appliedSequence = to;
+        }
+
+        // a read between the write's commit and now may have cached the old points
+        if (evict) {
+            customers.forEach(rewardsCache::evictCustomer);
+        }
+        return to - from + 1;
+    }
+
+    /**
+     * Reloads the store from the transactions table, positioned at the end of the log. Only
+     * called at a consistent cut, so the log after that position holds exactly the writes the
+     * table does not. The rows are loaded into a new file that is forced to disk and renamed
+     * over the store file before the projection switches to it; until then reads see the old
+     * store, and a crash leaves either the old or the new file in place.
+     */
+    private void rebuild(long epoch) {
+        Path rebuildFile = storeFile.resolveSibling(REBUILD_FILE);
+        long sequence = eventLog.getLastSequence();
+        List<CustomerMonthlyPoints> rows = queryKeptMonths();
+        CustomerPointsStore rebuilt;
+        try {
+            Files.deleteIfExists(rebuildFile);
+            CustomerPointsStore replacement = new CustomerPointsStore(rebuildFile);
+            for (CustomerMonthlyPoints row : rows) {
+                replacement.load(sequence, row.getCustomerId(), MonthKeys.ordinal(row.getYear(), row.getMonth()),
+                        row.getPoints(), row.getTransactionCount());
+            }
+            replacement.setAppliedSequence(sequence);
+            replacement.setEpoch(epoch);
+            replacement.force();
+            Files.move(rebuildFile, storeFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // the renamed file, mapped under the path later growth and checkpoints use
+            rebuilt = new CustomerPointsStore(storeFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rebuild the rewards projection store " + storeFile, e);
+        }
+        store = rebuilt;
+        appliedSequence = sequence;
+        log.info("Rewards projection bootstrapped from {} customer months", rows.size());
+    }
+
+    private List<CustomerMonthlyPoints> queryKeptMonths() {
+        LocalDateTime startDate = YearMonth.now().minusMonths(KEPT_MONTHS - 1).atDay(1).atStartOfDay();
+        return shardRouter.forEachShard(shard -> transactionRepository.sumPointsByCustomerAndMonth(startDate, BOOTSTRAP_END));
+    }
+
+    /**
+     * Merge-joins each kept month of the store, which it yields in customer id order, with the
+     * table's rows for that month and counts the customers whose points differ or who are
+     * missing on either side.
+     */
+    private long compare(List<CustomerMonthlyPoints> rows) {
+        long drifted = 0;
+        int firstKept = firstKeptMonth();
+        for (int month = firstKept; month < firstKept + KEPT_MONTHS; month++) {
+            List<CustomerMonthlyPoints> expected = new ArrayList<>();
+            for (CustomerMonthlyPoints row : rows) {
+                if (MonthKeys.ordinal(row.getYear(), row.getMonth()) == month) {
+                    expected.add(row);
+                }
+            }
+            expected.sort(Comparator.comparing(CustomerMonthlyPoints::getCustomerId));
+
+            // next expected row, and the drift found so far
+            long[] cursor = new long[2];
+            store.forEachCustomer(month, (customerId, points) -> {
+                while (cursor[0] < expected.size() && expected.get((int) cursor[0]).getCustomerId() < customerId) {
+                    cursor[0]++;
+                    cursor[1]++;
+                }
+                if (cursor[0] < expected.size() && expected.get((int) cursor[0]).getCustomerId() == customerId) {
+                    if (expected.get((int) cursor[0]).getPoints() != points) {
+                        cursor[1]++;
+                    }
+                    cursor[0]++;
+                } else {
+                    cursor[1]++;
+                }
+            });
+            drifted += cursor[1] + (expected.size() - cursor[0]);
+        }
+        return drifted;
+    }
+
+    /**
+     * A stamp of the database (every shard's) the store is derived from.
+     */
+    private long databaseEpoch() {
+        List<String> identities = shardRouter.forEachShard(shard -> jdbcTemplate.queryForList(DATABASE_IDENTITY_SQL, String.class));
+        return UUID.nameUUIDFromBytes(String.join(",", identities).getBytes(StandardCharsets.UTF_8)).getMostSignificantBits();
+    }
+
+    private static int firstKeptMonth() {
+        return MonthKeys.ordinal(YearMonth.now().minusMonths(KEPT_MONTHS - 1));
+    }
+}
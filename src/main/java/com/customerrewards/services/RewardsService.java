@@ -1,113 +1,607 @@
 package com.customerrewards.services;
 
+import com.customerrewards.dto.CustomerIdRange;
+import com.customerrewards.dto.CustomerMonthlyPoints;
+import com.customerrewards.dto.CustomerName;
 import com.customerrewards.dto.CustomerRewardsResponse;
-import com.customerrewards.models.Customer;
-import com.customerrewards.models.Transaction;
+import com.customerrewards.dto.CustomerVersionSummary;
+import com.customerrewards.dto.MonthPoints;
+import com.customerrewards.dto.RewardsCursor;
+import com.customerrewards.dto.RewardsPage;
+import com.customerrewards.dto.TransactionAmount;
+import com.customerrewards.dto.VersionedRewards;
 import com.customerrewards.repository.CustomerRepository;
+import com.customerrewards.repository.MonthlyPointsRollupRepository;
 import com.customerrewards.repository.TransactionRepository;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 @Service
 public class RewardsService {
 
+    private static final int NAME_CHUNK_SIZE = 1_000;
+    // customers per keyset page when the sharded summary is streamed
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    // TransactionRepository.sumPointsByCustomerAndMonth for the customers with ? <= id < ?, in
+    // SQL as it runs on the fan-out pool (see CustomerPartitionFanOut) rather than through JPA
+    private static final String PARTITION_POINTS_SQL = "SELECT c.id, c.name, " +
+            "EXTRACT(YEAR FROM t.transaction_date), EXTRACT(MONTH FROM t.transaction_date), " +
+            "SUM(t.points), COUNT(*) " +
+            "FROM transactions t JOIN customers c ON c.id = t.customer_id " +
+            "WHERE t.transaction_date >= ? AND t.transaction_date < ? AND t.customer_id >= ? AND t.customer_id < ? " +
+            "GROUP BY c.id, c.name, EXTRACT(YEAR FROM t.transaction_date), EXTRACT(MONTH FROM t.transaction_date)";
+
     final private CustomerRepository customerRepository;
     final private TransactionRepository transactionRepository;
+    final private RewardsSnapshotStore rewardsSnapshotStore;
+    final private CustomerPartitionFanOut customerPartitionFanOut;
+    final private ColumnarRewardsEngine columnarRewardsEngine;
+    final private RewardsMetrics rewardsMetrics;
+    final private ShardRouter shardRouter;
+    final private RetentionPolicy retentionPolicy;
+    final private RewardsProjection rewardsProjection;
+    final private RewardRules rewardRules;
+    final private MonthlyPointsRollupRepository monthlyPointsRollupRepository;
+    final private MonthlyPointsLedger monthlyPointsLedger;
+    final private RewardsCache rewardsCache;
 
-    public RewardsService(CustomerRepository customerRepository, TransactionRepository transactionRepository) {
+    public RewardsService(CustomerRepository customerRepository, TransactionRepository transactionRepository,
+                          RewardsSnapshotStore rewardsSnapshotStore, CustomerPartitionFanOut customerPartitionFanOut,
+                          ColumnarRewardsEngine columnarRewardsEngine, RewardsMetrics rewardsMetrics,
+                          ShardRouter shardRouter, RetentionPolicy retentionPolicy, RewardsProjection rewardsProjection,
+                          RewardRules rewardRules, MonthlyPointsRollupRepository monthlyPointsRollupRepository,
+                          MonthlyPointsLedger monthlyPointsLedger, RewardsCache rewardsCache) {
         this.customerRepository = customerRepository;
         this.transactionRepository = transactionRepository;
+        this.rewardsSnapshotStore = rewardsSnapshotStore;
+        this.customerPartitionFanOut = customerPartitionFanOut;
+        this.columnarRewardsEngine = columnarRewardsEngine;
+        this.rewardsMetrics = rewardsMetrics;
+        this.shardRouter = shardRouter;
+        this.retentionPolicy = retentionPolicy;
+        this.rewardsProjection = rewardsProjection;
+        this.rewardRules = rewardRules;
+        this.monthlyPointsRollupRepository = monthlyPointsRollupRepository;
+        this.monthlyPointsLedger = monthlyPointsLedger;
+        this.rewardsCache = rewardsCache;
     }
 
     public int calculateRewardPoints(BigDecimal amount) {
-        int points = 0;
-        double amountValue = amount.doubleValue();
+        return rewardRules.points(toCents(amount));
+    }
+
+    /**
+     * Points of a transaction under the configured tiers and promotions (see RewardRules).
+     */
+    public int calculateRewardPoints(BigDecimal amount, String description, LocalDateTime transactionDate) {
+        return rewardRules.points(toCents(amount), description, transactionDate);
+    }
+
+    /**
+     * Get rewards summary for all customers over the default window (see RewardsWindow).
+     */
+    @Transactional(readOnly = true)
+    public List<CustomerRewardsResponse> getCustomerRewards() {
+        return getCustomerRewards(RewardsWindow.defaultWindow());
+    }
 
-        if (amountValue > 100) {
-            // 2 points for amount over $100
-            points += (int) ((amountValue - 100) * 2);
-            // 1 point for the $50-$100 range
-            points += 50;
-        } else if (amountValue > 50) {
-            // 1 point for amount between $50 and $100
-            points += (int) (amountValue - 50);
+    /**
+     * Get rewards summary for all customers over a window of calendar months.
+     * Closed months are read from their snapshots; only the open part of the window is
+     * summed live, per customer and month by the database, so no Transaction entities are
+     * loaded for this call. With rewards.fanout.partitions > 1 the customer id space is split
+     * into ranges that are aggregated concurrently (see CustomerPartitionFanOut); with
+     * rewards.aggregation.engine=columnar the aggregation runs in memory instead
+     * (see ColumnarRewardsEngine); with rewards.aggregation.engine=projection the open month is
+     * read from the in-memory RewardsProjection when the window runs up to now. When customers
+     * are sharded, the open part is otherwise aggregated on every shard in parallel and the rows
+     * of all shards are merged.
+     * Each stage is timed by RewardsMetrics.
+     */
+    @Transactional(readOnly = true)
+    public List<CustomerRewardsResponse> getCustomerRewards(RewardsWindow window) {
+        Timer.Sample stage = rewardsMetrics.start();
+        Map<Long, CustomerRewardsResponse> responsesByCustomer = new HashMap<>();
+
+        for (YearMonth month : window.getClosedMonths()) {
+            RewardsSnapshotStore.MonthSnapshot snapshot = rewardsSnapshotStore.get(month);
+            String monthKey = MonthKeys.label(MonthKeys.ordinal(month));
+            for (int i = 0; i < snapshot.size(); i++) {
+                String customerName = snapshot.getCustomerName(i);
+                CustomerRewardsResponse response = responsesByCustomer.computeIfAbsent(snapshot.getCustomerId(i),
+                        id -> new CustomerRewardsResponse(id, customerName, new HashMap<>(), 0));
+                addMonthlyPoints(response, monthKey, snapshot.getPoints(i));
+            }
         }
 
-        return points;
+        stage = rewardsMetrics.stop(stage, RewardsMetrics.ALL_CUSTOMERS, RewardsMetrics.SNAPSHOT);
+
+        LocalDateTime liveStartDate = window.getLiveStartDate();
+        retentionPolicy.requireRetained(liveStartDate);
+        if (liveStartDate != null) {
+            stage = addLiveRewards(responsesByCustomer, liveStartDate, window.getEndDate(), stage);
+        }
+
+        List<CustomerRewardsResponse> responses = responsesByCustomer.values().stream()
+                .sorted(Comparator.comparing(CustomerRewardsResponse::getCustomerName))
+                .collect(Collectors.toList());
+        rewardsMetrics.stop(stage, RewardsMetrics.ALL_CUSTOMERS, RewardsMetrics.ASSEMBLY);
+        return responses;
     }
 
     /**
-     * Get rewards summary for all customers in the last 3 months
+     * Get rewards summary for all customers together with the rewards version (see
+     * getRewardsVersion()) read first in the same transaction, so the version never describes
+     * a newer state than the summary.
      */
-    public List<CustomerRewardsResponse> getCustomerRewards() {
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusMonths(3);
+    @Transactional(readOnly = true)
+    public VersionedRewards<List<CustomerRewardsResponse>> getVersionedCustomerRewards(RewardsWindow window) {
+        String version = getRewardsVersion();
+        return new VersionedRewards<>(version, getCustomerRewards(window));
+    }
 
-        List<Transaction> transactions = transactionRepository.findTransactionsByDateRange(startDate, endDate);
+    /**
+     * Get one keyset page of the rewards summary, in the same (name, id) order as
+     * getCustomerRewards(). Only the transactions of the customers on the page are read,
+     * so every page costs the same regardless of its depth.
+     *
+     * @param cursor token from a previous page, or null for the first page
+     */
+    @Transactional(readOnly = true)
+    public RewardsPage getCustomerRewardsPage(String cursor, int limit, RewardsWindow window) {
+        requireRetained(window);
+        RewardsCursor after = cursor == null ? null : RewardsCursor.decode(cursor);
+        List<CustomerName> customers = nextCustomersWithTransactions(after, limit, window);
+        if (customers.isEmpty()) {
+            return new RewardsPage(List.of(), null);
+        }
+
+        CustomerName last = customers.get(customers.size() - 1);
+        String nextCursor = customers.size() < limit ? null : new RewardsCursor(last.getName(), last.getId()).encode();
+        return new RewardsPage(getCustomerRewards(customers, window), nextCursor);
+    }
+
+    /**
+     * The next `limit` customers with transactions in the window after the cursor, in
+     * (name, id) order. Each shard returns its own next page; the merged first `limit` form
+     * the page.
+     */
+    private List<CustomerName> nextCustomersWithTransactions(RewardsCursor after, int limit, RewardsWindow window) {
+        LocalDateTime startDate = window.getStartDate();
+        LocalDateTime endDate = window.getEndDate();
+        List<CustomerName> customers = shardRouter.forEachShard(shard -> after == null
+                ? customerRepository.findFirstPageWithTransactions(startDate, endDate, Limit.of(limit))
+                : customerRepository.findPageWithTransactionsAfter(after.getCustomerName(), after.getCustomerId(),
+                        startDate, endDate, Limit.of(limit)));
+        if (shardRouter.isSharded()) {
+            customers = customers.stream()
+                    .sorted(Comparator.comparing(CustomerName::getName).thenComparing(CustomerName::getId))
+                    .limit(limit)
+                    .toList();
+        }
+        return customers;
+    }
 
-        // Group transactions by customer
-        Map<Long, List<Transaction>> transactionsByCustomer = transactions.stream()
+    /**
+     * Get rewards summary for a given set of customers over a window, in the order given.
+     * Customers without transactions in the window are included with zero points. Only the
+     * transactions of these customers are read, in a single aggregate query.
+     */
+    @Transactional(readOnly = true)
+    public List<CustomerRewardsResponse> getCustomerRewards(List<CustomerName> customers, RewardsWindow window) {
+        requireRetained(window);
+        Timer.Sample stage = rewardsMetrics.start();
+        Map<Long, CustomerRewardsResponse> responsesByCustomer = new LinkedHashMap<>();
+        for (CustomerName customer : customers) {
+            responsesByCustomer.put(customer.getId(),
+                    new CustomerRewardsResponse(customer.getId(), customer.getName(), new HashMap<>(), 0));
+        }
+        if (responsesByCustomer.isEmpty()) {
+            return List.of();
+        }
 
-                .collect(Collectors.groupingBy(t -> t.getCustomer().getId()));
+        List<CustomerMonthlyPoints> rows = shardRouter.forEachShard(shard -> {
+            List<Long> customerIds = responsesByCustomer.keySet().stream()
+                    .filter(id -> shardRouter.shardFor(id) == shard)
+                    .toList();
+            return customerIds.isEmpty() ? List.of()
+                    : transactionRepository.sumPointsByCustomerIdsAndMonth(customerIds, window.getStartDate(), window.getEndDate());
+        });
+        stage = rewardsMetrics.stop(stage, RewardsMetrics.PAGE, RewardsMetrics.FETCH);
 
-        List<CustomerRewardsResponse> responses = new ArrayList<>();
+        for (CustomerMonthlyPoints row : rows) {
+            addMonthlyPoints(responsesByCustomer.get(row.getCustomerId()), row);
+        }
+        rewardsMetrics.transactionsScanned(RewardsMetrics.PAGE, countTransactions(rows));
+        rewardsMetrics.stop(stage, RewardsMetrics.PAGE, RewardsMetrics.GROUPING);
+        return new ArrayList<>(responsesByCustomer.values());
+    }
 
-        for (Map.Entry<Long, List<Transaction>> entry : transactionsByCustomer.entrySet()) {
-            Long customerId = entry.getKey();
-            List<Transaction> customerTransactions = entry.getValue();
-            Customer customer = customerTransactions.get(0).getCustomer();
+    /**
+     * Checks that the window's raw transactions are still kept, as the page, per-customer-list
+     * and stream reads need them for the whole window. The full summary and the single-customer
+     * read only need them for the part of the window that is not served from snapshots.
+     *
+     * @throws IllegalArgumentException if part of the window has been archived
+     */
+    public void requireRetained(RewardsWindow window) {
+        retentionPolicy.requireRetained(window.getStartDate());
+    }
 
-            Map<String, Integer> monthlyPoints = new HashMap<>();
-            int totalPoints = 0;
+    /**
+     * Stream the rewards summary for all customers over a window, ordered by name.
+     * Each customer's response is handed to the sink as soon as its last row has been read,
+     * so memory stays constant regardless of the number of customers. When customers are
+     * sharded the summary is read one keyset page at a time, as getCustomerRewardsPage reads
+     * it, so only a page of customers is held at once.
+     */
+    @Transactional(readOnly = true)
+    public void streamCustomerRewards(RewardsWindow window, Consumer<CustomerRewardsResponse> sink) {
+        requireRetained(window);
+        if (shardRouter.isSharded()) {
+            RewardsCursor after = null;
+            List<CustomerName> customers;
+            do {
+                customers = nextCustomersWithTransactions(after, STREAM_PAGE_SIZE, window);
+                getCustomerRewards(customers, window).forEach(sink);
+                if (!customers.isEmpty()) {
+                    CustomerName last = customers.get(customers.size() - 1);
+                    after = new RewardsCursor(last.getName(), last.getId());
+                }
+            } while (customers.size() == STREAM_PAGE_SIZE);
+            return;
+        }
 
-            // Group by month and calculate points
-            for (Transaction transaction : customerTransactions) {
-                String monthKey = transaction.getTransactionDate().format(DateTimeFormatter.ofPattern("yyyy-MM"));
-                int points = calculateRewardPoints(transaction.getAmount());
+        try (Stream<CustomerMonthlyPoints> rows = transactionRepository.streamPointsByCustomerAndMonth(
+                window.getStartDate(), window.getEndDate())) {
+            CustomerRewardsResponse current = null;
+            Iterator<CustomerMonthlyPoints> iterator = rows.iterator();
 
-                monthlyPoints.merge(monthKey, points, Integer::sum);
-                totalPoints += points;
+            while (iterator.hasNext()) {
+                CustomerMonthlyPoints row = iterator.next();
+                if (current == null || !current.getCustomerId().equals(row.getCustomerId())) {
+                    if (current != null) {
+                        sink.accept(current);
+                    }
+                    current = new CustomerRewardsResponse(row.getCustomerId(), row.getCustomerName(), new HashMap<>(), 0);
+                }
+                addMonthlyPoints(current, row);
             }
 
-            responses.add(new CustomerRewardsResponse(customerId, customer.getName(), monthlyPoints, totalPoints));
+            if (current != null) {
+                sink.accept(current);
+            }
         }
-
-        return responses.stream()
-                .sorted(Comparator.comparing(CustomerRewardsResponse::getCustomerName))
-                .collect(Collectors.toList());
     }
 
     /**
-     * Get rewards summary for a specific customer
+     * Get rewards summary for a specific customer over the default window.
      */
+    @Transactional(readOnly = true)
     public CustomerRewardsResponse getCustomerRewards(Long customerId) {
-        Optional<Customer> customerOpt = customerRepository.findById(customerId);
-        if (customerOpt.isEmpty()) {
-            throw new RuntimeException("Customer not found with id: " + customerId);
+        return getCustomerRewards(customerId, RewardsWindow.defaultWindow());
+    }
+
+    /**
+     * Get rewards summary for a specific customer over a window of calendar months.
+     * Closed months come from the customer's rows of the monthly rollup and only the open part
+     * of the window is read from raw transactions, on the customer's shard only.
+     */
+    @Transactional(readOnly = true)
+    public CustomerRewardsResponse getCustomerRewards(Long customerId, RewardsWindow window) {
+        // The connection is fetched on the first statement, so routing here is still in time
+        return shardRouter.onShardOf(customerId, () -> computeCustomerRewards(customerId, window));
+    }
+
+    /**
+     * Get rewards summary for a specific customer together with the customer's rewards version,
+     * read first in the same transaction on the customer's shard. A write committed in between
+     * only leaves the version older than the body, which costs the next revalidation a full
+     * response but never answers 304 for a body that was not sent. Cached per customer for the
+     * default window, version and body as one entry, which with read replicas is read from the
+     * primary; see RewardsCache for how entries are invalidated.
+     */
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = RewardsCache.CUSTOMER_REWARDS, key = "#customerId", condition = "#window.isDefault()")
+    public VersionedRewards<CustomerRewardsResponse> getVersionedCustomerRewards(Long customerId, RewardsWindow window) {
+        return shardRouter.onShardOf(customerId, () -> {
+            Supplier<VersionedRewards<CustomerRewardsResponse>> read = () -> {
+                Long version = customerRepository.findRewardsVersionById(customerId)
+                        .orElseThrow(() -> new RuntimeException("Customer not found with id: " + customerId));
+                return new VersionedRewards<>(String.valueOf(version), computeCustomerRewards(customerId, window));
+            };
+            return window.isDefault() ? rewardsCache.load(read) : read.get();
+        });
+    }
+
+    /**
+     * The customer's rewards version, which moves whenever the points of one of their
+     * transactions change; empty if there is no such customer. One primary-key read on the
+     * customer's shard, so conditional requests are answered without touching transactions.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> getRewardsVersion(Long customerId) {
+        return shardRouter.onShardOf(customerId, () -> customerRepository.findRewardsVersionById(customerId));
+    }
+
+    /**
+     * A token that changes whenever any customer's rewards version moves or a customer is
+     * added or removed: each shard's customer count and highest version.
+     */
+    @Transactional(readOnly = true)
+    public String getRewardsVersion() {
+        StringBuilder version = new StringBuilder();
+        for (CustomerVersionSummary summary : shardRouter.forEachShard(shard -> List.of(customerRepository.findVersionSummary()))) {
+            if (!version.isEmpty()) {
+                version.append('.');
+            }
+            version.append(summary.getCustomerCount()).append('-').append(summary.getMaxVersion() == null ? 0 : summary.getMaxVersion());
+        }
+        return version.toString();
+    }
+
+    private CustomerRewardsResponse computeCustomerRewards(Long customerId, RewardsWindow window) {
+        Timer.Sample stage = rewardsMetrics.start();
+        String customerName = customerRepository.findNameById(customerId)
+                .orElseThrow(() -> new RuntimeException("Customer not found with id: " + customerId));
+
+        // Points are bucketed by month ordinal; only the few buckets are labelled at the end
+        int firstMonth = MonthKeys.ordinal(window.getFromMonth());
+        int[] pointsByMonth = new int[window.getMonthCount()];
+        boolean[] hasMonth = new boolean[pointsByMonth.length];
+
+        // Closed months are read for this customer alone, by primary key from the rollup once the
+        // ledger is ready; the all-customer snapshots are left to the summary
+        List<YearMonth> closedMonths = window.getClosedMonths();
+        if (!closedMonths.isEmpty()) {
+            String fromMonth = closedMonths.get(0).toString();
+            String toMonth = closedMonths.get(closedMonths.size() - 1).toString();
+            List<MonthPoints> rollups;
+            if (monthlyPointsLedger.isReady()) {
+                rollups = monthlyPointsRollupRepository.findByCustomerIdAndMonthRange(customerId, fromMonth, toMonth);
+            } else {
+                // until the first reconcile only archived months are trusted from the rollup; the
+                // others still have their raw rows
+                rollups = retentionPolicy.isBeyondRetention(closedMonths.get(0))
+                        ? monthlyPointsRollupRepository.findArchivedByCustomerIdAndMonthRange(customerId, fromMonth, toMonth)
+                        : List.of();
+                LocalDateTime closedEndDate = closedMonths.get(closedMonths.size() - 1).plusMonths(1).atDay(1).atStartOfDay();
+                for (TransactionAmount transaction : transactionRepository.findAmountsByCustomerIdAndDateRange(
+                        customerId, window.getStartDate(), closedEndDate)) {
+                    int month = MonthKeys.ordinal(transaction.getTransactionDate()) - firstMonth;
+                    pointsByMonth[month] += transaction.getPoints();
+                    hasMonth[month] = true;
+                }
+            }
+            for (MonthPoints rollup : rollups) {
+                int month = MonthKeys.ordinal(rollup.getMonthKey()) - firstMonth;
+                pointsByMonth[month] += rollup.getPoints().intValue();
+                hasMonth[month] = true;
+            }
         }
+        stage = rewardsMetrics.stop(stage, RewardsMetrics.ONE_CUSTOMER, RewardsMetrics.SNAPSHOT);
 
-        Customer customer = customerOpt.get();
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusMonths(3);
+        LocalDateTime liveStartDate = window.getLiveStartDate();
+        retentionPolicy.requireRetained(liveStartDate);
+        if (liveStartDate != null && rewardsProjection.covers(liveStartDate, window.getEndDate())) {
+            for (int month = MonthKeys.ordinal(liveStartDate); month <= MonthKeys.ordinal(window.getEndDate().minusNanos(1)); month++) {
+                long points = rewardsProjection.getPoints(customerId, month);
+                if (points >= 0) {
+                    pointsByMonth[month - firstMonth] += (int) points;
+                    hasMonth[month - firstMonth] = true;
+                }
+            }
+            stage = rewardsMetrics.stop(stage, RewardsMetrics.ONE_CUSTOMER, RewardsMetrics.POINTS);
+        } else if (liveStartDate != null) {
+            List<TransactionAmount> transactions = transactionRepository.findAmountsByCustomerIdAndDateRange(
+                    customerId, liveStartDate, window.getEndDate());
+            stage = rewardsMetrics.stop(stage, RewardsMetrics.ONE_CUSTOMER, RewardsMetrics.FETCH);
 
-        List<Transaction> transactions = transactionRepository.findByCustomerIdAndDateRange(customerId, startDate, endDate);
+            for (TransactionAmount transaction : transactions) {
+                int month = MonthKeys.ordinal(transaction.getTransactionDate()) - firstMonth;
+                pointsByMonth[month] += transaction.getPoints();
+                hasMonth[month] = true;
+            }
+            rewardsMetrics.transactionsScanned(RewardsMetrics.ONE_CUSTOMER, transactions.size());
+            stage = rewardsMetrics.stop(stage, RewardsMetrics.ONE_CUSTOMER, RewardsMetrics.POINTS);
+        }
 
         Map<String, Integer> monthlyPoints = new HashMap<>();
         int totalPoints = 0;
+        for (int month = 0; month < pointsByMonth.length; month++) {
+            if (hasMonth[month]) {
+                monthlyPoints.put(MonthKeys.label(firstMonth + month), pointsByMonth[month]);
+                totalPoints += pointsByMonth[month];
+            }
+        }
 
-        for (Transaction transaction : transactions) {
-            String monthKey = transaction.getTransactionDate().format(DateTimeFormatter.ofPattern("yyyy-MM"));
-            int points = calculateRewardPoints(transaction.getAmount());
+        CustomerRewardsResponse response = new CustomerRewardsResponse(customerId, customerName, monthlyPoints, totalPoints);
+        rewardsMetrics.stop(stage, RewardsMetrics.ONE_CUSTOMER, RewardsMetrics.ASSEMBLY);
+        return response;
+    }
+
+    private Timer.Sample addLiveRewards(Map<Long, CustomerRewardsResponse> responsesByCustomer,
+                                        LocalDateTime startDate, LocalDateTime endDate, Timer.Sample stage) {
+        if (rewardsProjection.covers(startDate, endDate)) {
+            return addProjectedRewards(responsesByCustomer, startDate, endDate, stage);
+        }
+        if (columnarRewardsEngine.isEnabled() && !shardRouter.isSharded()) {
+            // the engine loads amounts and calculates points in one pass
+            List<CustomerRewardsResponse> liveResponses = columnarRewardsEngine.computeRewards(startDate, endDate);
+            stage = rewardsMetrics.stop(stage, RewardsMetrics.ALL_CUSTOMERS, RewardsMetrics.POINTS);
+
+            for (CustomerRewardsResponse live : liveResponses) {
+                CustomerRewardsResponse response = responsesByCustomer.putIfAbsent(live.getCustomerId(), live);
+                if (response != null) {
+                    response.setCustomerName(live.getCustomerName());
+                    live.getMonthlyPoints().forEach((monthKey, points) -> addMonthlyPoints(response, monthKey, points));
+                }
+            }
+            return rewardsMetrics.stop(stage, RewardsMetrics.ALL_CUSTOMERS, RewardsMetrics.GROUPING);
+        }
+
+        List<CustomerMonthlyPoints> rows;
+        if (shardRouter.isSharded()) {
+            rows = shardRouter.forEachShard(shard -> transactionRepository.sumPointsByCustomerAndMonth(startDate, endDate));
+        } else if (customerPartitionFanOut.isEnabled()) {
+            rows = sumPointsByCustomerPartition(startDate, endDate);
+        } else {
+            rows = transactionRepository.sumPointsByCustomerAndMonth(startDate, endDate);
+        }
+        stage = rewardsMetrics.stop(stage, RewardsMetrics.ALL_CUSTOMERS, RewardsMetrics.FETCH);
 
-            monthlyPoints.merge(monthKey, points, Integer::sum);
-            totalPoints += points;
+        // Fold the (customer, month) rows into one response per customer; live names win
+        for (CustomerMonthlyPoints row : rows) {
+            CustomerRewardsResponse response = responsesByCustomer.computeIfAbsent(row.getCustomerId(),
+                    id -> new CustomerRewardsResponse(id, row.getCustomerName(), new HashMap<>(), 0));
+            response.setCustomerName(row.getCustomerName());
+            addMonthlyPoints(response, row);
         }
+        rewardsMetrics.transactionsScanned(RewardsMetrics.ALL_CUSTOMERS, countTransactions(rows));
+        return rewardsMetrics.stop(stage, RewardsMetrics.ALL_CUSTOMERS, RewardsMetrics.GROUPING);
+    }
+
+    private Timer.Sample addProjectedRewards(Map<Long, CustomerRewardsResponse> responsesByCustomer,
+                                             LocalDateTime startDate, LocalDateTime endDate, Timer.Sample stage) {
+        int firstMonth = MonthKeys.ordinal(startDate);
+        int lastMonth = MonthKeys.ordinal(endDate.minusNanos(1));
+        long[] customerIds = projectedCustomerIds(firstMonth, lastMonth);
+
+        // Both sides are ordered by id, so names are merged in by keyset chunks without a lookup
+        // set; live names win, as with the database aggregation
+        int next = 0;
+        long afterId = customerIds.length == 0 ? 0 : customerIds[0] - 1;
+        while (next < customerIds.length) {
+            List<CustomerName> chunk = nextNameChunk(afterId);
+            for (CustomerName name : chunk) {
+                while (next < customerIds.length && customerIds[next] < name.getId()) {
+                    next++;
+                }
+                if (next < customerIds.length && customerIds[next] == name.getId()) {
+                    addProjectedMonths(responsesByCustomer, name, firstMonth, lastMonth);
+                    next++;
+                }
+            }
+            if (chunk.size() < NAME_CHUNK_SIZE) {
+                break;
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+        return rewardsMetrics.stop(stage, RewardsMetrics.ALL_CUSTOMERS, RewardsMetrics.FETCH);
+    }
+
+    /**
+     * Ids of the customers with points in any of the months, ascending and without duplicates.
+     */
+    private long[] projectedCustomerIds(int firstMonth, int lastMonth) {
+        long[] customerIds = new long[0];
+        for (int month = firstMonth; month <= lastMonth; month++) {
+            LongStream.Builder monthIds = LongStream.builder();
+            rewardsProjection.forEachCustomer(month, (customerId, points) -> monthIds.add(customerId));
+            customerIds = union(customerIds, monthIds.build().toArray());
+        }
+        return customerIds;
+    }
+
+    private static long[] union(long[] left, long[] right) {
+        long[] merged = new long[left.length + right.length];
+        int l = 0, r = 0, size = 0;
+        while (l < left.length || r < right.length) {
+            long id = r == right.length || (l < left.length && left[l] <= right[r]) ? left[l] : right[r];
+            merged[size++] = id;
+            while (l < left.length && left[l] == id) {
+                l++;
+            }
+            while (r < right.length && right[r] == id) {
+                r++;
+            }
+        }
+        return Arrays.copyOf(merged, size);
+    }
+
+    /**
+     * The next customers in id order; when sharded, each shard's next chunk merged by id.
+     */
+    private List<CustomerName> nextNameChunk(long afterId) {
+        List<CustomerName> customers = shardRouter.forEachShard(shard -> customerRepository.findChunkAfter(afterId, Limit.of(NAME_CHUNK_SIZE)));
+        if (!shardRouter.isSharded()) {
+            return customers;
+        }
+        return customers.stream().sorted(Comparator.comparing(CustomerName::getId)).limit(NAME_CHUNK_SIZE).toList();
+    }
+
+    private void addProjectedMonths(Map<Long, CustomerRewardsResponse> responsesByCustomer, CustomerName name,
+                                    int firstMonth, int lastMonth) {
+        CustomerRewardsResponse response = responsesByCustomer.computeIfAbsent(name.getId(),
+                id -> new CustomerRewardsResponse(id, name.getName(), new HashMap<>(), 0));
+        response.setCustomerName(name.getName());
+        for (int month = firstMonth; month <= lastMonth; month++) {
+            long points = rewardsProjection.getPoints(name.getId(), month);
+            if (points >= 0) {
+                addMonthlyPoints(response, MonthKeys.label(month), (int) points);
+            }
+        }
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static long countTransactions(List<CustomerMonthlyPoints> rows) {
+        long count = 0;
+        for (CustomerMonthlyPoints row : rows) {
+            count += row.getTransactionCount();
+        }
+        return count;
+    }
+
+    private List<CustomerMonthlyPoints> sumPointsByCustomerPartition(LocalDateTime startDate, LocalDateTime endDate) {
+        CustomerIdRange ids = customerRepository.findIdRange();
+        if (ids == null || ids.getMinId() == null) {
+            return List.of();
+        }
+
+        return customerPartitionFanOut.forEachPartition(ids.getMinId(), ids.getMaxId(),
+                (jdbcTemplate, fromId, toId) -> jdbcTemplate.query(PARTITION_POINTS_SQL, (rs, rowNum) -> {
+                    long customerId = rs.getLong(1);
+                    String customerName = rs.getString(2);
+                    int year = rs.getInt(3);
+                    int month = rs.getInt(4);
+                    long points = rs.getLong(5);
+                    long transactionCount = rs.getLong(6);
+                    return new CustomerMonthlyPoints() {
+                        public Long getCustomerId() { return customerId; }
+                        public String getCustomerName() { return customerName; }
+                        public Integer getYear() { return year; }
+                        public Integer getMonth() { return month; }
+                        public Long getPoints() { return points; }
+                        public Long getTransactionCount() { return transactionCount; }
+                    };
+                }, Timestamp.valueOf(startDate), Timestamp.valueOf(endDate), fromId, toId));
+    }
+
+    private void addMonthlyPoints(CustomerRewardsResponse response, CustomerMonthlyPoints row) {
+        addMonthlyPoints(response, MonthKeys.label(MonthKeys.ordinal(row.getYear(), row.getMonth())), row.getPoints().intValue());
+    }
 
-        return new CustomerRewardsResponse(customerId, customer.getName(), monthlyPoints, totalPoints);
+    private void addMonthlyPoints(CustomerRewardsResponse response, String monthKey, int points) {
+        response.getMonthlyPoints().merge(monthKey, points, Integer::sum);
+        response.setTotalPoints(response.getTotalPoints() + points);
     }
 }
@@ -0,0 +1,185 @@
+package com.customerrewards.services;
+
+import com.customerrewards.config.ReplicaRoutingDataSource;
+import com.customerrewards.dto.CustomerMonthTotal;
+import com.customerrewards.repository.MonthlyPointsRollupRepository;
+import com.customerrewards.repository.TransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable per-month snapshots of every customer's reward points, for calendar months that
+ * have closed. Each snapshot is computed once, on first use, from the customer_monthly_points
+ * rollup when the ledger is ready or the month is archived, and from the raw transactions otherwise.
+ *
+ * A write dated in a closed month (a backfill or correction) discards that month's snapshot,
+ * immediately and again after commit, so it is rebuilt once on the next read; renaming a
+ * customer discards the snapshots that list them. A snapshot is
+ * kept until the next such write, so with read replicas it is built on the primary: a lagging
+ * replica could still miss the write that discarded the previous one.
+ *
+ * Snapshots serve the all-customers summary only; single-customer reads go to the rollup by
+ * primary key. At most rewards.snapshots.max-months snapshots are kept, least recently used
+ * first out, so months requested once do not stay on the heap.
+ */
+@Component
+public class RewardsSnapshotStore {
+
+    /**
+     * One closed month: customers in ascending id order with their points and transaction counts.
+     */
+    public static final class MonthSnapshot {
+        final private long[] customerIds;
+        final private String[] customerNames;
+        final private int[] points;
+        final private int[] transactionCounts;
+
+        public MonthSnapshot(List<CustomerMonthTotal> totals) {
+            customerIds = new long[totals.size()];
+            customerNames = new String[totals.size()];
+            points = new int[totals.size()];
+            transactionCounts = new int[totals.size()];
+            for (int i = 0; i < totals.size(); i++) {
+                CustomerMonthTotal total = totals.get(i);
+                customerIds[i] = total.getCustomerId();
+                customerNames[i] = total.getCustomerName();
+                points[i] = total.getPoints().intValue();
+                transactionCounts[i] = total.getTransactionCount().intValue();
+            }
+        }
+
+        public int size() { return customerIds.length; }
+        public long getCustomerId(int index) { return customerIds[index]; }
+        public String getCustomerName(int index) { return customerNames[index]; }
+        public int getPoints(int index) { return points[index]; }
+        public int getTransactionCount(int index) { return transactionCounts[index]; }
+
+        /** Index of the customer, or -1 if they had no transactions in the month. */
+        public int indexOf(long customerId) {
+            int index = Arrays.binarySearch(customerIds, customerId);
+            return index >= 0 ? index : -1;
+        }
+    }
+
+    final private TransactionRepository transactionRepository;
+    final private MonthlyPointsRollupRepository monthlyPointsRollupRepository;
+    final private MonthlyPointsLedger monthlyPointsLedger;
+    final private ShardRouter shardRouter;
+    final private RetentionPolicy retentionPolicy;
+    final private Cache<Integer, MonthSnapshot> snapshots;
+    final private AtomicLong buildCount = new AtomicLong();
+    final private TransactionTemplate primaryTemplate;
+    final private boolean replicated;
+
+    public RewardsSnapshotStore(TransactionRepository transactionRepository,
+                                MonthlyPointsRollupRepository monthlyPointsRollupRepository,
+                                MonthlyPointsLedger monthlyPointsLedger, ShardRouter shardRouter,
+                                RetentionPolicy retentionPolicy, PlatformTransactionManager transactionManager,
+                                ObjectProvider<ReplicaRoutingDataSource> replicaDataSource,
+                                @Value("${rewards.snapshots.max-months:24}") int maxMonths) {
+        this.transactionRepository = transactionRepository;
+        this.monthlyPointsRollupRepository = monthlyPointsRollupRepository;
+        this.monthlyPointsLedger = monthlyPointsLedger;
+        this.shardRouter = shardRouter;
+        this.retentionPolicy = retentionPolicy;
+        // a new read-write transaction takes its connection from the primary (see ReplicaDataSourceConfig)
+        this.primaryTemplate = new TransactionTemplate(transactionManager);
+        this.primaryTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.replicated = replicaDataSource.getIfAvailable() != null;
+        this.snapshots = Caffeine.newBuilder().maximumSize(Math.max(1, maxMonths)).build();
+    }
+
+    /**
+     * The snapshot of a closed month, computed on first use.
+     *
+     * @throws IllegalArgumentException if the month has not closed yet
+     */
+    public MonthSnapshot get(YearMonth month) {
+        if (!month.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Month has not closed yet: " + month);
+        }
+        return snapshots.get(MonthKeys.ordinal(month), ordinal -> build(month));
+    }
+
+    /**
+     * Discards the snapshot of the month a transaction was written to, if there is one.
+     */
+    public void invalidate(LocalDateTime transactionDate) {
+        if (transactionDate != null) {
+            invalidateMonth(MonthKeys.ordinal(transactionDate));
+        }
+    }
+
+    public void invalidateMonth(int monthOrdinal) {
+        snapshots.invalidate(monthOrdinal);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    snapshots.invalidate(monthOrdinal);
+                }
+            });
+        }
+    }
+
+    /**
+     * Discards every snapshot that lists the customer, as after a rename, immediately and
+     * again after commit.
+     */
+    public void invalidateCustomer(long customerId) {
+        snapshots.asMap().values().removeIf(snapshot -> snapshot.indexOf(customerId) >= 0);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    snapshots.asMap().values().removeIf(snapshot -> snapshot.indexOf(customerId) >= 0);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        snapshots.invalidateAll();
+    }
+
+    /** Number of snapshots computed since startup. */
+    public long getBuildCount() { return buildCount.get(); }
+
+    private MonthSnapshot build(YearMonth month) {
+        buildCount.incrementAndGet();
+        if (replicated && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primaryTemplate.execute(status -> query(month));
+        }
+        return query(month);
+    }
+
+    private MonthSnapshot query(YearMonth month) {
+        boolean beyondRetention = retentionPolicy.isBeyondRetention(month);
+        List<CustomerMonthTotal> totals = shardRouter.forEachShard(shard -> monthlyPointsLedger.isReady()
+                || (beyondRetention && monthlyPointsRollupRepository.isArchived(month.toString()))
+                ? monthlyPointsRollupRepository.findTotalsByMonth(month.toString())
+                : transactionRepository.sumPointsByCustomer(month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay()));
+        if (shardRouter.isSharded()) {
+            // each shard's rows are in id order, the concatenation is not
+            totals = totals.stream().sorted(Comparator.comparing(CustomerMonthTotal::getCustomerId)).toList();
+        }
+        return new MonthSnapshot(totals);
+    }
+}
@@ -0,0 +1,133 @@
+package com.customerrewards.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The months a rewards summary covers: whole calendar months fromMonth..toMonth, cut off at the
+ * end of the asOf day. By default the current month and the two before it, as of today.
+ */
+public final class RewardsWindow {
+
+    public static final int DEFAULT_MONTHS = 3;
+    public static final int MAX_MONTHS = 24;
+
+    final private YearMonth fromMonth;
+    final private YearMonth toMonth;
+    final private LocalDate asOf;
+
+    private RewardsWindow(YearMonth fromMonth, YearMonth toMonth, LocalDate asOf) {
+        this.fromMonth = fromMonth;
+        this.toMonth = toMonth;
+        this.asOf = asOf;
+    }
+
+    public static RewardsWindow defaultWindow() {
+        return of(null, null, null);
+    }
+
+    /**
+     * Builds a window from request parameters (yyyy-MM months), any of which may be null.
+     *
+     * @throws IllegalArgumentException if a month is malformed or the window is invalid
+     */
+    public static RewardsWindow parse(String from, String to, LocalDate asOf) {
+        try {
+            return of(from == null ? null : YearMonth.parse(from), to == null ? null : YearMonth.parse(to), asOf);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Months must be formatted as yyyy-MM", e);
+        }
+    }
+
+    /**
+     * Builds a window; asOf defaults to today, toMonth to the month of asOf and fromMonth to
+     * DEFAULT_MONTHS months ending with toMonth.
+     *
+     * @throws IllegalArgumentException if the window is empty, too long or ends after asOf
+     */
+    public static RewardsWindow of(YearMonth fromMonth, YearMonth toMonth, LocalDate asOf) {
+        LocalDate today = LocalDate.now();
+        LocalDate effectiveAsOf = asOf == null ? today : asOf;
+        YearMonth effectiveTo = toMonth == null ? YearMonth.from(effectiveAsOf) : toMonth;
+        YearMonth effectiveFrom = fromMonth == null ? effectiveTo.minusMonths(DEFAULT_MONTHS - 1) : fromMonth;
+
+        if (effectiveAsOf.isAfter(today)) {
+            throw new IllegalArgumentException("asOf must not be in the future: " + effectiveAsOf);
+        }
+        if (effectiveTo.isAfter(YearMonth.from(effectiveAsOf))) {
+            throw new IllegalArgumentException("to must not be after the month of asOf: " + effectiveTo);
+        }
+        if (effectiveFrom.isAfter(effectiveTo)) {
+            throw new IllegalArgumentException("from must not be after to: " + effectiveFrom + " > " + effectiveTo);
+        }
+        if (MonthKeys.ordinal(effectiveTo) - MonthKeys.ordinal(effectiveFrom) >= MAX_MONTHS) {
+            throw new IllegalArgumentException("A window spans at most " + MAX_MONTHS + " months");
+        }
+        return new RewardsWindow(effectiveFrom, effectiveTo, effectiveAsOf);
+    }
+
+    public YearMonth getFromMonth() { return fromMonth; }
+    public YearMonth getToMonth() { return toMonth; }
+    public LocalDate getAsOf() { return asOf; }
+
+    public int getMonthCount() { return MonthKeys.ordinal(toMonth) - MonthKeys.ordinal(fromMonth) + 1; }
+
+    /** Inclusive start of the window. */
+    public LocalDateTime getStartDate() { return fromMonth.atDay(1).atStartOfDay(); }
+
+    /** Exclusive end of the window: the end of toMonth or of the asOf day, whichever is earlier. */
+    public LocalDateTime getEndDate() {
+        LocalDate monthEnd = toMonth.plusMonths(1).atDay(1);
+        LocalDate dayEnd = asOf.plusDays(1);
+        return (dayEnd.isBefore(monthEnd) ? dayEnd : monthEnd).atStartOfDay();
+    }
+
+    /**
+     * Months before the current calendar month that the window covers completely; their
+     * points can no longer change and are served from snapshots. Always a prefix of the window.
+     */
+    public List<YearMonth> getClosedMonths() {
+        YearMonth currentMonth = YearMonth.now();
+        LocalDateTime endDate = getEndDate();
+        List<YearMonth> closedMonths = new ArrayList<>();
+        for (YearMonth month = fromMonth; !month.isAfter(toMonth); month = month.plusMonths(1)) {
+            if (!month.isBefore(currentMonth) || month.plusMonths(1).atDay(1).atStartOfDay().isAfter(endDate)) {
+                break;
+            }
+            closedMonths.add(month);
+        }
+        return closedMonths;
+    }
+
+    /** Start of the part of the window that has to be computed live, or null if every month is closed. */
+    public LocalDateTime getLiveStartDate() {
+        YearMonth firstOpenMonth = fromMonth.plusMonths(getClosedMonths().size());
+        return firstOpenMonth.isAfter(toMonth) ? null : firstOpenMonth.atDay(1).atStartOfDay();
+    }
+
+    public boolean isDefault() {
+        return equals(defaultWindow());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RewardsWindow that)) return false;
+        return fromMonth.equals(that.fromMonth) && toMonth.equals(that.toMonth) && asOf.equals(that.asOf);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fromMonth, toMonth, asOf);
+    }
+
+    @Override
+    public String toString() {
+        return fromMonth + ".." + toMonth + " as of " + asOf;
+    }
+}
@@ -0,0 +1,42 @@
+package com.customerrewards.services;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread's database work is routed to when customers are sharded
+ * (see ShardRoutingDataSource); shard 0 when unset. Connections are fetched lazily, so the
+ * shard must be set before a transaction's first statement and must not change within it.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {}
+
+    /** The current thread's shard, or null if none is set. */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    /** Runs the work with the thread routed to the shard, restoring the previous shard afterwards. */
+    public static <T> T call(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static void run(int shard, Runnable work) {
+        call(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package com.customerrewards.services;
+
+import com.customerrewards.config.ShardingProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Maps customer ids to shards by consistent hashing and runs queries against one or all shards.
+ *
+ * Each shard owns virtualNodes points on a 64-bit hash ring; a customer belongs to the shard
+ * owning the first point at or after the hash of its id. Adding a shard only moves the
+ * customers that land on the new shard's points, about 1/N of them.
+ *
+ * With a single shard (no rewards.sharding.shards configured) every method runs its work
+ * directly on the calling thread, inside the caller's transaction, exactly as before sharding.
+ */
+@Component
+public class ShardRouter {
+
+    /** Fetches rows from one shard; called with the thread routed to that shard. */
+    @FunctionalInterface
+    public interface ShardQuery<T> {
+        List<T> fetch(int shard);
+    }
+
+    final private int shardCount;
+    final private long[] ringPoints;
+    final private int[] ringOwners;
+
+    @Autowired
+    public ShardRouter(ObjectProvider<ShardingProperties> shardingProperties,
+                       @Value("${rewards.sharding.virtual-nodes:128}") int virtualNodes) {
+        this(shardingProperties.stream().mapToInt(properties -> properties.getShards().size()).findFirst().orElse(1),
+                virtualNodes);
+    }
+
+    public ShardRouter(int shardCount, int virtualNodes) {
+        this.shardCount = Math.max(1, shardCount);
+        int nodes = Math.max(1, virtualNodes);
+
+        // Sort the (point, shard) pairs so lookups are a binary search over a primitive array
+        long[][] points = new long[this.shardCount * nodes][];
+        for (int shard = 0; shard < this.shardCount; shard++) {
+            for (int node = 0; node < nodes; node++) {
+                // Seeded by the shard's own hash, so the points never coincide with hashed ids
+                points[shard * nodes + node] = new long[]{mix(mix(shard) + node), shard};
+            }
+        }
+        Arrays.sort(points, (a, b) -> Long.compare(a[0], b[0]));
+        ringPoints = new long[points.length];
+        ringOwners = new int[points.length];
+        for (int i = 0; i < points.length; i++) {
+            ringPoints[i] = points[i][0];
+            ringOwners[i] = (int) points[i][1];
+        }
+    }
+
+    public int getShardCount() { return shardCount; }
+
+    public boolean isSharded() { return shardCount > 1; }
+
+    public int shardFor(long customerId) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(ringPoints, mix(customerId));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return ringOwners[index == ringPoints.length ? 0 : index];
+    }
+
+    /**
+     * Runs the work routed to the customer's shard.
+     */
+    public <T> T onShardOf(long customerId, Supplier<T> work) {
+        return onShard(shardFor(customerId), work);
+    }
+
+    public <T> T onShard(int shard, Supplier<T> work) {
+        return isSharded() ? ShardContext.call(shard, work) : work.get();
+    }
+
+    /**
+     * Runs the query against every shard concurrently, one virtual thread per shard, and returns
+     * the rows in shard order. The first failure cancels the other shards. Each shard query runs
+     * outside the caller's transaction, on a connection of its own.
+     */
+    public <T> List<T> forEachShard(ShardQuery<T> query) {
+        if (!isSharded()) {
+            return query.fetch(0);
+        }
+
+        try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<T>>> forks = new ArrayList<>(shardCount);
+            for (int shard = 0; shard < shardCount; shard++) {
+                int target = shard;
+                forks.add(scope.submit(() -> ShardContext.call(target, () -> query.fetch(target))));
+            }
+
+            List<T> rows = new ArrayList<>();
+            for (Future<List<T>> fork : forks) {
+                try {
+                    rows.addAll(fork.get());
+                } catch (ExecutionException e) {
+                    scope.shutdownNow();
+                    if (e.getCause() instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new IllegalStateException("Shard query failed", e.getCause());
+                }
+            }
+            return rows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shard queries", e);
+        }
+    }
+
+    // SplitMix64 finalizer: spreads sequential ids (and ring points) evenly over the ring
+    private static long mix(long value) {
+        value += 0x9e3779b97f4a7c15L;
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,57 @@
+package com.customerrewards.services;
+
+import com.customerrewards.models.Customer;
+import com.customerrewards.models.Transaction;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PreRemove;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Objects;
+
+/**
+ * JPA entity listener on Customer and Transaction that refuses writes routed to a shard other
+ * than the customer's. The other listeners write the rollup and the rewards version on the
+ * connection of the surrounding transaction, so a write on the wrong shard would leave the
+ * customer unreadable there; callers must run JPA writes inside ShardRouter.onShardOf.
+ * Customer ids come from the shard's own sequence, so a new customer is only checked once it
+ * has one. Does nothing when customers are not sharded.
+ */
+public class ShardWriteGuard {
+
+    final private ObjectProvider<ShardRouter> shardRouter;
+
+    public ShardWriteGuard(ObjectProvider<ShardRouter> shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @PostPersist
+    @PreUpdate
+    @PreRemove
+    void beforeWrite(Object entity) {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null || !router.isSharded()) {
+            return;
+        }
+
+        if (entity instanceof Customer customer) {
+            requireRouted(router, customer.getId());
+        } else if (entity instanceof Transaction transaction) {
+            requireRouted(router, transaction.getCustomer().getId());
+            if (transaction.getPersistedCustomerId() != null
+                    && !Objects.equals(transaction.getPersistedCustomerId(), transaction.getCustomer().getId())) {
+                requireRouted(router, transaction.getPersistedCustomerId());
+            }
+        }
+    }
+
+    private static void requireRouted(ShardRouter router, Long customerId) {
+        int shard = router.shardFor(customerId);
+        Integer current = ShardContext.current();
+        if (current == null || current != shard) {
+            throw new IllegalStateException("Customer " + customerId + " lives on shard " + shard
+                    + " but the write is routed to shard " + (current == null ? 0 : current)
+                    + "; run it inside ShardRouter.onShardOf");
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.ArchiveReport;
+import com.customerrewards.dto.CustomerMonthTotal;
+import com.customerrewards.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Keeps the transactions table bounded to the retention window (see RetentionPolicy).
+ * Each month older than the window is archived in a database transaction of its own: its
+ * customer_monthly_points rows are rebuilt from the raw rows and the month is recorded in
+ * archived_months. Its raw rows are then deleted in batches of
+ * rewards.retention.delete-batch-size, each committed on its own, so no transaction holds a
+ * whole month of deletes. Once a month is recorded the rollup is its record, so a run stopped
+ * halfway just deletes the rest next time; rows written later into an archived month have
+ * already been added to the rollup by the ledger and are deleted the same way.
+ */
+@Component
+public class TransactionArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionArchiver.class);
+
+    private static final String OLDEST_SQL = "SELECT MIN(transaction_date) FROM transactions";
+    private static final String IS_ARCHIVED_SQL = "SELECT COUNT(*) FROM archived_months WHERE month_key = ?";
+    private static final String CLEAR_ROLLUP_SQL = "DELETE FROM customer_monthly_points WHERE month_key = ?";
+    private static final String MARK_ARCHIVED_SQL = "INSERT INTO archived_months (month_key, archived_at) VALUES (?, ?)";
+    private static final String DELETE_BATCH_SQL =
+            "DELETE FROM transactions WHERE transaction_date >= ? AND transaction_date < ? FETCH FIRST ? ROWS ONLY";
+
+    final private TransactionRepository transactionRepository;
+    final private JdbcTemplate jdbcTemplate;
+    final private TransactionTemplate transactionTemplate;
+    final private MonthlyPointsLedger monthlyPointsLedger;
+    final private RewardsSnapshotStore rewardsSnapshotStore;
+    final private RetentionPolicy retentionPolicy;
+    final private ShardRouter shardRouter;
+    final private int deleteBatchSize;
+
+    public TransactionArchiver(TransactionRepository transactionRepository, JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager, MonthlyPointsLedger monthlyPointsLedger,
+                               RewardsSnapshotStore rewardsSnapshotStore, RetentionPolicy retentionPolicy,
+                               ShardRouter shardRouter,
+                               @Value("${rewards.retention.delete-batch-size:10000}") int deleteBatchSize) {
+        if (deleteBatchSize < 1) {
+            throw new IllegalArgumentException("rewards.retention.delete-batch-size must be at least 1");
+        }
+        this.transactionRepository = transactionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthlyPointsLedger = monthlyPointsLedger;
+        this.rewardsSnapshotStore = rewardsSnapshotStore;
+        this.retentionPolicy = retentionPolicy;
+        this.shardRouter = shardRouter;
+        this.deleteBatchSize = deleteBatchSize;
+    }
+
+    @Scheduled(cron = "${rewards.retention.archive-cron:0 0 4 * * *}")
+    public void archiveNightly() {
+        archive();
+    }
+
+    /**
+     * Archives every month before the first retained month, on every shard.
+     */
+    public ArchiveReport archive() {
+        YearMonth firstRetained = retentionPolicy.getFirstRetainedMonth();
+        if (firstRetained == null) {
+            return new ArchiveReport(0, 0);
+        }
+
+        ArchiveReport report = new ArchiveReport(0, 0);
+        List<ArchiveReport> shardReports = shardRouter.forEachShard(shard -> List.of(archiveBefore(firstRetained)));
+        for (ArchiveReport shardReport : shardReports) {
+            report.setMonthsArchived(report.getMonthsArchived() + shardReport.getMonthsArchived());
+            report.setTransactionsDeleted(report.getTransactionsDeleted() + shardReport.getTransactionsDeleted());
+        }
+
+        if (report.getTransactionsDeleted() > 0) {
+            log.info("Archived {} months before {}, deleting {} transactions",
+                    report.getMonthsArchived(), firstRetained, report.getTransactionsDeleted());
+        }
+        return report;
+    }
+
+    private ArchiveReport archiveBefore(YearMonth firstRetained) {
+        ArchiveReport report = new ArchiveReport(0, 0);
+        Timestamp oldest = jdbcTemplate.queryForObject(OLDEST_SQL, Timestamp.class);
+        if (oldest == null) {
+            return report;
+        }
+
+        for (YearMonth month = YearMonth.from(oldest.toLocalDateTime()); month.isBefore(firstRetained); month = month.plusMonths(1)) {
+            YearMonth archiving = month;
+            if (transactionTemplate.execute(status -> rollUpMonth(archiving))) {
+                report.setMonthsArchived(report.getMonthsArchived() + 1);
+            }
+            report.setTransactionsDeleted(report.getTransactionsDeleted() + deleteMonth(month));
+        }
+        return report;
+    }
+
+    /**
+     * Makes the rollup the record of the month, unless it already is.
+     *
+     * @return whether the month was archived by this call
+     */
+    private boolean rollUpMonth(YearMonth month) {
+        String monthKey = MonthKeys.label(MonthKeys.ordinal(month));
+        if (jdbcTemplate.queryForObject(IS_ARCHIVED_SQL, Integer.class, monthKey) > 0) {
+            return false;
+        }
+
+        // The rollup becomes the only record of the month, so it is rebuilt rather than trusted
+        jdbcTemplate.update(CLEAR_ROLLUP_SQL, monthKey);
+        for (CustomerMonthTotal total : transactionRepository.sumPointsByCustomer(
+                month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay())) {
+            monthlyPointsLedger.add(total.getCustomerId(), monthKey, total.getPoints(), total.getTransactionCount());
+        }
+        jdbcTemplate.update(MARK_ARCHIVED_SQL, monthKey, Timestamp.valueOf(LocalDateTime.now()));
+        rewardsSnapshotStore.invalidateMonth(MonthKeys.ordinal(month));
+        return true;
+    }
+
+    private long deleteMonth(YearMonth month) {
+        Timestamp startDate = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp endDate = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        long deleted = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> jdbcTemplate.update(DELETE_BATCH_SQL, startDate, endDate, deleteBatchSize));
+            deleted += batch;
+        } while (batch == deleteBatchSize);
+        return deleted;
+    }
+}
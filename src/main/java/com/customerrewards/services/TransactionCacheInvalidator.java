@@ -0,0 +1,41 @@
+package com.customerrewards.services;
+
+import com.customerrewards.models.Transaction;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * JPA entity listener on Transaction that evicts the written customer's cached rewards and
+ * the snapshot of the month written to. Hibernate creates its own instance of this class, so
+ * it only delegates to the RewardsCache and RewardsSnapshotStore singletons, and does nothing
+ * where they are not configured.
+ */
+public class TransactionCacheInvalidator {
+
+    final private ObjectProvider<RewardsCache> rewardsCache;
+    final private ObjectProvider<RewardsSnapshotStore> rewardsSnapshotStore;
+
+    public TransactionCacheInvalidator(ObjectProvider<RewardsCache> rewardsCache,
+                                       ObjectProvider<RewardsSnapshotStore> rewardsSnapshotStore) {
+        this.rewardsCache = rewardsCache;
+        this.rewardsSnapshotStore = rewardsSnapshotStore;
+    }
+
+    @PreUpdate
+    void beforeUpdate(Transaction transaction) {
+        // the transaction may be moving away from this customer and month
+        rewardsCache.ifAvailable(cache -> cache.evictCustomer(transaction.getPersistedCustomerId()));
+        rewardsSnapshotStore.ifAvailable(store -> store.invalidate(transaction.getPersistedTransactionDate()));
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void afterWrite(Transaction transaction) {
+        rewardsCache.ifAvailable(cache -> cache.evictCustomer(transaction.getCustomer().getId()));
+        rewardsSnapshotStore.ifAvailable(store -> store.invalidate(transaction.getTransactionDate()));
+    }
+}
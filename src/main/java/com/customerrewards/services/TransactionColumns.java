@@ -0,0 +1,45 @@
+package com.customerrewards.services;
+
+import java.util.Arrays;
+
+/**
+ * Transactions held column by column in primitive arrays: customer id, month ordinal
+ * (year * 12 + month - 1) and reward points. One row costs 16 bytes and no objects.
+ * Rows must be appended grouped by customer id, in ascending order.
+ */
+public final class TransactionColumns {
+
+    private long[] customerIds;
+    private int[] monthOrdinals;
+    private int[] points;
+    private int size;
+
+    public TransactionColumns(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        customerIds = new long[capacity];
+        monthOrdinals = new int[capacity];
+        points = new int[capacity];
+    }
+
+    public void add(long customerId, int monthOrdinal, int points) {
+        if (size > 0 && customerId < customerIds[size - 1]) {
+            throw new IllegalArgumentException("Rows must be ordered by customer id");
+        }
+        if (size == customerIds.length) {
+            int capacity = size + (size >> 1);
+            customerIds = Arrays.copyOf(customerIds, capacity);
+            monthOrdinals = Arrays.copyOf(monthOrdinals, capacity);
+            this.points = Arrays.copyOf(this.points, capacity);
+        }
+        customerIds[size] = customerId;
+        monthOrdinals[size] = monthOrdinal;
+        this.points[size] = points;
+        size++;
+    }
+
+    public int size() { return size; }
+
+    long[] customerIds() { return customerIds; }
+    int[] monthOrdinals() { return monthOrdinals; }
+    int[] points() { return points; }
+}
@@ -0,0 +1,289 @@
+package com.customerrewards.services;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Append-only local log of TransactionPointsEvents (rewards.aggregation.engine=projection).
+ * Events are appended once their write has committed and get consecutive sequence numbers
+ * starting at 1. The log is a series of memory-mapped segment files of fixed-size records,
+ * each named after the sequence of its first record; a record's sequence is written last, so
+ * a record torn by a crash is recognised and dropped when the log is reopened.
+ *
+ * Appends are not forced to disk: they survive a process crash but not necessarily a machine
+ * crash. Segments the projection has checkpointed past are deleted (see RewardsProjection).
+ *
+ * A writing transaction holds a shared gate from its first event until its events have been
+ * appended after commit, so atConsistentCut can run work at a point where every committed
+ * write is in the log and no write is between its commit and its append. An event lost to a
+ * crash in that window is caught by the projection's reconcile.
+ */
+@Component
+public class TransactionEventLog {
+
+    // sequence, customer id, points, transaction count, month ordinal
+    static final int RECORD_BYTES = 8 + 8 + 8 + 4 + 4;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final class Segment {
+        final long firstSequence;
+        final Path path;
+        final MappedByteBuffer buffer;
+        final int capacity;
+
+        Segment(long firstSequence, Path path, MappedByteBuffer buffer) {
+            this.firstSequence = firstSequence;
+            this.path = path;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity() / RECORD_BYTES;
+        }
+    }
+
+    /** Receives a logged event's fields without an event object per record. */
+    @FunctionalInterface
+    public interface EventConsumer {
+        void accept(long sequence, long customerId, int monthOrdinal, long points, int transactionCount);
+    }
+
+    // how long a cut waits for in-flight writes before letting them pass and trying again, so a
+    // write blocked in the database on another one that waits at the gate cannot deadlock
+    private static final long CUT_ATTEMPT_MILLIS = 1_000;
+
+    final private boolean enabled;
+    final private Path directory;
+    final private int segmentRecords;
+    // guarded by this
+    final private List<Segment> segments = new ArrayList<>();
+    final private ReentrantReadWriteLock cut = new ReentrantReadWriteLock(true);
+    private volatile long lastSequence;
+
+    public TransactionEventLog(@Value("${rewards.aggregation.engine:database}") String engine,
+                               @Value("${rewards.projection.directory:${java.io.tmpdir}/rewards-projection}") String directory,
+                               @Value("${rewards.projection.segment-records:1048576}") int segmentRecords) throws IOException {
+        this.enabled = "projection".equalsIgnoreCase(engine);
+        this.directory = Paths.get(directory);
+        this.segmentRecords = Math.max(1, segmentRecords);
+        if (enabled) {
+            open();
+        }
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    public Path getDirectory() { return directory; }
+
+    /** Sequence of the newest event, 0 if none was ever appended. */
+    public long getLastSequence() { return lastSequence; }
+
+    /**
+     * Appends the event once its write has committed, or right away outside a transaction.
+     */
+    @EventListener
+    public void onPointsEvent(TransactionPointsEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cut.readLock().lock();
+            try {
+                append(event);
+            } finally {
+                cut.readLock().unlock();
+            }
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<TransactionPointsEvent> pending = (List<TransactionPointsEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            cut.readLock().lock();
+            List<TransactionPointsEvent> events = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    events.forEach(TransactionEventLog.this::append);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TransactionEventLog.this);
+                    cut.readLock().unlock();
+                }
+            });
+            pending = events;
+        }
+        pending.add(event);
+    }
+
+    /**
+     * Runs the work while no write is between its commit and the append of its events, so the
+     * database as the work reads it is exactly what the log up to getLastSequence describes.
+     * Writes reaching their first event wait until the work is done.
+     */
+    public <T> T atConsistentCut(Supplier<T> work) {
+        try {
+            while (!cut.writeLock().tryLock(CUT_ATTEMPT_MILLIS, TimeUnit.MILLISECONDS)) {
+                // the writes queued behind this attempt go through first; try again
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a consistent cut of the transaction event log", e);
+        }
+        try {
+            return work.get();
+        } finally {
+            cut.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends the event and wakes up readers waiting for it.
+     *
+     * @return the event's sequence
+     */
+    public synchronized long append(TransactionPointsEvent event) {
+        long sequence = lastSequence + 1;
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || sequence - segment.firstSequence == segment.capacity) {
+            segment = createSegment(sequence);
+        }
+
+        int offset = (int) (sequence - segment.firstSequence) * RECORD_BYTES;
+        segment.buffer.putLong(offset + 8, event.getCustomerId());
+        segment.buffer.putLong(offset + 16, event.getPoints());
+        segment.buffer.putInt(offset + 24, (int) event.getTransactionCount());
+        segment.buffer.putInt(offset + 28, event.getMonthOrdinal());
+        segment.buffer.putLong(offset, sequence);
+
+        lastSequence = sequence;
+        notifyAll();
+        return sequence;
+    }
+
+    /**
+     * Hands the events fromSequence..toSequence (inclusive) to the consumer in order. Events
+     * in deleted segments are skipped.
+     */
+    public void read(long fromSequence, long toSequence, EventConsumer consumer) {
+        List<Segment> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(segments);
+        }
+
+        for (Segment segment : snapshot) {
+            long first = Math.max(fromSequence, segment.firstSequence);
+            long last = Math.min(toSequence, segment.firstSequence + segment.capacity - 1);
+            for (long sequence = first; sequence <= last; sequence++) {
+                int offset = (int) (sequence - segment.firstSequence) * RECORD_BYTES;
+                consumer.accept(sequence, segment.buffer.getLong(offset + 8), segment.buffer.getInt(offset + 28),
+                        segment.buffer.getLong(offset + 16), segment.buffer.getInt(offset + 24));
+            }
+        }
+    }
+
+    /**
+     * Whether the event with the given sequence can still be read, or is the next one to be
+     * appended; false once its segment has been deleted.
+     */
+    public synchronized boolean contains(long sequence) {
+        return sequence > lastSequence || !segments.isEmpty() && segments.get(0).firstSequence <= sequence;
+    }
+
+    /**
+     * Waits until an event after the given sequence is appended, or the timeout passes.
+     */
+    public synchronized void awaitAppendedAfter(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (lastSequence <= sequence) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return;
+            }
+            wait(remaining);
+        }
+    }
+
+    /**
+     * Deletes the segments whose events all have a sequence up to the given one. The newest
+     * segment is always kept so the sequence carries on after a restart.
+     */
+    public synchronized void deleteSegmentsUpTo(long sequence) throws IOException {
+        while (segments.size() > 1 && segments.get(1).firstSequence - 1 <= sequence) {
+            Files.deleteIfExists(segments.remove(0).path);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (!segments.isEmpty()) {
+            segments.get(segments.size() - 1).buffer.force();
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            files.forEach(paths::add);
+        }
+        paths.sort((a, b) -> Long.compare(firstSequence(a), firstSequence(b)));
+
+        for (Path path : paths) {
+            segments.add(new Segment(firstSequence(path), path, map(path, Files.size(path))));
+        }
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        // The tail ends at the first record whose sequence is not the expected one
+        Segment tail = segments.get(segments.size() - 1);
+        int records = 0;
+        while (records < tail.capacity && tail.buffer.getLong(records * RECORD_BYTES) == tail.firstSequence + records) {
+            records++;
+        }
+        lastSequence = tail.firstSequence + records - 1;
+    }
+
+    private Segment createSegment(long firstSequence) {
+        Path path = directory.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+        try {
+            Segment segment = new Segment(firstSequence, path, map(path, (long) segmentRecords * RECORD_BYTES));
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create event log segment " + path, e);
+        }
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,325 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.IngestionReport;
+import com.customerrewards.dto.TransactionRow;
+import com.customerrewards.models.MonthlyPointsRollupId;
+import com.customerrewards.repository.SequenceIdAllocator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Streams NDJSON or CSV transaction uploads into the transactions table. Rows are read one
+ * line at a time, validated, and written with JDBC batch inserts in fixed-size chunks, each
+ * chunk in its own database transaction, so memory is bounded by the chunk size however large
+ * the upload is. Customers are resolved once per chunk, by id and by email.
+ *
+ * The inserts bypass the JPA entity listeners, so each chunk applies its monthly points
+ * deltas and cache evictions itself.
+ *
+ * When customers are sharded, each row is written to its customer's shard, with its id taken
+ * from that shard's own transactions sequence, the one JPA inserts on the shard draw from too;
+ * transaction ids are therefore unique per shard, not across shards. A chunk is committed as
+ * one transaction per shard rather than atomically across shards.
+ */
+@Service
+public class TransactionIngestionService {
+
+    public enum Format { NDJSON, CSV }
+
+    public static final String CSV_HEADER = "customerId,customerEmail,amount,transactionDate,description";
+
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+    private static final int MAX_DESCRIPTION_LENGTH = 255;
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("99999999.99");
+    private static final String INSERT_SQL = "INSERT INTO transactions " +
+            "(id, customer_id, amount, transaction_date, description, points) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private record PendingRow(long line, TransactionRow row) {}
+
+    private record CustomerLookup(Set<Long> ids, Map<String, Long> idsByEmail) {
+        Long resolve(TransactionRow row) {
+            if (row.getCustomerId() != null) {
+                return ids.contains(row.getCustomerId()) ? row.getCustomerId() : null;
+            }
+            return idsByEmail.get(row.getCustomerEmail());
+        }
+    }
+
+    final private JdbcTemplate jdbcTemplate;
+    final private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    final private TransactionTemplate transactionTemplate;
+    final private ObjectMapper objectMapper;
+    final private MonthlyPointsLedger monthlyPointsLedger;
+    final private RewardsCache rewardsCache;
+    final private RewardsSnapshotStore rewardsSnapshotStore;
+    final private ShardRouter shardRouter;
+    final private RewardRules rewardRules;
+    final private int chunkSize;
+
+    public TransactionIngestionService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                       ObjectMapper objectMapper, MonthlyPointsLedger monthlyPointsLedger,
+                                       RewardsCache rewardsCache, RewardsSnapshotStore rewardsSnapshotStore,
+                                       ShardRouter shardRouter, RewardRules rewardRules,
+                                       @Value("${rewards.ingestion.chunk-size:5000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.monthlyPointsLedger = monthlyPointsLedger;
+        this.rewardsCache = rewardsCache;
+        this.rewardsSnapshotStore = rewardsSnapshotStore;
+        this.shardRouter = shardRouter;
+        this.rewardRules = rewardRules;
+        this.chunkSize = chunkSize;
+    }
+
+    public IngestionReport ingest(InputStream body, Format format) throws IOException {
+        IngestionReport report = new IngestionReport();
+        // one allocator per shard, only ever called with the thread routed to that shard
+        SequenceIdAllocator[] transactionIds = new SequenceIdAllocator[shardRouter.getShardCount()];
+        for (int shard = 0; shard < transactionIds.length; shard++) {
+            transactionIds[shard] = new SequenceIdAllocator(jdbcTemplate, SequenceIdAllocator.TRANSACTIONS_SEQUENCE);
+        }
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+        int chunkRejected = 0;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        long lineNumber = 0;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (format == Format.CSV && lineNumber == 1 && line.startsWith("customerId"))) {
+                continue;
+            }
+
+            try {
+                TransactionRow row = format == Format.NDJSON ? objectMapper.readValue(line, TransactionRow.class) : parseCsv(line);
+                validate(row);
+                chunk.add(new PendingRow(lineNumber, row));
+            } catch (JsonProcessingException e) {
+                chunkRejected++;
+                reject(report, lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                chunkRejected++;
+                reject(report, lineNumber, e.getMessage());
+            }
+
+            if (chunk.size() + chunkRejected == chunkSize) {
+                flush(chunk, chunkRejected, transactionIds, report);
+                chunkRejected = 0;
+            }
+        }
+
+        if (!chunk.isEmpty() || chunkRejected > 0) {
+            flush(chunk, chunkRejected, transactionIds, report);
+        }
+        return report;
+    }
+
+    private void flush(List<PendingRow> chunk, int rejectedWhileParsing, SequenceIdAllocator[] transactionIds, IngestionReport report) {
+        CustomerLookup customers = resolveCustomers(chunk);
+
+        List<PendingRow> accepted = new ArrayList<>(chunk.size());
+        long[] resolvedCustomerIds = new long[chunk.size()];
+        int rejected = rejectedWhileParsing;
+
+        for (PendingRow pending : chunk) {
+            TransactionRow row = pending.row();
+            Long customerId = customers.resolve(row);
+            if (customerId == null) {
+                rejected++;
+                reject(report, pending.line(), "Unknown customer: "
+                        + (row.getCustomerId() != null ? row.getCustomerId() : row.getCustomerEmail()));
+                continue;
+            }
+            resolvedCustomerIds[accepted.size()] = customerId;
+            accepted.add(pending);
+        }
+
+        if (!accepted.isEmpty()) {
+            if (!shardRouter.isSharded()) {
+                long[] ids = allocateIds(accepted.size(), transactionIds[0]);
+                transactionTemplate.executeWithoutResult(status -> insert(accepted, resolvedCustomerIds, ids));
+            } else {
+                insertByShard(accepted, resolvedCustomerIds, transactionIds);
+            }
+        }
+
+        report.getBatches().add(new IngestionReport.BatchResult(report.getBatches().size() + 1, accepted.size(), rejected));
+        report.setAccepted(report.getAccepted() + accepted.size());
+        report.setRejected(report.getRejected() + rejected);
+        chunk.clear();
+    }
+
+    private static long[] allocateIds(int count, SequenceIdAllocator transactionIds) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = transactionIds.next();
+        }
+        return ids;
+    }
+
+    /**
+     * Splits the accepted rows by their customer's shard and inserts each group, with ids from
+     * that shard's sequence, in a transaction of its own on that shard.
+     */
+    private void insertByShard(List<PendingRow> accepted, long[] customerIds, SequenceIdAllocator[] transactionIds) {
+        Map<Integer, List<Integer>> rowsByShard = new TreeMap<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            rowsByShard.computeIfAbsent(shardRouter.shardFor(customerIds[i]), shard -> new ArrayList<>()).add(i);
+        }
+
+        rowsByShard.forEach((shard, rows) -> {
+            List<PendingRow> shardRows = new ArrayList<>(rows.size());
+            long[] shardCustomerIds = new long[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                shardRows.add(accepted.get(rows.get(i)));
+                shardCustomerIds[i] = customerIds[rows.get(i)];
+            }
+            ShardContext.run(shard, () -> {
+                long[] shardIds = allocateIds(rows.size(), transactionIds[shard]);
+                transactionTemplate.executeWithoutResult(status -> insert(shardRows, shardCustomerIds, shardIds));
+            });
+        });
+    }
+
+    private void insert(List<PendingRow> accepted, long[] customerIds, long[] ids) {
+        int[] points = new int[accepted.size()];
+        for (int i = 0; i < points.length; i++) {
+            TransactionRow row = accepted.get(i).row();
+            long amountInCents = row.getAmount().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            points[i] = rewardRules.points(amountInCents, row.getDescription(), row.getTransactionDate());
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                TransactionRow row = accepted.get(i).row();
+                ps.setLong(1, ids[i]);
+                ps.setLong(2, customerIds[i]);
+                ps.setBigDecimal(3, row.getAmount());
+                ps.setTimestamp(4, Timestamp.valueOf(row.getTransactionDate()));
+                ps.setString(5, row.getDescription());
+                ps.setInt(6, points[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return accepted.size();
+            }
+        });
+
+        // One ledger delta per (customer, month), one eviction per customer and month in the chunk
+        Map<MonthlyPointsRollupId, long[]> deltas = new HashMap<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            TransactionRow row = accepted.get(i).row();
+            long[] delta = deltas.computeIfAbsent(new MonthlyPointsRollupId(customerIds[i],
+                    MonthKeys.label(row.getTransactionDate())), key -> new long[2]);
+            delta[0] += points[i];
+            delta[1]++;
+        }
+        Set<Long> customers = new HashSet<>();
+        deltas.forEach((key, delta) -> {
+            monthlyPointsLedger.record(key.getCustomerId(), key.getMonthKey(), delta[0], delta[1]);
+            customers.add(key.getCustomerId());
+            rewardsSnapshotStore.invalidateMonth(MonthKeys.ordinal(key.getMonthKey()));
+        });
+        customers.forEach(rewardsCache::evictCustomer);
+    }
+
+    /**
+     * Loads which referenced customer ids exist and the ids behind the referenced emails,
+     * with one query each for the whole chunk (per shard when customers are sharded).
+     */
+    private CustomerLookup resolveCustomers(List<PendingRow> chunk) {
+        Set<Long> ids = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (PendingRow pending : chunk) {
+            if (pending.row().getCustomerId() != null) {
+                ids.add(pending.row().getCustomerId());
+            } else {
+                emails.add(pending.row().getCustomerEmail());
+            }
+        }
+
+        CustomerLookup lookup = new CustomerLookup(new HashSet<>(), new HashMap<>());
+        if (!ids.isEmpty()) {
+            lookup.ids().addAll(shardRouter.forEachShard(shard -> namedParameterJdbcTemplate.queryForList(
+                    "SELECT id FROM customers WHERE id IN (:ids)", Map.of("ids", ids), Long.class)));
+        }
+        if (!emails.isEmpty()) {
+            for (Map.Entry<String, Long> customer : shardRouter.forEachShard(shard -> namedParameterJdbcTemplate.query(
+                    "SELECT id, email FROM customers WHERE email IN (:emails)", Map.of("emails", emails),
+                    (rs, i) -> Map.entry(rs.getString(2), rs.getLong(1))))) {
+                lookup.idsByEmail().put(customer.getKey(), customer.getValue());
+            }
+        }
+        return lookup;
+    }
+
+    private TransactionRow parseCsv(String line) {
+        // description is the last column, so it may itself contain commas
+        String[] fields = line.split(",", 5);
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Expected columns " + CSV_HEADER);
+        }
+        return new TransactionRow(
+                fields[0].isBlank() ? null : Long.valueOf(fields[0].trim()),
+                fields[1].isBlank() ? null : fields[1].trim(),
+                fields[2].isBlank() ? null : new BigDecimal(fields[2].trim()),
+                fields[3].isBlank() ? null : LocalDateTime.parse(fields[3].trim()),
+                fields.length == 5 && !fields[4].isEmpty() ? fields[4] : null);
+    }
+
+    private void validate(TransactionRow row) {
+        if (row.getCustomerId() == null && (row.getCustomerEmail() == null || row.getCustomerEmail().isBlank())) {
+            throw new IllegalArgumentException("customerId or customerEmail is required");
+        }
+        if (row.getAmount() == null) {
+            throw new IllegalArgumentException("amount is required");
+        }
+        if (row.getAmount().signum() < 0) {
+            throw new IllegalArgumentException("amount must not be negative");
+        }
+        if (row.getAmount().stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("amount must have at most 2 decimal places");
+        }
+        if (row.getAmount().compareTo(MAX_AMOUNT) > 0) {
+            throw new IllegalArgumentException("amount must not exceed " + MAX_AMOUNT);
+        }
+        if (row.getTransactionDate() == null) {
+            throw new IllegalArgumentException("transactionDate is required");
+        }
+        if (row.getDescription() != null && row.getDescription().length() > MAX_DESCRIPTION_LENGTH) {
+            throw new IllegalArgumentException("description must be at most " + MAX_DESCRIPTION_LENGTH + " characters");
+        }
+    }
+
+    private void reject(IngestionReport report, long line, String reason) {
+        if (report.getRejections().size() < MAX_REPORTED_REJECTIONS) {
+            report.getRejections().add(new IngestionReport.Rejection(line, reason));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.customerrewards.services;
+
+/**
+ * A change to one customer's points in one month, caused by writing transactions. Published
+ * by MonthlyPointsLedger and appended to the TransactionEventLog once the write has committed.
+ */
+public final class TransactionPointsEvent {
+
+    final private long customerId;
+    final private int monthOrdinal;
+    final private long points;
+    final private long transactionCount;
+
+    public TransactionPointsEvent(long customerId, int monthOrdinal, long points, long transactionCount) {
+        this.customerId = customerId;
+        this.monthOrdinal = monthOrdinal;
+        this.points = points;
+        this.transactionCount = transactionCount;
+    }
+
+    public long getCustomerId() { return customerId; }
+    public int getMonthOrdinal() { return monthOrdinal; }
+    public long getPoints() { return points; }
+    public long getTransactionCount() { return transactionCount; }
+}
@@ -0,0 +1,36 @@
+package com.customerrewards.services;
+
+import com.customerrewards.models.Transaction;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * JPA entity listener on Transaction that rates it with the RewardRules before it is written,
+ * so the points are stored with the row. Hibernate creates its own instance of this class, so
+ * it delegates to the RewardRules singleton, and rates with the default tiers where that is
+ * not configured.
+ */
+public class TransactionPointsRater {
+
+    final private ObjectProvider<RewardRules> rewardRules;
+    private RewardRules defaultRules;
+
+    public TransactionPointsRater(ObjectProvider<RewardRules> rewardRules) {
+        this.rewardRules = rewardRules;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void rate(Transaction transaction) {
+        RewardRules rules = rewardRules.getIfAvailable(this::defaultRules);
+        transaction.setPoints(rules.points(transaction.getAmountInCents(), transaction.getDescription(), transaction.getTransactionDate()));
+    }
+
+    private RewardRules defaultRules() {
+        if (defaultRules == null) {
+            defaultRules = RewardRules.defaults();
+        }
+        return defaultRules;
+    }
+}
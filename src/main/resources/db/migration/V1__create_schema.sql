@@ -0,0 +1,30 @@
+-- Baseline schema, as previously generated by Hibernate (ddl-auto=create-drop)
+
+CREATE SEQUENCE customers_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE transactions_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE customers (
+    id    BIGINT       NOT NULL,
+    name  VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_customers PRIMARY KEY (id),
+    CONSTRAINT uk_customers_email UNIQUE (email)
+);
+
+CREATE TABLE transactions (
+    id               BIGINT         NOT NULL,
+    customer_id      BIGINT         NOT NULL,
+    amount           NUMERIC(10, 2) NOT NULL,
+    transaction_date TIMESTAMP(6)   NOT NULL,
+    description      VARCHAR(255),
+    CONSTRAINT pk_transactions PRIMARY KEY (id),
+    CONSTRAINT fk_transactions_customer FOREIGN KEY (customer_id) REFERENCES customers (id)
+);
+
+CREATE TABLE customer_monthly_points (
+    customer_id       BIGINT     NOT NULL,
+    month_key         VARCHAR(7) NOT NULL,
+    points            BIGINT     NOT NULL,
+    transaction_count BIGINT     NOT NULL,
+    CONSTRAINT pk_customer_monthly_points PRIMARY KEY (customer_id, month_key)
+);
@@ -0,0 +1,9 @@
+-- Per-customer reads (customer_id = ? AND transaction_date in [start, end)) are answered from
+-- this index alone: amount is included so no table row has to be visited.
+CREATE INDEX idx_transactions_customer_date_amount ON transactions (customer_id, transaction_date, amount);
+
+-- All-customer date-range reads and aggregations; customer_id and amount make it covering too.
+CREATE INDEX idx_transactions_date_customer_amount ON transactions (transaction_date, customer_id, amount);
+
+-- Keyset pagination of customers ordered by (name, id).
+CREATE INDEX idx_customers_name_id ON customers (name, id);
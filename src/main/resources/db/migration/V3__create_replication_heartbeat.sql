@@ -0,0 +1,8 @@
+-- Single-row heartbeat the primary stamps periodically; reading it on a replica tells how far
+-- that replica lags behind (see ReplicaLagMonitor).
+CREATE TABLE replication_heartbeat (
+    id INT PRIMARY KEY,
+    beat_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO replication_heartbeat (id, beat_at) VALUES (1, CURRENT_TIMESTAMP);
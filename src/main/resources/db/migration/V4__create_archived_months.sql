@@ -0,0 +1,7 @@
+-- Months whose raw transactions have been rolled into customer_monthly_points and deleted
+-- (see TransactionArchiver). For these months the rollup is the only record, so the
+-- reconciler leaves it alone.
+CREATE TABLE archived_months (
+    month_key VARCHAR(7) PRIMARY KEY,
+    archived_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,19 @@
+-- Reward points are rated once, when a transaction is written (see RewardRules), and stored
+-- with it so every aggregation sums the same points. Existing rows are rated with the default
+-- tiers, the formula the aggregations used until now.
+ALTER TABLE transactions ADD COLUMN points INTEGER;
+
+UPDATE transactions SET points =
+    CASE WHEN amount > 100 THEN CAST(FLOOR((amount - 100) * 2) AS INTEGER) + 50
+         WHEN amount > 50 THEN CAST(FLOOR(amount - 50) AS INTEGER)
+         ELSE 0 END;
+
+ALTER TABLE transactions ALTER COLUMN points SET NOT NULL;
+
+-- Keep the per-customer and date-range indexes covering now that points are read instead of
+-- amounts.
+DROP INDEX idx_transactions_customer_date_amount;
+CREATE INDEX idx_transactions_customer_date_amount ON transactions (customer_id, transaction_date, amount, points);
+
+DROP INDEX idx_transactions_date_customer_amount;
+CREATE INDEX idx_transactions_date_customer_amount ON transactions (transaction_date, customer_id, amount, points);
@@ -0,0 +1,9 @@
+-- A customer's rewards version changes whenever a write changes the points of one of their
+-- transactions (see MonthlyPointsLedger), so it can back HTTP ETags without recomputing
+-- points. Versions are drawn from one sequence rather than counted per customer, so the
+-- highest version also moves on every write and new customers start with a fresh one.
+CREATE SEQUENCE rewards_version_seq START WITH 1;
+
+ALTER TABLE customers ADD COLUMN rewards_version BIGINT DEFAULT NEXT VALUE FOR rewards_version_seq NOT NULL;
+
+CREATE INDEX idx_customers_rewards_version ON customers (rewards_version);
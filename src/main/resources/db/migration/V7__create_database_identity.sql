@@ -0,0 +1,9 @@
+-- A random identity, generated once when the database is created. Local state derived from the
+-- database (the rewards projection store) is stamped with it and rebuilt when it was derived
+-- from another database, e.g. an in-memory database from an earlier run.
+CREATE TABLE database_identity (
+    id VARCHAR(36) NOT NULL,
+    CONSTRAINT pk_database_identity PRIMARY KEY (id)
+);
+
+INSERT INTO database_identity (id) VALUES (CAST(RANDOM_UUID() AS VARCHAR(36)));
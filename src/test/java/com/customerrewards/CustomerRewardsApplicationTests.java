@@ -1,6 +1,9 @@
 package com.customerrewards;
 
+import com.customerrewards.dto.CacheStatsResponse;
 import com.customerrewards.dto.CustomerRewardsResponse;
+import com.customerrewards.dto.ExportJobStatus;
+import com.customerrewards.dto.IngestionReport;
 import com.customerrewards.models.Customer;
 import com.customerrewards.models.Transaction;
 import com.customerrewards.repository.CustomerRepository;
@@ -9,26 +12,39 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@AutoConfigureObservability(tracing = false)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 class CustomerRewardsApplicationTests {
 
@@ -108,6 +124,234 @@ class CustomerRewardsApplicationTests {
         assertNotNull(customerResponse.getMonthlyPoints());
     }
 
+    @Test
+    void testGetAllCustomerRewards_KeysetPages_Integration() {
+        // Arrange: duplicate names so the id tie-breaker matters
+        LocalDateTime now = LocalDateTime.now();
+        for (String name : Arrays.asList("Alice", "Bob", "Alice", "Carol", "Bob")) {
+            Customer customer = customerRepository.save(new Customer(name, name + System.nanoTime() + "@test.com"));
+            transactionRepository.save(new Transaction(customer, new BigDecimal("60.00"), now.minusDays(1), "Page test"));
+        }
+        String url = "http://localhost:" + port + "/api/rewards";
+        List<CustomerRewardsResponse> unpaged = restTemplate.exchange(url, HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<CustomerRewardsResponse>>() {}).getBody();
+
+        // Act: walk every page of size 2
+        List<CustomerRewardsResponse> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            String pageUrl = url + "?limit=2" + (cursor == null ? "" : "&cursor=" + cursor);
+            ResponseEntity<List<CustomerRewardsResponse>> page = restTemplate.exchange(pageUrl, HttpMethod.GET, null,
+                    new ParameterizedTypeReference<List<CustomerRewardsResponse>>() {});
+            assertEquals(HttpStatus.OK, page.getStatusCode());
+            paged.addAll(page.getBody());
+            cursor = page.getHeaders().getFirst("X-Next-Cursor");
+        } while (cursor != null);
+
+        // Assert
+        assertNotNull(unpaged);
+        assertEquals(6, paged.size());
+        assertEquals(unpaged.stream().map(CustomerRewardsResponse::getCustomerName).toList(),
+                paged.stream().map(CustomerRewardsResponse::getCustomerName).toList());
+        assertEquals(365, paged.stream().filter(r -> r.getCustomerId().equals(testCustomer.getId()))
+                .findFirst().orElseThrow().getTotalPoints());
+    }
+
+    @Test
+    void testStreamAllCustomerRewards_Integration() throws Exception {
+        // Act
+        String url = "http://localhost:" + port + "/api/rewards/stream";
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+
+        String[] lines = response.getBody().split("\n");
+        assertEquals(1, lines.length);
+
+        CustomerRewardsResponse customerResponse = objectMapper.readValue(lines[0], CustomerRewardsResponse.class);
+        assertEquals(testCustomer.getId(), customerResponse.getCustomerId());
+        assertEquals(365, customerResponse.getTotalPoints()); // 90 + 25 + 250
+    }
+
+    @Test
+    void testGetSpecificCustomerRewards_CachedUntilTransactionWritten_Integration() {
+        String url = "http://localhost:" + port + "/api/rewards/" + testCustomer.getId();
+
+        // Act: the second read is served from the cache
+        assertEquals(365, restTemplate.getForEntity(url, CustomerRewardsResponse.class).getBody().getTotalPoints());
+        assertEquals(365, restTemplate.getForEntity(url, CustomerRewardsResponse.class).getBody().getTotalPoints());
+
+        // Act: a new transaction for the customer evicts the entry
+        transactionRepository.save(new Transaction(testCustomer, new BigDecimal("150.00"), LocalDateTime.now().minusDays(1), "Cache buster"));
+        CustomerRewardsResponse updated = restTemplate.getForEntity(url, CustomerRewardsResponse.class).getBody();
+
+        // Assert
+        assertNotNull(updated);
+        assertEquals(515, updated.getTotalPoints()); // 365 + 150
+        CacheStatsResponse stats = restTemplate.getForEntity(
+                "http://localhost:" + port + "/api/rewards/cache/stats", CacheStatsResponse.class).getBody();
+        assertNotNull(stats);
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertTrue(stats.getInvalidationCount() > 0);
+    }
+
+    @Test
+    void testGetCustomerRewards_ClosedMonthSnapshotRebuiltAfterBackfill_Integration() {
+        // Arrange: a window of one closed month (clear of setUp's transactions), served from its snapshot
+        YearMonth closedMonth = YearMonth.now().minusMonths(2);
+        String url = "http://localhost:" + port + "/api/rewards/" + testCustomer.getId() + "?from=" + closedMonth + "&to=" + closedMonth;
+        transactionRepository.save(new Transaction(testCustomer, new BigDecimal("110.00"), closedMonth.atDay(2).atStartOfDay(), "Closed month"));
+        assertEquals(70, restTemplate.getForEntity(url, CustomerRewardsResponse.class).getBody().getTotalPoints());
+
+        // Act: a backdated write into the closed month
+        transactionRepository.save(new Transaction(testCustomer, new BigDecimal("60.00"), closedMonth.atDay(3).atStartOfDay(), "Backfill"));
+        CustomerRewardsResponse response = restTemplate.getForEntity(url, CustomerRewardsResponse.class).getBody();
+
+        // Assert
+        assertNotNull(response);
+        assertEquals(80, response.getTotalPoints()); // 70 + 10
+        assertEquals(1, response.getMonthlyPoints().size());
+    }
+
+    @Test
+    void testIngestNdjsonBatch_Integration() {
+        // Arrange
+        String date = LocalDateTime.now().minusDays(2).withNano(0).toString();
+        String body = String.join("\n",
+                "{\"customerId\":" + testCustomer.getId() + ",\"amount\":110.00,\"transactionDate\":\"" + date + "\"}",   // 70 points
+                "{\"customerEmail\":\"integration@test.com\",\"amount\":60,\"transactionDate\":\"" + date + "\"}",   // 10 points
+                "{\"customerId\":999999,\"amount\":80.00,\"transactionDate\":\"" + date + "\"}",
+                "{\"customerId\":" + testCustomer.getId() + ",\"amount\":-5,\"transactionDate\":\"" + date + "\"}",
+                "not json");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+
+        // Act
+        ResponseEntity<IngestionReport> response = restTemplate.postForEntity(
+                "http://localhost:" + port + "/api/transactions/batch", new HttpEntity<>(body, headers), IngestionReport.class);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        IngestionReport report = response.getBody();
+        assertNotNull(report);
+        assertEquals(2, report.getAccepted());
+        assertEquals(3, report.getRejected());
+        assertEquals(3, report.getRejections().size());
+        assertEquals(1, report.getBatches().size());
+        assertEquals(5, transactionRepository.count());
+        CustomerRewardsResponse rewards = restTemplate.getForEntity(
+                "http://localhost:" + port + "/api/rewards/" + testCustomer.getId(), CustomerRewardsResponse.class).getBody();
+        assertNotNull(rewards);
+        assertEquals(445, rewards.getTotalPoints()); // 365 + 70 + 10
+    }
+
+    @Test
+    void testIngestCsvBatch_Integration() {
+        // Arrange
+        String date = LocalDateTime.now().minusDays(2).withNano(0).toString();
+        String body = "customerId,customerEmail,amount,transactionDate,description\n"
+                + testCustomer.getId() + ",,130.00," + date + ",Groceries, household\n"   // 110 points
+                + ",integration@test.com,40.00," + date + ",\n"                           // 0 points
+                + ",unknown@test.com,90.00," + date + ",Unknown customer\n";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+
+        // Act
+        IngestionReport report = restTemplate.postForEntity(
+                "http://localhost:" + port + "/api/transactions/batch", new HttpEntity<>(body, headers), IngestionReport.class).getBody();
+
+        // Assert
+        assertNotNull(report);
+        assertEquals(2, report.getAccepted());
+        assertEquals(1, report.getRejected());
+        assertEquals(4, report.getRejections().get(0).getLine());
+        assertTrue(transactionRepository.findAll().stream()
+                .anyMatch(t -> "Groceries, household".equals(t.getDescription())));
+        CustomerRewardsResponse rewards = restTemplate.getForEntity(
+                "http://localhost:" + port + "/api/rewards/" + testCustomer.getId(), CustomerRewardsResponse.class).getBody();
+        assertNotNull(rewards);
+        assertEquals(475, rewards.getTotalPoints()); // 365 + 110
+    }
+
+    @Test
+    void testExportAllCustomerRewards_Integration() throws Exception {
+        // Act
+        ResponseEntity<ExportJobStatus> started = restTemplate.postForEntity(
+                "http://localhost:" + port + "/api/rewards/exports", null, ExportJobStatus.class);
+        String statusUrl = "http://localhost:" + port + started.getHeaders().getLocation();
+        ExportJobStatus status = started.getBody();
+        for (int attempt = 0; attempt < 500 && status.getState() != ExportJobStatus.State.COMPLETED; attempt++) {
+            Thread.sleep(10);
+            status = restTemplate.getForEntity(statusUrl, ExportJobStatus.class).getBody();
+        }
+        ResponseEntity<byte[]> file = restTemplate.getForEntity(statusUrl + "/file", byte[].class);
+
+        // Assert
+        assertEquals(HttpStatus.ACCEPTED, started.getStatusCode());
+        assertEquals(ExportJobStatus.State.COMPLETED, status.getState());
+        assertEquals(1, status.getCustomersExported());
+        assertEquals(HttpStatus.OK, file.getStatusCode());
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(file.getBody()))) {
+            String[] lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+            assertEquals(2, lines.length);
+            assertTrue(lines[0].startsWith("customerId,customerName,"));
+            assertTrue(lines[1].startsWith(testCustomer.getId() + ",Integration Test Customer,"));
+            assertTrue(lines[1].endsWith(",365"));
+        }
+    }
+
+    @Test
+    void testPrometheusEndpoint_ExposesRewardsAndHibernateMetrics_Integration() {
+        // Arrange
+        restTemplate.getForEntity("http://localhost:" + port + "/api/rewards/" + testCustomer.getId(), CustomerRewardsResponse.class);
+
+        // Act
+        ResponseEntity<String> response = restTemplate.getForEntity("http://localhost:" + port + "/actuator/prometheus", String.class);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().contains("rewards_stage_seconds_bucket{"));
+        assertTrue(response.getBody().contains("rewards_transactions_scanned_total{operation=\"customer\"} 3.0"));
+        assertTrue(response.getBody().contains("hibernate_query_executions_total"));
+    }
+
+    @Test
+    void testGetSpecificCustomerRewards_NotModifiedUntilTransactionWritten_Integration() {
+        String url = "http://localhost:" + port + "/api/rewards/" + testCustomer.getId();
+        ResponseEntity<CustomerRewardsResponse> first = restTemplate.getForEntity(url, CustomerRewardsResponse.class);
+        String eTag = first.getHeaders().getETag();
+        assertNotNull(eTag);
+        HttpHeaders conditional = new HttpHeaders();
+        conditional.setIfNoneMatch(eTag);
+
+        // Act & Assert: unchanged
+        ResponseEntity<CustomerRewardsResponse> revalidated = restTemplate.exchange(
+                url, HttpMethod.GET, new HttpEntity<>(conditional), CustomerRewardsResponse.class);
+        assertEquals(HttpStatus.NOT_MODIFIED, revalidated.getStatusCode());
+
+        // Act & Assert: a new transaction moves the customer's version
+        transactionRepository.save(new Transaction(testCustomer, new BigDecimal("150.00"), LocalDateTime.now().minusDays(1), "New purchase"));
+        ResponseEntity<CustomerRewardsResponse> changed = restTemplate.exchange(
+                url, HttpMethod.GET, new HttpEntity<>(conditional), CustomerRewardsResponse.class);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertEquals(515, changed.getBody().getTotalPoints());
+        assertNotEquals(eTag, changed.getHeaders().getETag());
+
+        // Act & Assert: the summary's ETag follows the same versions
+        String allUrl = "http://localhost:" + port + "/api/rewards";
+        String allETag = restTemplate.getForEntity(allUrl, String.class).getHeaders().getETag();
+        HttpHeaders allConditional = new HttpHeaders();
+        allConditional.setIfNoneMatch(allETag);
+        assertEquals(HttpStatus.NOT_MODIFIED, restTemplate.exchange(
+                allUrl, HttpMethod.GET, new HttpEntity<>(allConditional), String.class).getStatusCode());
+        transactionRepository.save(new Transaction(testCustomer, new BigDecimal("60.00"), LocalDateTime.now().minusDays(1), "Another"));
+        assertEquals(HttpStatus.OK, restTemplate.exchange(
+                allUrl, HttpMethod.GET, new HttpEntity<>(allConditional), String.class).getStatusCode());
+    }
+
     @Test
     void testGetNonExistentCustomerRewards_Integration() {
         // Act
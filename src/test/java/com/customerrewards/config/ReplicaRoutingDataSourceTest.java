@@ -0,0 +1,175 @@
+package com.customerrewards.config;
+
+import com.customerrewards.dto.CustomerRewardsResponse;
+import com.customerrewards.dto.VersionedRewards;
+import com.customerrewards.models.Customer;
+import com.customerrewards.repository.CustomerRepository;
+import com.customerrewards.services.RewardsCache;
+import com.customerrewards.services.RewardsService;
+import com.customerrewards.services.RewardsSnapshotStore;
+import com.customerrewards.services.RewardsWindow;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and a replica. They do not replicate,
+ * so the replica is seeded directly and its heartbeat is set by hand.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing_primary",
+        "rewards.datasource.replicas[0].url=jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1",
+        "rewards.datasource.replicas[0].username=sa",
+        "rewards.datasource.max-lag=5s",
+        "rewards.datasource.lag-check-interval-ms=3600000"
+})
+public class ReplicaRoutingDataSourceTest {
+
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private RewardsService rewardsService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private RewardsSnapshotStore rewardsSnapshotStore;
+
+    @Autowired
+    private RewardsCache rewardsCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.update("DELETE FROM customer_monthly_points");
+        replica.update("DELETE FROM transactions");
+        replica.update("DELETE FROM customers");
+        replica.update("INSERT INTO customers (id, name, email) VALUES (1000, 'Replica Customer', 'replica@test.com')");
+        replica.update("INSERT INTO transactions (id, customer_id, amount, transaction_date, description, points) VALUES (1000, 1000, 120.00, ?, 'On the replica', 90)",
+                Timestamp.valueOf(LocalDateTime.now().withDayOfMonth(1).withHour(0)));
+    }
+
+    @Test
+    void testReadOnlyReads_GoToFreshReplica_WritesToPrimary() {
+        // Arrange
+        replica.update("UPDATE replication_heartbeat SET beat_at = ? WHERE id = 1", Timestamp.from(Instant.now()));
+        replicaLagMonitor.checkLag();
+
+        // Act
+        List<CustomerRewardsResponse> rewards = rewardsService.getCustomerRewards(
+                RewardsWindow.of(YearMonth.now(), YearMonth.now(), null));
+        customerRepository.save(new Customer("Primary Customer", "primary@test.com"));
+
+        // Assert
+        assertEquals(List.of("Replica Customer"), rewards.stream().map(CustomerRewardsResponse::getCustomerName).toList());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customers WHERE email = 'primary@test.com'", Integer.class));
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM customers WHERE email = 'primary@test.com'", Integer.class));
+    }
+
+    @Test
+    void testReadOnlyReads_FallBackToPrimaryWhenReplicaIsStale() {
+        // Arrange
+        replica.update("UPDATE replication_heartbeat SET beat_at = ? WHERE id = 1", Timestamp.from(Instant.now().minusSeconds(60)));
+        replicaLagMonitor.checkLag();
+
+        // Act
+        List<String> names = rewardsService.getCustomerRewards(RewardsWindow.of(YearMonth.now(), YearMonth.now(), null))
+                .stream().map(CustomerRewardsResponse::getCustomerName).toList();
+
+        // Assert: the sample data loaded into the primary
+        assertFalse(names.contains("Replica Customer"));
+        assertTrue(names.contains("Alice Johnson"));
+    }
+
+    @Test
+    void testClosedMonthSnapshots_BuiltOnPrimary() {
+        // Arrange: only the replica has points in the closed month
+        YearMonth lastMonth = YearMonth.now().minusMonths(1);
+        replica.update("INSERT INTO customer_monthly_points (customer_id, month_key, points, transaction_count) VALUES (1000, ?, 90, 1)",
+                lastMonth.toString());
+        replica.update("UPDATE replication_heartbeat SET beat_at = ? WHERE id = 1", Timestamp.from(Instant.now()));
+        replicaLagMonitor.checkLag();
+        rewardsSnapshotStore.clear();
+
+        // Act
+        List<String> names = rewardsService.getCustomerRewards(RewardsWindow.of(lastMonth, lastMonth, null))
+                .stream().map(CustomerRewardsResponse::getCustomerName).toList();
+
+        // Assert: a snapshot outlives the read that built it, so it is never taken from a replica
+        assertFalse(names.contains("Replica Customer"));
+    }
+
+    @Test
+    void testCachedCustomerRewards_ReadFromPrimary() {
+        // Arrange: the fresh replica has not applied the primary's rename and points yet
+        jdbcTemplate.update("INSERT INTO customers (id, name, email) VALUES (1000, 'Primary Customer', 'replica@test.com')");
+        replica.update("UPDATE replication_heartbeat SET beat_at = ? WHERE id = 1", Timestamp.from(Instant.now()));
+        replicaLagMonitor.checkLag();
+        rewardsCache.evictCustomer(1000L);
+
+        try {
+            // Act
+            VersionedRewards<CustomerRewardsResponse> cached = rewardsService.getVersionedCustomerRewards(1000L, RewardsWindow.defaultWindow());
+            VersionedRewards<CustomerRewardsResponse> uncached = rewardsService.getVersionedCustomerRewards(1000L,
+                    RewardsWindow.of(YearMonth.now(), YearMonth.now(), null));
+
+            // Assert: the cached entry outlives the replica's lag, so it is never taken from a replica
+            assertEquals("Primary Customer", cached.getRewards().getCustomerName());
+            assertEquals(0, cached.getRewards().getTotalPoints());
+            assertEquals("Replica Customer", uncached.getRewards().getCustomerName());
+        } finally {
+            rewardsCache.evictCustomer(1000L);
+            jdbcTemplate.update("DELETE FROM customers WHERE id = 1000");
+        }
+    }
+
+    @Test
+    void testSelect_RoundRobinOverFreshReplicasOnly() {
+        // Arrange
+        DataSource primary = mock(DataSource.class);
+        DataSource first = mock(DataSource.class);
+        DataSource second = mock(DataSource.class);
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, Map.of("first", first, "second", second),
+                ReplicaRoutingDataSource.Selection.ROUND_ROBIN, Duration.ofSeconds(5));
+
+        // Act & Assert: lag unknown, so nothing is fresh
+        assertSame(primary, routing.select());
+
+        routing.recordLag("first", Duration.ZERO);
+        routing.recordLag("second", Duration.ofSeconds(1));
+        DataSource a = routing.select();
+        DataSource b = routing.select();
+        assertNotSame(a, b);
+        assertSame(a, routing.select());
+
+        routing.recordLag("second", Duration.ofSeconds(30));
+        assertSame(first, routing.select());
+        assertSame(first, routing.select());
+    }
+}
@@ -0,0 +1,194 @@
+package com.customerrewards.config;
+
+import com.customerrewards.dto.CustomerRewardsResponse;
+import com.customerrewards.dto.IngestionReport;
+import com.customerrewards.models.Transaction;
+import com.customerrewards.repository.CustomerRepository;
+import com.customerrewards.repository.TransactionRepository;
+import com.customerrewards.services.RewardsService;
+import com.customerrewards.services.RewardsWindow;
+import com.customerrewards.services.ShardRouter;
+import com.customerrewards.services.TransactionIngestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Three in-memory H2 databases stand in for the shards. Customers are seeded directly on the
+ * shard their id hashes to; transactions go through ingestion.
+ */
+@SpringBootTest(properties = {
+        "rewards.sharding.shards[0].url=" + ShardRoutingDataSourceTest.SHARD_URL + "0;DB_CLOSE_DELAY=-1",
+        "rewards.sharding.shards[0].username=sa",
+        "rewards.sharding.shards[1].url=" + ShardRoutingDataSourceTest.SHARD_URL + "1;DB_CLOSE_DELAY=-1",
+        "rewards.sharding.shards[1].username=sa",
+        "rewards.sharding.shards[2].url=" + ShardRoutingDataSourceTest.SHARD_URL + "2;DB_CLOSE_DELAY=-1",
+        "rewards.sharding.shards[2].username=sa"
+})
+@DirtiesContext
+public class ShardRoutingDataSourceTest {
+
+    static final String SHARD_URL = "jdbc:h2:mem:routing_shard";
+    private static final int CUSTOMERS = 30;
+
+    @Autowired
+    private RewardsService rewardsService;
+
+    @Autowired
+    private TransactionIngestionService transactionIngestionService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardRoutingDataSource shardRoutingDataSource;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (int shard = 0; shard < 3; shard++) {
+            JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(SHARD_URL + shard + ";DB_CLOSE_DELAY=-1", "sa", ""));
+            jdbc.update("DELETE FROM transactions");
+            jdbc.update("DELETE FROM customer_monthly_points");
+            jdbc.update("DELETE FROM customers");
+            shards.add(jdbc);
+        }
+
+        StringBuilder upload = new StringBuilder();
+        LocalDateTime now = LocalDateTime.now().withDayOfMonth(1).withHour(12);
+        for (long id = 1; id <= CUSTOMERS; id++) {
+            shards.get(shardRouter.shardFor(id)).update("INSERT INTO customers (id, name, email) VALUES (?, ?, ?)",
+                    id, String.format("Customer %02d", CUSTOMERS + 1 - id), "customer" + id + "@test.com");
+            upload.append(String.format("{\"customerId\":%d,\"amount\":120.00,\"transactionDate\":\"%s\"}%n", id, now));
+        }
+        IngestionReport report = transactionIngestionService.ingest(
+                new ByteArrayInputStream(upload.toString().getBytes(StandardCharsets.UTF_8)), TransactionIngestionService.Format.NDJSON);
+        assertEquals(CUSTOMERS, report.getAccepted());
+    }
+
+    @Test
+    void testIngest_WritesEachTransactionToItsCustomersShard() {
+        // Act & Assert
+        int total = 0;
+        for (int shard = 0; shard < 3; shard++) {
+            List<Long> customerIds = shards.get(shard).queryForList("SELECT customer_id FROM transactions", Long.class);
+            for (Long customerId : customerIds) {
+                assertEquals(shard, shardRouter.shardFor(customerId));
+            }
+            assertFalse(customerIds.isEmpty());
+            total += customerIds.size();
+        }
+        assertEquals(CUSTOMERS, total);
+    }
+
+    @Test
+    void testGetCustomerRewards_SingleCustomerTouchesOnlyItsShard() {
+        // Arrange
+        long customerId = 7;
+        int home = shardRouter.shardFor(customerId);
+        long[] before = connectionCounts();
+
+        // Act
+        CustomerRewardsResponse rewards = rewardsService.getCustomerRewards(customerId,
+                RewardsWindow.of(YearMonth.now(), YearMonth.now(), null));
+
+        // Assert
+        assertEquals(90, rewards.getTotalPoints());
+        long[] after = connectionCounts();
+        for (int shard = 0; shard < 3; shard++) {
+            if (shard == home) {
+                assertTrue(after[shard] > before[shard]);
+            } else {
+                assertEquals(before[shard], after[shard], "Shard " + shard + " was queried");
+            }
+        }
+    }
+
+    @Test
+    void testGetCustomerRewards_MergesAllShardsInNameOrder() {
+        // Act
+        List<CustomerRewardsResponse> rewards = rewardsService.getCustomerRewards(
+                RewardsWindow.of(YearMonth.now(), YearMonth.now(), null));
+
+        // Assert
+        assertEquals(CUSTOMERS, rewards.size());
+        for (int i = 0; i < CUSTOMERS; i++) {
+            assertEquals(String.format("Customer %02d", i + 1), rewards.get(i).getCustomerName());
+            assertEquals(90, rewards.get(i).getTotalPoints());
+        }
+    }
+
+    @Test
+    void testStreamCustomerRewards_MergesAllShardsInNameOrder() {
+        // Act
+        List<CustomerRewardsResponse> rewards = new ArrayList<>();
+        rewardsService.streamCustomerRewards(RewardsWindow.of(YearMonth.now(), YearMonth.now(), null), rewards::add);
+
+        // Assert
+        assertEquals(CUSTOMERS, rewards.size());
+        for (int i = 0; i < CUSTOMERS; i++) {
+            assertEquals(String.format("Customer %02d", i + 1), rewards.get(i).getCustomerName());
+            assertEquals(90, rewards.get(i).getTotalPoints());
+        }
+    }
+
+    @Test
+    void testJpaWrite_OnlyOnTheCustomersShard() {
+        // Arrange: a customer that does not live on shard 0
+        long customerId = 1;
+        while (shardRouter.shardFor(customerId) == 0) {
+            customerId++;
+        }
+        long id = customerId;
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        LocalDateTime now = LocalDateTime.now().withDayOfMonth(1).withHour(13);
+
+        // Act & Assert: unrouted, the write would land on shard 0
+        assertThrows(RuntimeException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                transactionRepository.save(new Transaction(customerRepository.getReferenceById(id), new BigDecimal("120.00"), now, "Unrouted"))));
+
+        // Act: routed to the customer's shard
+        shardRouter.onShardOf(id, () -> transactionTemplate.execute(status ->
+                transactionRepository.save(new Transaction(customerRepository.getReferenceById(id), new BigDecimal("120.00"), now, "Routed"))));
+
+        // Assert
+        CustomerRewardsResponse rewards = rewardsService.getCustomerRewards(id, RewardsWindow.of(YearMonth.now(), YearMonth.now(), null));
+        assertEquals(180, rewards.getTotalPoints());
+        assertEquals(0, shards.get(0).queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE customer_id = ?", Integer.class, id));
+    }
+
+    private long[] connectionCounts() {
+        long[] counts = new long[3];
+        for (int shard = 0; shard < 3; shard++) {
+            counts[shard] = shardRoutingDataSource.getConnectionCount(shard);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,66 @@
+package com.customerrewards.config;
+
+import com.customerrewards.repository.CustomerRepository;
+import com.customerrewards.repository.TransactionRepository;
+import com.customerrewards.services.MonthlyPointsReconciler;
+import com.customerrewards.models.Customer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:generator_test",
+        "rewards.generator.customers=120",
+        "rewards.generator.transactions-per-customer=7",
+        "rewards.generator.batch-size=100",
+        "rewards.generator.date-spread-days=30"
+})
+@ActiveProfiles("generator")
+public class SyntheticDataGeneratorTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MonthlyPointsReconciler monthlyPointsReconciler;
+
+    @Test
+    void testGenerate_LoadsConfiguredVolumeInsteadOfSampleData() {
+        assertEquals(120, customerRepository.count());
+        assertEquals(840, transactionRepository.count());
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM customers WHERE email LIKE '%@email.com'", Integer.class));
+
+        BigDecimal minAmount = jdbcTemplate.queryForObject("SELECT MIN(amount) FROM transactions", BigDecimal.class);
+        BigDecimal maxAmount = jdbcTemplate.queryForObject("SELECT MAX(amount) FROM transactions", BigDecimal.class);
+        assertTrue(minAmount.compareTo(new BigDecimal("1.00")) >= 0);
+        assertTrue(maxAmount.compareTo(new BigDecimal("1000.00")) <= 0);
+    }
+
+    @Test
+    void testGenerate_IdsStayCompatibleWithHibernateAllocation() {
+        // A JPA insert after the JDBC bulk load must not collide with a generated id
+        Customer customer = customerRepository.save(new Customer("After Generator", "after@generator.test"));
+
+        assertNotNull(customer.getId());
+        assertEquals(121, customerRepository.count());
+        customerRepository.delete(customer);
+    }
+
+    @Test
+    void testGenerate_RollupReconciledAfterLoad() {
+        assertEquals(0, monthlyPointsReconciler.reconcile().getDriftedRows());
+    }
+}
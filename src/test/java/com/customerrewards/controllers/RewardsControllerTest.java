@@ -1,7 +1,12 @@
 package com.customerrewards.controllers;
 
+import com.customerrewards.config.RewardsBinaryHttpMessageConverter;
+import com.customerrewards.config.WebConfig;
 import com.customerrewards.dto.CustomerRewardsResponse;
+import com.customerrewards.dto.RewardsPage;
+import com.customerrewards.dto.VersionedRewards;
 import com.customerrewards.services.RewardsService;
+import com.customerrewards.services.RewardsWindow;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.MediaType;
@@ -12,21 +17,37 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 
 @WebMvcTest
-@ContextConfiguration(classes = {RewardsController.class})
+@ContextConfiguration(classes = {RewardsController.class, WebConfig.class})
 @ActiveProfiles("test")
 public class RewardsControllerTest {
 
@@ -50,7 +71,7 @@ public class RewardsControllerTest {
                 new CustomerRewardsResponse(2L, "Bob Smith", monthlyPoints, 200)
         );
 
-        when(rewardsService.getCustomerRewards()).thenReturn(mockResponses);
+        when(rewardsService.getVersionedCustomerRewards(RewardsWindow.defaultWindow())).thenReturn(new VersionedRewards<>("2-7", mockResponses));
 
         // Act & Assert
         mockMvc.perform(get("/api/rewards")
@@ -65,6 +86,37 @@ public class RewardsControllerTest {
 
     }
 
+    @Test
+    void testGetAllCustomerRewards_Paged() throws Exception {
+        // Arrange
+        Map<String, Integer> monthlyPoints = new HashMap<>();
+        monthlyPoints.put("2024-09", 150);
+
+        RewardsPage page = new RewardsPage(
+                List.of(new CustomerRewardsResponse(1L, "Alice Johnson", monthlyPoints, 150)), "next-token");
+        when(rewardsService.getCustomerRewardsPage(null, 1, RewardsWindow.defaultWindow())).thenReturn(page);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/rewards").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "next-token"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].customerName").value("Alice Johnson"));
+    }
+
+    @Test
+    void testGetAllCustomerRewards_InvalidCursorOrLimit() throws Exception {
+        // Arrange
+        when(rewardsService.getCustomerRewardsPage("garbage", 100, RewardsWindow.defaultWindow()))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: garbage"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/rewards").param("cursor", "garbage"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/rewards").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testGetCustomerRewards_SpecificCustomer() throws Exception {
         // Arrange
@@ -73,7 +125,7 @@ public class RewardsControllerTest {
 
         CustomerRewardsResponse mockResponse = new CustomerRewardsResponse(1L, "Alice Johnson", monthlyPoints, 150);
 
-        when(rewardsService.getCustomerRewards(1L)).thenReturn(mockResponse);
+        when(rewardsService.getVersionedCustomerRewards(1L, RewardsWindow.defaultWindow())).thenReturn(new VersionedRewards<>("42", mockResponse));
 
         // Act & Assert
         mockMvc.perform(get("/api/rewards/{customerId}", 1L)
@@ -85,10 +137,37 @@ public class RewardsControllerTest {
                 .andExpect(jsonPath("$.totalPoints").value(150));
     }
 
+    @Test
+    void testGetCustomerRewards_Window() throws Exception {
+        // Arrange
+        YearMonth lastMonth = YearMonth.now().minusMonths(1);
+        RewardsWindow window = RewardsWindow.of(lastMonth.minusMonths(5), lastMonth, LocalDate.now());
+        when(rewardsService.getVersionedCustomerRewards(1L, window))
+                .thenReturn(new VersionedRewards<>("42", new CustomerRewardsResponse(1L, "Alice Johnson", new HashMap<>(), 0)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/rewards/{customerId}", 1L)
+                        .param("from", lastMonth.minusMonths(5).toString())
+                        .param("to", lastMonth.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.customerName").value("Alice Johnson"));
+    }
+
+    @Test
+    void testGetCustomerRewards_InvalidWindow() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/rewards/{customerId}", 1L).param("from", "2025-13"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/rewards").param("from", "2025-03").param("to", "2025-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/rewards").param("asOf", LocalDate.now().plusDays(1).toString()))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testGetCustomerRewards_NotFound() throws Exception {
         // Arrange
-        when(rewardsService.getCustomerRewards(999L))
+        when(rewardsService.getVersionedCustomerRewards(eq(999L), any(RewardsWindow.class)))
                 .thenThrow(new RuntimeException("Customer not found"));
 
         // Act & Assert
@@ -96,4 +175,197 @@ public class RewardsControllerTest {
                 .andDo(print())
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    void testGetCustomerRewards_NotModifiedWhileVersionUnchanged() throws Exception {
+        // Arrange
+        when(rewardsService.getRewardsVersion(1L)).thenReturn(Optional.of(42L));
+        when(rewardsService.getVersionedCustomerRewards(1L, RewardsWindow.defaultWindow()))
+                .thenReturn(new VersionedRewards<>("42", new CustomerRewardsResponse(1L, "Alice Johnson", new HashMap<>(), 0)));
+
+        // Act: an unconditional request takes its tag from the version read with the body
+        String eTag = mockMvc.perform(get("/api/rewards/{customerId}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+        verify(rewardsService, never()).getRewardsVersion(1L);
+
+        // Assert: the revalidation reads only the version
+        mockMvc.perform(get("/api/rewards/{customerId}", 1L).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag))
+                .andExpect(content().string(""));
+        verify(rewardsService).getVersionedCustomerRewards(1L, RewardsWindow.defaultWindow());
+
+        // Act & Assert: a new version is a new representation
+        when(rewardsService.getRewardsVersion(1L)).thenReturn(Optional.of(43L));
+        when(rewardsService.getVersionedCustomerRewards(1L, RewardsWindow.defaultWindow()))
+                .thenReturn(new VersionedRewards<>("43", new CustomerRewardsResponse(1L, "Alice Johnson", new HashMap<>(), 0)));
+        mockMvc.perform(get("/api/rewards/{customerId}", 1L).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.customerName").value("Alice Johnson"));
+    }
+
+    @Test
+    void testGetCustomerRewards_TagDescribesTheBodySent() throws Exception {
+        // Arrange: a write lands between the revalidation's version read and the body
+        when(rewardsService.getRewardsVersion(1L)).thenReturn(Optional.of(43L));
+        when(rewardsService.getVersionedCustomerRewards(1L, RewardsWindow.defaultWindow()))
+                .thenReturn(new VersionedRewards<>("44", new CustomerRewardsResponse(1L, "Alice Johnson", new HashMap<>(), 0)));
+        String staleTag = RewardsController.eTag("1.42", RewardsWindow.defaultWindow(), null);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/rewards/{customerId}", 1L).header("If-None-Match", staleTag))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues("ETag", RewardsController.eTag("1.44", RewardsWindow.defaultWindow(), null)));
+    }
+
+    @Test
+    void testGetAllCustomerRewards_NotModifiedWhileVersionUnchanged() throws Exception {
+        // Arrange
+        when(rewardsService.getRewardsVersion()).thenReturn("3-17");
+        String eTag = RewardsController.eTag("all.3-17", RewardsWindow.defaultWindow(), null);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/rewards").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+        verify(rewardsService, never()).getVersionedCustomerRewards(any(RewardsWindow.class));
+
+        // Act & Assert: the binary encoding is a different representation
+        when(rewardsService.getVersionedCustomerRewards(RewardsWindow.defaultWindow())).thenReturn(new VersionedRewards<>("3-17", List.of()));
+        mockMvc.perform(get("/api/rewards").header("If-None-Match", eTag)
+                        .accept(RewardsBinaryHttpMessageConverter.APPLICATION_REWARDS_PROTOBUF))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testStreamAllCustomerRewards_WritesOneJsonLinePerCustomer() throws Exception {
+        // Arrange
+        Map<String, Integer> monthlyPoints = new HashMap<>();
+        monthlyPoints.put("2024-09", 150);
+
+        doAnswer(invocation -> {
+            Consumer<CustomerRewardsResponse> sink = invocation.getArgument(1);
+            sink.accept(new CustomerRewardsResponse(1L, "Alice Johnson", monthlyPoints, 150));
+            sink.accept(new CustomerRewardsResponse(2L, "Bob Smith", monthlyPoints, 200));
+            return null;
+        }).when(rewardsService).streamCustomerRewards(any(RewardsWindow.class), any());
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/rewards/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("Alice Johnson", objectMapper.readValue(lines[0], CustomerRewardsResponse.class).getCustomerName());
+        assertEquals(200, objectMapper.readValue(lines[1], CustomerRewardsResponse.class).getTotalPoints());
+    }
+
+    @Test
+    void testGetAllCustomerRewards_BinaryWhenRequested() throws Exception {
+        // Arrange
+        Map<String, Integer> monthlyPoints = new HashMap<>();
+        monthlyPoints.put("2024-10", 40);
+        monthlyPoints.put("2024-09", 150);
+
+        when(rewardsService.getVersionedCustomerRewards(RewardsWindow.defaultWindow())).thenReturn(new VersionedRewards<>("2-7", List.of(
+                new CustomerRewardsResponse(1L, "Alice Johnson", monthlyPoints, 190),
+                new CustomerRewardsResponse(300L, "Bob Smith", new HashMap<>(), 0))));
+
+        // Act
+        byte[] body = mockMvc.perform(get("/api/rewards").accept(RewardsBinaryHttpMessageConverter.APPLICATION_REWARDS_PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(RewardsBinaryHttpMessageConverter.APPLICATION_REWARDS_PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        List<CustomerRewardsResponse> decoded = decode(body);
+        assertEquals(2, decoded.size());
+        assertEquals(1L, decoded.get(0).getCustomerId());
+        assertEquals("Alice Johnson", decoded.get(0).getCustomerName());
+        assertEquals(190, decoded.get(0).getTotalPoints());
+        assertEquals(monthlyPoints, decoded.get(0).getMonthlyPoints());
+        assertEquals(300L, decoded.get(1).getCustomerId());
+        assertEquals(0, decoded.get(1).getMonthlyPoints().size());
+    }
+
+    @Test
+    void testStreamAllCustomerRewards_BinaryWhenRequested() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            Consumer<CustomerRewardsResponse> sink = invocation.getArgument(1);
+            sink.accept(new CustomerRewardsResponse(1L, "Alice Johnson", Map.of("2024-09", 150), 150));
+            sink.accept(new CustomerRewardsResponse(2L, null, Map.of("2024-09", -5), -5));
+            return null;
+        }).when(rewardsService).streamCustomerRewards(any(RewardsWindow.class), any());
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/rewards/stream")
+                        .accept(RewardsBinaryHttpMessageConverter.APPLICATION_REWARDS_PROTOBUF))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(RewardsBinaryHttpMessageConverter.APPLICATION_REWARDS_PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<CustomerRewardsResponse> decoded = decode(body);
+        assertEquals(2, decoded.size());
+        assertEquals("Alice Johnson", decoded.get(0).getCustomerName());
+        assertEquals(null, decoded.get(1).getCustomerName());
+        assertEquals(-5, decoded.get(1).getTotalPoints());
+        assertEquals(Map.of("2024-09", -5), decoded.get(1).getMonthlyPoints());
+    }
+
+    /** Reads the length-delimited CustomerRewards messages of a binary response. */
+    private static List<CustomerRewardsResponse> decode(byte[] body) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        List<CustomerRewardsResponse> responses = new ArrayList<>();
+        while (in.available() > 0) {
+            int end = body.length - in.available() + (int) readVarint(in);
+            CustomerRewardsResponse response = new CustomerRewardsResponse(null, null, new HashMap<>(), null);
+            while (body.length - in.available() < end) {
+                int tag = (int) readVarint(in);
+                switch (tag) {
+                    case 0x08 -> response.setCustomerId(readVarint(in));
+                    case 0x12 -> response.setCustomerName(new String(in.readNBytes((int) readVarint(in)), StandardCharsets.UTF_8));
+                    case 0x18 -> response.setTotalPoints(unZigZag(readVarint(in)));
+                    case 0x22 -> {
+                        readVarint(in);
+                        assertEquals(0x08, readVarint(in));
+                        int month = (int) readVarint(in);
+                        assertEquals(0x10, readVarint(in));
+                        response.getMonthlyPoints().put(YearMonth.of(month / 12, month % 12 + 1).toString(), unZigZag(readVarint(in)));
+                    }
+                    default -> throw new AssertionError("Unexpected tag " + tag);
+                }
+            }
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    private static long readVarint(ByteArrayInputStream in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int unZigZag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
 }
@@ -0,0 +1,71 @@
+package com.customerrewards.respository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL Hibernate prepares, so query plan tests can EXPLAIN the statements the
+ * repositories really run. Register it with
+ * spring.jpa.properties.hibernate.session_factory.statement_inspector.
+ */
+public class CapturedStatements implements StatementInspector {
+
+    private static final List<String> statements = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (statements) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    public static void clear() {
+        synchronized (statements) {
+            statements.clear();
+        }
+    }
+
+    /** The last statement prepared since clear(). */
+    public static String last() {
+        synchronized (statements) {
+            if (statements.isEmpty()) {
+                throw new IllegalStateException("No statement was prepared");
+            }
+            return statements.get(statements.size() - 1);
+        }
+    }
+
+    /**
+     * Runs EXPLAIN (H2) on a captured statement with its parameters bound in order.
+     */
+    public static String explain(Connection connection, String sql, Object... parameters) throws SQLException {
+        return plan(connection, "EXPLAIN " + sql, parameters);
+    }
+
+    /**
+     * Runs EXPLAIN ANALYZE (H2) on a captured statement with its parameters bound in order, and
+     * returns the plan annotated with the rows each table access scanned.
+     */
+    public static String explainAnalyze(Connection connection, String sql, Object... parameters) throws SQLException {
+        return plan(connection, "EXPLAIN ANALYZE " + sql, parameters);
+    }
+
+    private static String plan(Connection connection, String explain, Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(explain)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet plan = statement.executeQuery()) {
+                plan.next();
+                return plan.getString(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.customerrewards.respository;
+
+import com.customerrewards.dto.CustomerName;
+import com.customerrewards.repository.CustomerRepository;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the customer page queries and checks, with EXPLAIN ANALYZE on the SQL Hibernate
+ * generated, how many index rows a page costs.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.customerrewards.respository.CapturedStatements")
+public class CustomerQueryPlanTest {
+
+    private static final int CUSTOMERS = 20_000;
+    private static final int PAGE_SIZE = 100;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 4, 1, 0, 0);
+    private static final Pattern SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @BeforeEach
+    void setUp() {
+        // one transaction per customer in the window; ids well clear of the sequences
+        entityManager.getEntityManager().createNativeQuery("INSERT INTO customers (id, name, email) " +
+                "SELECT 1000000 + X, 'Customer ' || LPAD(X, 5, '0'), 'customer' || X || '@plan.com' " +
+                "FROM SYSTEM_RANGE(1, " + CUSTOMERS + ")").executeUpdate();
+        entityManager.getEntityManager().createNativeQuery("INSERT INTO transactions " +
+                "(id, customer_id, amount, transaction_date, description, points) " +
+                "SELECT 1000000 + X, 1000000 + X, 75.00, TIMESTAMP '2025-02-01 12:00:00', 'Purchase', 25 " +
+                "FROM SYSTEM_RANGE(1, " + CUSTOMERS + ")").executeUpdate();
+    }
+
+    @Test
+    void testDeepPageSeeksNameIndex() throws Exception {
+        // Arrange: the cursor is the last customer of a page near the end
+        String afterName = "Customer 19000";
+        long afterId = 1_019_000;
+        CapturedStatements.clear();
+
+        // Act
+        List<CustomerName> page = customerRepository.findPageWithTransactionsAfter(afterName, afterId, START, END, Limit.of(PAGE_SIZE));
+        String plan = entityManager.getEntityManager().unwrap(Session.class).doReturningWork(connection ->
+                CapturedStatements.explainAnalyze(connection, CapturedStatements.last(),
+                        afterName, afterName, afterId, Timestamp.valueOf(START), Timestamp.valueOf(END), PAGE_SIZE));
+
+        // Assert: only the page (and the row that ends it) is read, not the 19,000 customers before it
+        assertEquals(PAGE_SIZE, page.size());
+        assertEquals("Customer 19001", page.get(0).getName());
+        assertTrue(plan.contains("IDX_CUSTOMERS_NAME_ID"), plan);
+        assertTrue(customerScanCount(plan) <= 2 * PAGE_SIZE, plan);
+    }
+
+    @Test
+    void testPagesFollowEachOtherAcrossNameTies() {
+        // Arrange: two customers share the name that ends the first page
+        entityManager.getEntityManager().createNativeQuery("UPDATE customers SET name = 'Customer 00002' WHERE id = 1000003")
+                .executeUpdate();
+
+        // Act
+        List<CustomerName> first = customerRepository.findFirstPageWithTransactions(START, END, Limit.of(2));
+        CustomerName last = first.get(first.size() - 1);
+        List<CustomerName> second = customerRepository.findPageWithTransactionsAfter(last.getName(), last.getId(), START, END, Limit.of(2));
+
+        // Assert
+        assertEquals(List.of(1_000_001L, 1_000_002L), first.stream().map(CustomerName::getId).toList());
+        assertEquals(List.of(1_000_003L, 1_000_004L), second.stream().map(CustomerName::getId).toList());
+    }
+
+    /** Rows scanned on the customers table, the first table access in the plan. */
+    private static long customerScanCount(String plan) {
+        Matcher matcher = SCAN_COUNT.matcher(plan);
+        assertTrue(matcher.find(), plan);
+        return Long.parseLong(matcher.group(1));
+    }
+}
@@ -0,0 +1,105 @@
+package com.customerrewards.respository;
+
+import com.customerrewards.models.Customer;
+import com.customerrewards.models.Transaction;
+import com.customerrewards.repository.TransactionRepository;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks with EXPLAIN that the SQL Hibernate generates for the repository's range queries is
+ * served by the indexes from the Flyway migrations, so dropping or reshaping an index, or a
+ * query change that reads a column the index does not hold, fails the build.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.customerrewards.respository.CapturedStatements")
+public class TransactionQueryPlanTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 4, 1, 0, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = entityManager.persist(new Customer("Plan Customer", "plan@email.com"));
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 12, 0);
+        for (int i = 0; i < 200; i++) {
+            entityManager.persist(new Transaction(customer, new BigDecimal("75.00"), start.plusDays(i), "Purchase " + i));
+        }
+        entityManager.flush();
+        CapturedStatements.clear();
+    }
+
+    @Test
+    void testCustomerAndDateRangeQueryUsesCoveringIndex() throws Exception {
+        // Act
+        transactionRepository.findAmountsByCustomerIdAndDateRange(customer.getId(), START, END);
+        String sql = CapturedStatements.last();
+        String plan = explain(sql, customer.getId(), Timestamp.valueOf(START), Timestamp.valueOf(END));
+
+        // Assert: id, amount and points are all read from the index
+        assertTrue(sql.contains(".points"), sql);
+        assertTrue(plan.contains("IDX_TRANSACTIONS_CUSTOMER_DATE_AMOUNT"), plan);
+        assertFalse(plan.contains("tableScan"), plan);
+        assertEquals(List.of("CUSTOMER_ID", "TRANSACTION_DATE", "AMOUNT", "POINTS"),
+                indexColumns("IDX_TRANSACTIONS_CUSTOMER_DATE_AMOUNT"));
+    }
+
+    @Test
+    void testDateRangeQueryUsesDateIndex() throws Exception {
+        // Act
+        transactionRepository.findTransactionsByDateRange(START, END);
+        String plan = explain(CapturedStatements.last(), Timestamp.valueOf(START), Timestamp.valueOf(END));
+
+        // Assert
+        assertTrue(plan.contains("IDX_TRANSACTIONS_DATE_CUSTOMER_AMOUNT"), plan);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+
+    @Test
+    void testMonthlyAggregationUsesCoveringIndex() throws Exception {
+        // Act
+        transactionRepository.sumPointsByCustomerAndMonth(START, END);
+        String sql = CapturedStatements.last();
+        String plan = explain(sql, Timestamp.valueOf(START), Timestamp.valueOf(END));
+
+        // Assert: the sum reads the stored points, which the date index covers
+        assertTrue(sql.contains("sum(t1_0.points)"), sql);
+        assertFalse(sql.contains("amount"), sql);
+        assertTrue(plan.contains("IDX_TRANSACTIONS_DATE_CUSTOMER_AMOUNT"), plan);
+        assertFalse(plan.contains("tableScan"), plan);
+        assertEquals(List.of("TRANSACTION_DATE", "CUSTOMER_ID", "AMOUNT", "POINTS"),
+                indexColumns("IDX_TRANSACTIONS_DATE_CUSTOMER_AMOUNT"));
+    }
+
+    /** The index's columns in order; H2's plan names the index but not whether it covers. */
+    @SuppressWarnings("unchecked")
+    private List<String> indexColumns(String index) {
+        return entityManager.getEntityManager().createNativeQuery("SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS " +
+                "WHERE INDEX_NAME = ?1 ORDER BY ORDINAL_POSITION").setParameter(1, index).getResultList();
+    }
+
+    private String explain(String sql, Object... parameters) {
+        return entityManager.getEntityManager().unwrap(Session.class).doReturningWork(connection ->
+                CapturedStatements.explain(connection, sql, parameters));
+    }
+}
@@ -1,8 +1,10 @@
 package com.customerrewards.respository;
 
+import com.customerrewards.dto.CustomerMonthlyPoints;
 import com.customerrewards.models.Customer;
 import com.customerrewards.models.Transaction;
 import com.customerrewards.repository.TransactionRepository;
+import com.customerrewards.services.RewardPoints;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -10,7 +12,11 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -79,4 +85,43 @@ public class TransactionRepositoryTest {
         assertEquals("Customer 1 Transaction", result.get(0).getDescription());
         assertEquals(customer1.getId(), result.get(0).getCustomer().getId());
     }
+
+    @Test
+    void testSumPointsByCustomerAndMonth_MatchesCalculateRewardPoints() {
+        // Arrange: amounts around every tier boundary, spread over two customers and three months
+        Customer customer1 = entityManager.persistAndFlush(new Customer("Customer 1", "customer1@email.com"));
+        Customer customer2 = entityManager.persistAndFlush(new Customer("Customer 2", "customer2@email.com"));
+
+        String[] amounts = {"0.01", "49.99", "50.00", "50.01", "50.99", "51.00", "99.99", "100.00",
+                "100.01", "100.49", "100.50", "100.51", "120.15", "150.75", "9999.99", "12345678.99"};
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < amounts.length; i++) {
+            Customer customer = i % 2 == 0 ? customer1 : customer2;
+            LocalDateTime date = LocalDateTime.of(2024, 1 + i % 3, 1 + i, 12, 0);
+            transactions.add(new Transaction(customer, new BigDecimal(amounts[i]), date, "Boundary " + amounts[i]));
+        }
+        transactions.forEach(entityManager::persist);
+        entityManager.flush();
+
+        LocalDateTime startDate = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime endDate = LocalDateTime.of(2024, 4, 1, 0, 0);
+
+        // Expected: fold the reference implementation over the same rows
+        Map<String, Long> expected = new HashMap<>();
+        for (Transaction t : transactions) {
+            String key = t.getCustomer().getId() + "/" + YearMonth.from(t.getTransactionDate());
+            expected.merge(key, (long) RewardPoints.of(t.getAmount()), Long::sum);
+        }
+
+        // Act
+        List<CustomerMonthlyPoints> result = transactionRepository.sumPointsByCustomerAndMonth(startDate, endDate);
+
+        // Assert
+        Map<String, Long> actual = new HashMap<>();
+        for (CustomerMonthlyPoints row : result) {
+            actual.put(row.getCustomerId() + "/" + YearMonth.of(row.getYear(), row.getMonth()), row.getPoints());
+        }
+        assertEquals(expected, actual);
+    }
 }
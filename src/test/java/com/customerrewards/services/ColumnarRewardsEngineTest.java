@@ -0,0 +1,108 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.CustomerRewardsResponse;
+import com.customerrewards.models.Customer;
+import com.customerrewards.models.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "rewards.fanout.partitions=1")
+@Import({RewardsService.class, MonthlyPointsLedger.class, RewardsSnapshotStore.class, ShardRouter.class, RetentionPolicy.class,
+        RewardsProjection.class, TransactionEventLog.class, RewardsCache.class, CustomerPartitionFanOut.class, ColumnarRewardsEngine.class,
+        RewardsMetrics.class, RewardRules.class, SimpleMeterRegistry.class})
+public class ColumnarRewardsEngineTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private RewardsService rewardsService;
+
+    @Autowired
+    private ColumnarRewardsEngine columnarRewardsEngine;
+
+    @Test
+    void testAggregate_MatchesPerRowSums() {
+        // Arrange: 50k rows over 500 customers and 4 months
+        SplittableRandom random = new SplittableRandom(7);
+        TransactionColumns columns = new TransactionColumns(16);
+        Map<String, Integer> expected = new HashMap<>();
+        int firstMonth = 2025 * 12;
+        for (long customerId = 1; customerId <= 500; customerId++) {
+            for (int i = 0; i < 100; i++) {
+                int month = random.nextInt(4);
+                int points = RewardPoints.ofCents(random.nextLong(0, 50_000));
+                columns.add(customerId, firstMonth + month, points);
+                expected.merge(customerId + ":" + month, points, Integer::sum);
+            }
+        }
+
+        // Act
+        RewardsMatrix matrix = ColumnarRewardsEngine.aggregate(columns, firstMonth, 4);
+
+        // Assert
+        assertEquals(500, matrix.customerCount());
+        for (int customer = 0; customer < matrix.customerCount(); customer++) {
+            int total = 0;
+            for (int month = 0; month < 4; month++) {
+                int points = matrix.points(customer, month);
+                assertEquals(expected.getOrDefault(matrix.customerId(customer) + ":" + month, 0), points);
+                total += points;
+            }
+            assertEquals(total, matrix.totalPoints(customer));
+        }
+    }
+
+    @Test
+    void testAggregate_RejectsUnorderedRows() {
+        // Arrange
+        TransactionColumns columns = new TransactionColumns(16);
+        columns.add(2L, 0, 100);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> columns.add(1L, 0, 100));
+    }
+
+    @Test
+    void testComputeRewards_MatchesDatabaseAggregation() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        Customer alice = entityManager.persist(new Customer("Alice", "alice@email.com"));
+        Customer bob = entityManager.persist(new Customer("Bob", "bob@email.com"));
+        entityManager.persist(new Customer("Carol", "carol@email.com")); // no transactions
+        entityManager.persist(new Transaction(alice, new BigDecimal("120.00"), now.minusDays(10), "Purchase"));
+        entityManager.persist(new Transaction(alice, new BigDecimal("75.50"), now.minusDays(40), "Purchase"));
+        entityManager.persist(new Transaction(bob, new BigDecimal("20.00"), now.minusDays(5), "Purchase"));
+        entityManager.persist(new Transaction(bob, new BigDecimal("500.00"), now.minusMonths(4).withDayOfMonth(1), "Outside window"));
+        entityManager.flush();
+
+        RewardsWindow window = RewardsWindow.defaultWindow();
+
+        // Act
+        List<CustomerRewardsResponse> fromDatabase = rewardsService.getCustomerRewards(window);
+        List<CustomerRewardsResponse> fromColumns = columnarRewardsEngine.computeRewards(window.getStartDate(), window.getEndDate());
+
+        // Assert
+        assertEquals(2, fromColumns.size());
+        assertEquals(fromDatabase.size(), fromColumns.size());
+        for (int i = 0; i < fromDatabase.size(); i++) {
+            assertEquals(fromDatabase.get(i).getCustomerId(), fromColumns.get(i).getCustomerId());
+            assertEquals(fromDatabase.get(i).getCustomerName(), fromColumns.get(i).getCustomerName());
+            assertEquals(fromDatabase.get(i).getMonthlyPoints(), fromColumns.get(i).getMonthlyPoints());
+            assertEquals(fromDatabase.get(i).getTotalPoints(), fromColumns.get(i).getTotalPoints());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.CustomerMonthlyPoints;
+import com.customerrewards.dto.CustomerRewardsResponse;
+import com.customerrewards.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * More concurrent summaries than the application pool has connections. Each caller holds one
+ * of them while it waits for its ranges, so ranges drawing from the same pool would time out.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fanout_pool",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=1000",
+        "rewards.fanout.partitions=4",
+        "rewards.fanout.max-connections=2"
+})
+public class CustomerPartitionFanOutPoolTest {
+
+    @Autowired
+    private RewardsService rewardsService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void testConcurrentSummaries_RangesDoNotWaitOnCallersPool() throws Exception {
+        // Arrange
+        RewardsWindow window = RewardsWindow.defaultWindow();
+        long expectedPoints = transactionRepository.sumPointsByCustomerAndMonth(window.getStartDate(), window.getEndDate())
+                .stream().mapToLong(CustomerMonthlyPoints::getPoints).sum();
+
+        // Act
+        List<Future<List<CustomerRewardsResponse>>> summaries = new ArrayList<>();
+        try (ExecutorService callers = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 32; i++) {
+                summaries.add(callers.submit(() -> rewardsService.getCustomerRewards(window)));
+            }
+        }
+
+        // Assert
+        assertTrue(expectedPoints > 0);
+        for (Future<List<CustomerRewardsResponse>> summary : summaries) {
+            assertEquals(expectedPoints, summary.get().stream().mapToLong(CustomerRewardsResponse::getTotalPoints).sum());
+        }
+    }
+}
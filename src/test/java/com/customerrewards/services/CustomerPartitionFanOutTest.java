@@ -0,0 +1,85 @@
+package com.customerrewards.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CustomerPartitionFanOutTest {
+
+    @Test
+    void testForEachPartition_RangesCoverIdSpaceInOrder() {
+        // Arrange
+        CustomerPartitionFanOut fanOut = new CustomerPartitionFanOut(4, 2);
+
+        // Act: every range returns the ids it covers
+        List<Long> ids = fanOut.forEachPartition(1, 10,
+                (jdbcTemplate, fromId, toId) -> LongStream.range(fromId, toId).boxed().toList());
+
+        // Assert
+        assertEquals(LongStream.rangeClosed(1, 10).boxed().toList(), ids);
+    }
+
+    @Test
+    void testForEachPartition_FewerIdsThanPartitions() {
+        // Arrange
+        CustomerPartitionFanOut fanOut = new CustomerPartitionFanOut(8, 4);
+        List<String> ranges = new ArrayList<>();
+
+        // Act
+        fanOut.forEachPartition(5, 6, (jdbcTemplate, fromId, toId) -> {
+            synchronized (ranges) {
+                ranges.add(fromId + "-" + toId);
+            }
+            return List.of();
+        });
+
+        // Assert: one range per id, no empty ranges
+        assertEquals(2, ranges.size());
+        assertTrue(ranges.containsAll(List.of("5-6", "6-7")));
+    }
+
+    @Test
+    void testForEachPartition_StaysWithinConnectionBudget() {
+        // Arrange
+        CustomerPartitionFanOut fanOut = new CustomerPartitionFanOut(16, 3);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        // Act
+        fanOut.forEachPartition(1, 1_000, (jdbcTemplate, fromId, toId) -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return List.of(fromId);
+        });
+
+        // Assert
+        assertTrue(peak.get() <= 3, "peak concurrent queries: " + peak.get());
+        assertTrue(peak.get() > 1, "partitions did not run concurrently");
+    }
+
+    @Test
+    void testForEachPartition_PropagatesFailure() {
+        // Arrange
+        CustomerPartitionFanOut fanOut = new CustomerPartitionFanOut(4, 4);
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class, () ->
+                fanOut.forEachPartition(1, 100, (jdbcTemplate, fromId, toId) -> {
+                    if (fromId > 1) {
+                        throw new RuntimeException("connection refused");
+                    }
+                    return List.of(fromId);
+                }));
+        assertEquals("connection refused", exception.getMessage());
+    }
+}
@@ -0,0 +1,107 @@
+package com.customerrewards.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CustomerPointsStoreTest {
+
+    private static final int MONTH = 2026 * 12 + 9;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testApply_SkipsEventsTheRecordHasAlreadySeen() throws Exception {
+        // Arrange
+        CustomerPointsStore store = new CustomerPointsStore(directory.resolve("points.store"));
+        store.apply(1, 5, MONTH, 90, 1);
+        store.apply(2, 5, MONTH, 25, 1);
+
+        // Act: a replay after a crash hands the same events over again
+        store.apply(1, 5, MONTH, 90, 1);
+        store.apply(2, 5, MONTH, 25, 1);
+        store.apply(3, 5, MONTH, 10, 1);
+
+        // Assert
+        assertEquals(125, store.getPoints(5, MONTH));
+        assertEquals(-1, store.getPoints(6, MONTH));
+        assertEquals(-1, store.getPoints(1_000_000, MONTH));
+    }
+
+    @Test
+    void testApply_RollsBackAnUpdateInterruptedByACrash() throws Exception {
+        // Arrange: the process died after adding event 2 to the counter but before its sequence was final
+        Path file = directory.resolve("points.store");
+        CustomerPointsStore store = new CustomerPointsStore(file);
+        store.apply(1, 5, MONTH, 90, 1);
+        store.close();
+
+        int slot = Math.floorMod(MONTH, CustomerPointsStore.RING_MONTHS);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer record = channel.map(FileChannel.MapMode.READ_WRITE,
+                    CustomerPointsStore.HEADER_BYTES + 5L * CustomerPointsStore.RECORD_BYTES, CustomerPointsStore.RECORD_BYTES);
+            int counter = CustomerPointsStore.COUNTERS + slot * 8;
+            record.putLong(CustomerPointsStore.UNDO_COUNTER, record.getLong(counter));
+            record.putInt(CustomerPointsStore.UNDO_TAG, MONTH);
+            record.putInt(CustomerPointsStore.UNDO_SLOT, slot);
+            record.putLong(0, 2 | CustomerPointsStore.PENDING);
+            record.putLong(counter, record.getLong(counter) + (1L << 32) + 25);
+            record.force();
+        }
+
+        // Act: the replay hands event 2 over again
+        CustomerPointsStore reopened = new CustomerPointsStore(file);
+        reopened.apply(2, 5, MONTH, 25, 1);
+        reopened.apply(3, 5, MONTH, 10, 1);
+
+        // Assert: counted once
+        assertEquals(125, reopened.getPoints(5, MONTH));
+    }
+
+    @Test
+    void testApply_ReusesTheSlotOfAMonthThatLeftTheRing() throws Exception {
+        // Arrange
+        CustomerPointsStore store = new CustomerPointsStore(directory.resolve("points.store"));
+        store.apply(1, 5, MONTH, 90, 1);
+        store.apply(2, 5, MONTH + 1, 40, 1);
+
+        // Act
+        store.apply(3, 5, MONTH + 2, 15, 1);
+        store.apply(4, 5, MONTH, 20, 1);
+
+        // Assert: the old month is gone and a late event for it is dropped
+        assertEquals(-1, store.getPoints(5, MONTH));
+        assertEquals(40, store.getPoints(5, MONTH + 1));
+        assertEquals(15, store.getPoints(5, MONTH + 2));
+    }
+
+    @Test
+    void testReopen_KeepsRecordsAndAppliedSequence() throws Exception {
+        // Arrange
+        Path file = directory.resolve("points.store");
+        CustomerPointsStore store = new CustomerPointsStore(file);
+        store.apply(1, 3, MONTH, 30, 1);
+        store.apply(2, 200_000, MONTH, 70, 2);
+        store.setAppliedSequence(2);
+        store.close();
+
+        // Act
+        CustomerPointsStore reopened = new CustomerPointsStore(file);
+
+        // Assert
+        assertEquals(2, reopened.getAppliedSequence());
+        assertEquals(200_000, reopened.getMaxCustomerId());
+        List<Long> customers = new ArrayList<>();
+        reopened.forEachCustomer(MONTH, (customerId, points) -> customers.add(customerId * 1000 + points));
+        assertEquals(List.of(3_030L, 200_000_070L), customers);
+    }
+}
@@ -0,0 +1,43 @@
+package com.customerrewards.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MonthKeysTest {
+
+    @Test
+    void testLabel_MatchesYearMonthFormatting() {
+        // Arrange
+        YearMonth month = YearMonth.of(1969, 1);
+
+        // Act & Assert: across the cached range and beyond both ends
+        for (int i = 0; i < 12 * 240; i++, month = month.plusMonths(1)) {
+            int ordinal = MonthKeys.ordinal(month.getYear(), month.getMonthValue());
+            assertEquals(month.toString(), MonthKeys.label(ordinal));
+            assertEquals(ordinal, MonthKeys.ordinal(month.toString()));
+        }
+    }
+
+    @Test
+    void testLabel_SharesOneStringPerMonth() {
+        // Arrange
+        LocalDateTime first = LocalDateTime.of(2025, 3, 1, 0, 0);
+        LocalDateTime last = LocalDateTime.of(2025, 3, 31, 23, 59);
+
+        // Act & Assert
+        assertEquals(MonthKeys.ordinal(first), MonthKeys.ordinal(last));
+        assertSame(MonthKeys.label(first), MonthKeys.label(last));
+        assertEquals("2025-03", MonthKeys.label(first));
+    }
+
+    @Test
+    void testOrdinal_RejectsMalformedLabels() {
+        assertThrows(IllegalArgumentException.class, () -> MonthKeys.ordinal("2025-13"));
+        assertThrows(IllegalArgumentException.class, () -> MonthKeys.ordinal("2025/03"));
+        assertThrows(IllegalArgumentException.class, () -> MonthKeys.ordinal("25-03"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.LedgerReconcileReport;
+import com.customerrewards.models.Customer;
+import com.customerrewards.models.MonthlyPointsRollup;
+import com.customerrewards.models.MonthlyPointsRollupId;
+import com.customerrewards.models.Transaction;
+import com.customerrewards.repository.MonthlyPointsRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({MonthlyPointsLedger.class, MonthlyPointsReconciler.class, RewardsSnapshotStore.class, ShardRouter.class, RetentionPolicy.class})
+public class MonthlyPointsLedgerTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private MonthlyPointsRollupRepository monthlyPointsRollupRepository;
+
+    @Autowired
+    private MonthlyPointsReconciler monthlyPointsReconciler;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RewardsSnapshotStore rewardsSnapshotStore;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = entityManager.persistAndFlush(new Customer("Ledger Customer", "ledger@email.com"));
+    }
+
+    @Test
+    void testInsert_AddsToMonth() {
+        // Act
+        entityManager.persist(new Transaction(customer, new BigDecimal("120.00"), LocalDateTime.of(2024, 3, 5, 10, 0), "A"));
+        entityManager.persist(new Transaction(customer, new BigDecimal("75.00"), LocalDateTime.of(2024, 3, 20, 10, 0), "B"));
+        entityManager.flush();
+
+        // Assert
+        MonthlyPointsRollup rollup = rollup("2024-03");
+        assertEquals(115L, rollup.getPoints());
+        assertEquals(2L, rollup.getTransactionCount());
+    }
+
+    @Test
+    void testUpdateAndDelete_MoveAndReversePoints() {
+        // Arrange
+        Transaction transaction = entityManager.persistAndFlush(
+                new Transaction(customer, new BigDecimal("120.00"), LocalDateTime.of(2024, 3, 5, 10, 0), "A"));
+
+        // Act: move it to April with a new amount
+        transaction.setAmount(new BigDecimal("60.00"));
+        transaction.setTransactionDate(LocalDateTime.of(2024, 4, 1, 10, 0));
+        entityManager.flush();
+
+        // Assert
+        assertEquals(0L, rollup("2024-03").getPoints());
+        assertEquals(0L, rollup("2024-03").getTransactionCount());
+        assertEquals(10L, rollup("2024-04").getPoints());
+
+        // Act: delete it, reloaded so the persisted state comes from @PostLoad
+        entityManager.remove(entityManager.find(Transaction.class, transaction.getId()));
+        entityManager.flush();
+
+        // Assert
+        assertEquals(0L, rollup("2024-04").getPoints());
+        assertEquals(0L, rollup("2024-04").getTransactionCount());
+    }
+
+    @Test
+    void testReconcile_ReportsAndRepairsDrift() {
+        // Arrange: a consistent rollup, then tamper with it behind the ledger's back
+        entityManager.persist(new Transaction(customer, new BigDecimal("200.00"), LocalDateTime.of(2024, 5, 5, 10, 0), "A"));
+        entityManager.persist(new Transaction(customer, new BigDecimal("90.00"), LocalDateTime.of(2024, 6, 5, 10, 0), "B"));
+        entityManager.flush();
+        assertEquals(0, monthlyPointsReconciler.reconcile().getDriftedRows());
+
+        jdbcTemplate.update("UPDATE customer_monthly_points SET points = points + 7 WHERE month_key = '2024-05'");
+        jdbcTemplate.update("DELETE FROM customer_monthly_points WHERE month_key = '2024-06'");
+
+        // Act
+        LedgerReconcileReport report = monthlyPointsReconciler.reconcile();
+
+        // Assert
+        assertEquals(2, report.getRowsChecked());
+        assertEquals(2, report.getDriftedRows());
+        assertEquals(47, report.getPointsDrift());
+        entityManager.clear();
+        assertEquals(250L, rollup("2024-05").getPoints());
+        assertEquals(40L, rollup("2024-06").getPoints());
+        assertEquals(0, monthlyPointsReconciler.reconcile().getDriftedRows());
+    }
+
+    @Test
+    void testRename_BumpsVersionAndRebuildsSnapshots() {
+        // Arrange: a closed month's snapshot that lists the customer
+        YearMonth closed = YearMonth.now().minusMonths(2);
+        entityManager.persistAndFlush(new Transaction(customer, new BigDecimal("120.00"), closed.atDay(5).atTime(10, 0), "A"));
+        RewardsSnapshotStore.MonthSnapshot before = rewardsSnapshotStore.get(closed);
+        assertEquals("Ledger Customer", before.getCustomerName(before.indexOf(customer.getId())));
+        long version = rewardsVersion();
+
+        // Act
+        customer.setName("Renamed Customer");
+        entityManager.flush();
+
+        // Assert
+        long renamed = rewardsVersion();
+        assertTrue(renamed > version);
+        RewardsSnapshotStore.MonthSnapshot after = rewardsSnapshotStore.get(closed);
+        assertEquals("Renamed Customer", after.getCustomerName(after.indexOf(customer.getId())));
+
+        // Act: other columns leave the version alone
+        customer.setEmail("renamed@email.com");
+        entityManager.flush();
+
+        // Assert
+        assertEquals(renamed, rewardsVersion());
+    }
+
+    private long rewardsVersion() {
+        return jdbcTemplate.queryForObject("SELECT rewards_version FROM customers WHERE id = ?", Long.class, customer.getId());
+    }
+
+    private MonthlyPointsRollup rollup(String monthKey) {
+        entityManager.clear();
+        return monthlyPointsRollupRepository.findById(new MonthlyPointsRollupId(customer.getId(), monthKey)).orElseThrow();
+    }
+}
@@ -0,0 +1,77 @@
+package com.customerrewards.services;
+
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.Example;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.constraints.LongRange;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Properties proving the integer-cents fast path agrees with exact BigDecimal arithmetic
+ * and with the reference RewardPoints.of for every amount the amount column can hold.
+ */
+class RewardPointsTest {
+
+    private static final BigDecimal FIFTY = new BigDecimal("50");
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+    private static final BigDecimal TWO = new BigDecimal("2");
+
+    @Property
+    void ofCents_MatchesExactBigDecimal(@ForAll @LongRange(min = -100_000, max = 9_999_999_999L) long cents) {
+        assertEquals(exactPoints(BigDecimal.valueOf(cents, 2)), RewardPoints.ofCents(cents));
+    }
+
+    @Property
+    void ofCents_MatchesExactBigDecimalNearTierBoundaries(@ForAll("nearTierBoundary") long cents) {
+        assertEquals(exactPoints(BigDecimal.valueOf(cents, 2)), RewardPoints.ofCents(cents));
+    }
+
+    @Property
+    void ofCents_MatchesReferenceImplementation(@ForAll @LongRange(min = 0, max = 9_999_999_999L) long cents) {
+        assertEquals(RewardPoints.of(BigDecimal.valueOf(cents, 2)), RewardPoints.ofCents(cents));
+    }
+
+    @Example
+    void ofCents_EveryCentAroundEachBoundary() {
+        for (long boundary : new long[]{5_000, 10_000}) {
+            for (long cents = boundary - 500; cents <= boundary + 500; cents++) {
+                BigDecimal amount = BigDecimal.valueOf(cents, 2);
+                assertEquals(exactPoints(amount), RewardPoints.ofCents(cents), amount.toPlainString());
+                assertEquals(RewardPoints.of(amount), RewardPoints.ofCents(cents), amount.toPlainString());
+            }
+        }
+    }
+
+    @Example
+    void ofCents_KnownValues() {
+        assertEquals(0, RewardPoints.ofCents(5_000));     // $50.00
+        assertEquals(0, RewardPoints.ofCents(5_099));     // $50.99
+        assertEquals(1, RewardPoints.ofCents(5_100));     // $51.00
+        assertEquals(50, RewardPoints.ofCents(10_000));   // $100.00
+        assertEquals(50, RewardPoints.ofCents(10_001));   // $100.01
+        assertEquals(51, RewardPoints.ofCents(10_050));   // $100.50
+        assertEquals(90, RewardPoints.ofCents(12_000));   // $120.00
+    }
+
+    @Provide
+    Arbitrary<Long> nearTierBoundary() {
+        return Arbitraries.of(5_000L, 10_000L)
+                .flatMap(boundary -> Arbitraries.longs().between(boundary - 250, boundary + 250));
+    }
+
+    private static int exactPoints(BigDecimal amount) {
+        if (amount.compareTo(HUNDRED) > 0) {
+            return amount.subtract(HUNDRED).multiply(TWO).setScale(0, RoundingMode.FLOOR).intValueExact() + 50;
+        } else if (amount.compareTo(FIFTY) > 0) {
+            return amount.subtract(FIFTY).setScale(0, RoundingMode.FLOOR).intValueExact();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,70 @@
+package com.customerrewards.services;
+
+import com.customerrewards.config.RewardRulesProperties;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RewardRulesTest {
+
+    private static final LocalDateTime NOV_28 = LocalDateTime.of(2026, 11, 28, 12, 0);
+
+    @Test
+    void testDefaults_MatchTheHardCodedTiers() {
+        // Arrange
+        RewardRules rules = RewardRules.defaults();
+
+        // Act & Assert: every cent up to $500, and around the tier boundaries
+        for (long cents = -100; cents <= 50_000; cents++) {
+            assertEquals(RewardPoints.ofCents(cents), rules.points(cents, "Purchase", NOV_28), Long.toString(cents));
+        }
+        assertEquals(RewardPoints.ofCents(9_999_999_999L), rules.points(9_999_999_999L));
+    }
+
+    @Test
+    void testPromotions_MatchByDescriptionAndDate() {
+        // Arrange: triple points on electronics over the Black Friday weekend, double on
+        // anything in November, and a flat 5 per dollar above $10 on groceries
+        RewardRulesProperties properties = new RewardRulesProperties();
+        properties.getPromotions().add(promotion("Electronics purchase", LocalDate.of(2026, 11, 27), LocalDate.of(2026, 11, 30), 3));
+        properties.getPromotions().add(promotion(null, LocalDate.of(2026, 11, 1), LocalDate.of(2026, 12, 1), 2));
+        RewardRulesProperties.Promotion groceries = promotion("Grocery shopping", null, null, 1);
+        groceries.setTiers(List.of(new RewardRulesProperties.Tier(new BigDecimal("10"), 5)));
+        properties.getPromotions().add(groceries);
+        RewardRules rules = new RewardRules(properties);
+
+        // Act & Assert
+        assertEquals(270, rules.points(12_000, "ELECTRONICS PURCHASE", NOV_28));
+        assertEquals(180, rules.points(12_000, "Electronics purchase", NOV_28.plusDays(2)));
+        assertEquals(180, rules.points(12_000, "Fuel", NOV_28));
+        assertEquals(180, rules.points(12_000, null, NOV_28));
+        assertEquals(90, rules.points(12_000, "Fuel", NOV_28.plusMonths(1)));
+        assertEquals(50, rules.points(2_000, "Grocery shopping", NOV_28.plusMonths(1)));
+        assertEquals(90, rules.points(12_000));
+    }
+
+    @Test
+    void testCompile_RejectsTiersOutOfOrder() {
+        // Arrange
+        RewardRulesProperties properties = new RewardRulesProperties();
+        properties.setTiers(List.of(new RewardRulesProperties.Tier(new BigDecimal("100"), 2),
+                new RewardRulesProperties.Tier(new BigDecimal("50"), 1)));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new RewardRules(properties));
+    }
+
+    private static RewardRulesProperties.Promotion promotion(String description, LocalDate from, LocalDate to, int multiplier) {
+        RewardRulesProperties.Promotion promotion = new RewardRulesProperties.Promotion();
+        promotion.setDescription(description);
+        promotion.setFrom(from);
+        promotion.setTo(to);
+        promotion.setMultiplier(multiplier);
+        return promotion;
+    }
+}
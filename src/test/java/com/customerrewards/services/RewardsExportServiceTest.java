@@ -0,0 +1,217 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.CustomerName;
+import com.customerrewards.dto.CustomerRewardsResponse;
+import com.customerrewards.dto.ExportJobStatus;
+import com.customerrewards.repository.CustomerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RewardsExportServiceTest {
+
+    private static final RewardsWindow WINDOW =
+            RewardsWindow.of(YearMonth.of(2025, 1), YearMonth.of(2025, 2), LocalDate.of(2025, 2, 28));
+    private static final Duration RETENTION = Duration.ofDays(7);
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private RewardsService rewardsService;
+
+    @TempDir
+    private Path exportDirectory;
+
+    private RewardsExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new RewardsExportService(customerRepository, rewardsService, new ShardRouter(1, 128), exportDirectory.toString(), 2, 1, RETENTION);
+
+        // each customer earns (id * 10) points in January
+        lenient().when(rewardsService.getCustomerRewards(anyList(), eq(WINDOW))).thenAnswer(invocation -> {
+            List<CustomerName> customers = invocation.getArgument(0);
+            return customers.stream().map(customer -> {
+                Map<String, Integer> monthlyPoints = new HashMap<>();
+                monthlyPoints.put("2025-01", (int) (customer.getId() * 10));
+                return new CustomerRewardsResponse(customer.getId(), customer.getName(), monthlyPoints, (int) (customer.getId() * 10));
+            }).toList();
+        });
+        lenient().when(customerRepository.count()).thenReturn(5L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        exportService.shutdown();
+    }
+
+    @Test
+    void testExport_FailedChunkResumesFromCheckpoint() throws Exception {
+        // Arrange: the second chunk fails once
+        when(customerRepository.findChunkAfter(eq(0L), any(Limit.class))).thenReturn(customers(1, 2));
+        when(customerRepository.findChunkAfter(eq(2L), any(Limit.class)))
+                .thenThrow(new RuntimeException("connection reset"))
+                .thenReturn(customers(3, 4));
+        when(customerRepository.findChunkAfter(eq(4L), any(Limit.class))).thenReturn(customers(5, 5));
+
+        // Act
+        String id = exportService.startExport(WINDOW).getId();
+        ExportJobStatus failed = awaitState(id, ExportJobStatus.State.FAILED);
+
+        // Assert: the first chunk is checkpointed and the file is not available yet
+        assertEquals(2, failed.getCustomersExported());
+        assertEquals(1, failed.getChunksWritten());
+        assertEquals("connection reset", failed.getError());
+        assertThrows(IllegalStateException.class, () -> exportService.getExportFile(id));
+
+        // Act
+        exportService.resume(id);
+        ExportJobStatus completed = awaitState(id, ExportJobStatus.State.COMPLETED);
+
+        // Assert: every customer exported exactly once, in id order
+        assertEquals(5, completed.getCustomersExported());
+        assertEquals(3, completed.getChunksWritten());
+        assertEquals(List.of(
+                "customerId,customerName,2025-01,2025-02,totalPoints",
+                "1,Customer 1,10,0,10",
+                "2,Customer 2,20,0,20",
+                "3,Customer 3,30,0,30",
+                "4,Customer 4,40,0,40",
+                "5,Customer 5,50,0,50"), readLines(exportService.getExportFile(id)));
+    }
+
+    @Test
+    void testResumeInterruptedJobs_DiscardsUncheckpointedParts() throws Exception {
+        // Arrange: a job that failed after its first chunk...
+        when(customerRepository.findChunkAfter(eq(0L), any(Limit.class))).thenReturn(customers(1, 2));
+        when(customerRepository.findChunkAfter(eq(2L), any(Limit.class)))
+                .thenThrow(new RuntimeException("disk full"))
+                .thenReturn(customers(3, 3));
+        String id = exportService.startExport(WINDOW).getId();
+        awaitState(id, ExportJobStatus.State.FAILED);
+        exportService.shutdown();
+
+        // ...is made to look like it crashed while running, half-way through its second chunk
+        Path jobDirectory = exportDirectory.resolve(id);
+        Path checkpoint = jobDirectory.resolve(RewardsExportService.CHECKPOINT_FILE);
+        Files.writeString(checkpoint, Files.readString(checkpoint).replace("state=FAILED", "state=RUNNING"));
+        Files.writeString(jobDirectory.resolve("part-00001.csv.gz"), "garbage");
+        Files.writeString(jobDirectory.resolve("part-00002.csv.gz.tmp"), "garbage");
+
+        // Act: a restarted application picks the job up
+        exportService = new RewardsExportService(customerRepository, rewardsService, new ShardRouter(1, 128), exportDirectory.toString(), 2, 1, RETENTION);
+        exportService.resumeInterruptedJobs();
+        ExportJobStatus completed = awaitState(id, ExportJobStatus.State.COMPLETED);
+
+        // Assert
+        assertEquals(3, completed.getCustomersExported());
+        assertEquals(List.of(
+                "customerId,customerName,2025-01,2025-02,totalPoints",
+                "1,Customer 1,10,0,10",
+                "2,Customer 2,20,0,20",
+                "3,Customer 3,30,0,30"), readLines(exportService.getExportFile(id)));
+        try (var files = Files.list(jobDirectory)) {
+            assertEquals(List.of(RewardsExportService.CHECKPOINT_FILE, RewardsExportService.EXPORT_FILE),
+                    files.map(file -> file.getFileName().toString()).sorted().toList());
+        }
+    }
+
+    @Test
+    void testExpireFinishedJobs_RemovesJobsPastRetention() throws Exception {
+        // Arrange: one completed job and one failed job
+        when(customerRepository.findChunkAfter(eq(0L), any(Limit.class)))
+                .thenReturn(customers(1, 1))
+                .thenThrow(new RuntimeException("connection reset"));
+        String completedId = exportService.startExport(WINDOW).getId();
+        Instant finishedAt = awaitState(completedId, ExportJobStatus.State.COMPLETED).getFinishedAt();
+        String failedId = exportService.startExport(WINDOW).getId();
+        awaitState(failedId, ExportJobStatus.State.FAILED);
+
+        // Act & Assert: both are kept within the retention
+        exportService.expireFinishedJobs(finishedAt.plus(RETENTION).minusSeconds(1));
+        assertEquals(ExportJobStatus.State.COMPLETED, exportService.getStatus(completedId).getState());
+        assertEquals(ExportJobStatus.State.FAILED, exportService.getStatus(failedId).getState());
+
+        // Act
+        exportService.expireFinishedJobs(Instant.now().plus(RETENTION).plusSeconds(1));
+
+        // Assert: the jobs and their files are gone, also for a restarted application
+        assertThrows(RuntimeException.class, () -> exportService.getStatus(completedId));
+        assertThrows(RuntimeException.class, () -> exportService.resume(failedId));
+        assertFalse(Files.exists(exportDirectory.resolve(completedId)));
+        assertFalse(Files.exists(exportDirectory.resolve(failedId)));
+    }
+
+    @Test
+    void testResumeInterruptedJobs_RemovesJobsPastRetention() throws Exception {
+        // Arrange: a job that completed longer ago than the retention
+        when(customerRepository.findChunkAfter(eq(0L), any(Limit.class))).thenReturn(customers(1, 1));
+        String id = exportService.startExport(WINDOW).getId();
+        awaitState(id, ExportJobStatus.State.COMPLETED);
+        exportService.shutdown();
+        Path checkpoint = exportDirectory.resolve(id).resolve(RewardsExportService.CHECKPOINT_FILE);
+        Files.writeString(checkpoint, Files.readString(checkpoint).replaceAll("finishedAt=.*",
+                "finishedAt=" + Instant.now().minus(RETENTION).minusSeconds(60)));
+
+        // Act
+        exportService = new RewardsExportService(customerRepository, rewardsService, new ShardRouter(1, 128), exportDirectory.toString(), 2, 1, RETENTION);
+        exportService.resumeInterruptedJobs();
+
+        // Assert
+        assertThrows(RuntimeException.class, () -> exportService.getStatus(id));
+        assertFalse(Files.exists(exportDirectory.resolve(id)));
+    }
+
+    private ExportJobStatus awaitState(String id, ExportJobStatus.State state) throws InterruptedException {
+        for (int attempt = 0; attempt < 500; attempt++) {
+            ExportJobStatus status = exportService.getStatus(id);
+            if (status.getState() == state) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        fail("Export " + id + " did not reach " + state + ": " + exportService.getStatus(id).getState());
+        return null;
+    }
+
+    private static List<String> readLines(Path file) throws Exception {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+
+    private static List<CustomerName> customers(long fromId, long toId) {
+        return LongStream.rangeClosed(fromId, toId).mapToObj(id -> (CustomerName) new CustomerName() {
+            public Long getId() { return id; }
+            public String getName() { return "Customer " + id; }
+        }).toList();
+    }
+}
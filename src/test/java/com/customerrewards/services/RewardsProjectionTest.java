@@ -0,0 +1,232 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.CustomerMonthlyPoints;
+import com.customerrewards.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RewardsProjectionTest {
+
+    private static final int THIS_MONTH = MonthKeys.ordinal(YearMonth.now());
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private RewardsCache rewardsCache;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RewardsProjection projection;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (projection != null) {
+            projection.stop();
+        }
+    }
+
+    @Test
+    void testStart_ConsumesNewEventsAndEvictsTheirCustomers() throws Exception {
+        // Arrange
+        TransactionEventLog eventLog = eventLog(4);
+        projection = projection(eventLog);
+        projection.start();
+
+        // Act
+        eventLog.append(new TransactionPointsEvent(1, THIS_MONTH, 90, 1));
+        eventLog.append(new TransactionPointsEvent(1, THIS_MONTH, 25, 1));
+        eventLog.append(new TransactionPointsEvent(2, THIS_MONTH, 40, 1));
+        awaitCaughtUp();
+
+        // Assert
+        assertEquals(115, projection.getPoints(1, THIS_MONTH));
+        assertEquals(40, projection.getPoints(2, THIS_MONTH));
+        assertEquals(-1, projection.getPoints(3, THIS_MONTH));
+        assertEquals(0.0, meterRegistry.get("rewards.projection.lag").gauge().value());
+        verify(rewardsCache, timeout(1000)).evictCustomer(2L);
+    }
+
+    @Test
+    void testRestart_ReplaysLogTailOntoTheStoreWithoutQueryingTransactions() throws Exception {
+        // Arrange: three events checkpointed into the store, then two more the projection never applied
+        TransactionEventLog eventLog = eventLog(2);
+        projection = projection(eventLog);
+        projection.start();
+        for (int i = 0; i < 3; i++) {
+            eventLog.append(new TransactionPointsEvent(1, THIS_MONTH, 10, 1));
+        }
+        awaitCaughtUp();
+        projection.stop();
+        eventLog.append(new TransactionPointsEvent(1, THIS_MONTH, 10, 1));
+        eventLog.append(new TransactionPointsEvent(7, THIS_MONTH, 50, 1));
+        eventLog.close();
+        // the first start bootstrapped from the table
+        clearInvocations(transactionRepository);
+
+        // Act: a new process over the same directory
+        projection = projection(eventLog(2));
+        projection.start();
+
+        // Assert: the first segment was deleted at the checkpoint, the tail replayed
+        assertEquals(40, projection.getPoints(1, THIS_MONTH));
+        assertEquals(50, projection.getPoints(7, THIS_MONTH));
+        assertEquals(2.0, meterRegistry.get("rewards.projection.replayed").gauge().value());
+        assertFalse(Files.exists(directory.resolve(String.format("%020d.seg", 1))));
+        verify(transactionRepository, never()).sumPointsByCustomerAndMonth(any(), any());
+    }
+
+    @Test
+    void testStart_RebuildsAStoreDerivedFromAnotherDatabase() throws Exception {
+        // Arrange: a checkpointed store of an earlier in-memory database
+        TransactionEventLog eventLog = eventLog(4);
+        projection = projection(eventLog, "database-1");
+        projection.start();
+        eventLog.append(new TransactionPointsEvent(1, THIS_MONTH, 90, 1));
+        awaitCaughtUp();
+        projection.stop();
+        eventLog.close();
+        when(transactionRepository.sumPointsByCustomerAndMonth(any(), any())).thenReturn(List.of(row(9, 70)));
+
+        // Act: the same directory over a new database
+        projection = projection(eventLog(4), "database-2");
+        projection.start();
+
+        // Assert
+        assertEquals(-1, projection.getPoints(1, THIS_MONTH));
+        assertEquals(70, projection.getPoints(9, THIS_MONTH));
+    }
+
+    @Test
+    void testReconcile_RebuildsAfterAnEventWasLost() throws Exception {
+        // Arrange: the table holds a write whose event never reached the log
+        TransactionEventLog eventLog = eventLog(4);
+        projection = projection(eventLog);
+        projection.start();
+        eventLog.append(new TransactionPointsEvent(1, THIS_MONTH, 10, 1));
+        awaitCaughtUp();
+        when(transactionRepository.sumPointsByCustomerAndMonth(any(), any())).thenReturn(List.of(row(1, 25)));
+
+        // Act & Assert
+        assertEquals(1, projection.reconcile());
+        assertEquals(25, projection.getPoints(1, THIS_MONTH));
+        verify(rewardsCache).evictAll();
+        assertEquals(0, projection.reconcile());
+    }
+
+    @Test
+    void testReconcile_KeepsServingTheOldStoreWhileRebuilding() throws Exception {
+        // Arrange: drift is found, and a read arrives while the rebuild queries the table
+        TransactionEventLog eventLog = eventLog(4);
+        projection = projection(eventLog);
+        projection.start();
+        eventLog.append(new TransactionPointsEvent(1, THIS_MONTH, 10, 1));
+        awaitCaughtUp();
+        List<Long> readsDuringRebuild = new ArrayList<>();
+        when(transactionRepository.sumPointsByCustomerAndMonth(any(), any())).thenAnswer(invocation -> {
+            assertTrue(projection.covers(YearMonth.now().atDay(1).atStartOfDay(), LocalDateTime.now().plusDays(1)));
+            readsDuringRebuild.add(projection.getPoints(1, THIS_MONTH));
+            return List.of(row(1, 25));
+        });
+
+        // Act
+        long drifted = projection.reconcile();
+
+        // Assert: the compare and the rebuild each queried once; neither saw an emptied store
+        assertEquals(1, drifted);
+        assertEquals(List.of(10L, 10L), readsDuringRebuild);
+        assertEquals(25, projection.getPoints(1, THIS_MONTH));
+        assertFalse(Files.exists(directory.resolve("customer-points.store.rebuild")));
+    }
+
+    @Test
+    void testOpen_DropsATornTailRecord() throws Exception {
+        // Arrange
+        TransactionEventLog eventLog = eventLog(8);
+        eventLog.append(new TransactionPointsEvent(1, THIS_MONTH, 10, 1));
+        eventLog.append(new TransactionPointsEvent(2, THIS_MONTH, 20, 1));
+        eventLog.close();
+        try (FileChannel channel = FileChannel.open(directory.resolve(String.format("%020d.seg", 1)), StandardOpenOption.WRITE)) {
+            // the second record's sequence never made it to disk
+            channel.write(ByteBuffer.allocate(8), TransactionEventLog.RECORD_BYTES);
+        }
+
+        // Act
+        TransactionEventLog reopened = eventLog(8);
+
+        // Assert
+        assertEquals(1, reopened.getLastSequence());
+        assertEquals(2, reopened.append(new TransactionPointsEvent(3, THIS_MONTH, 30, 1)));
+        List<Long> customers = new ArrayList<>();
+        reopened.read(1, 2, (sequence, customerId, month, points, count) -> customers.add(customerId));
+        assertEquals(List.of(1L, 3L), customers);
+    }
+
+    private TransactionEventLog eventLog(int segmentRecords) throws Exception {
+        return new TransactionEventLog("projection", directory.toString(), segmentRecords);
+    }
+
+    private RewardsProjection projection(TransactionEventLog eventLog) {
+        return projection(eventLog, "database-1");
+    }
+
+    private RewardsProjection projection(TransactionEventLog eventLog, String databaseIdentity) {
+        lenient().when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of(databaseIdentity));
+        meterRegistry = new SimpleMeterRegistry();
+        return new RewardsProjection(eventLog, transactionRepository, jdbcTemplate, rewardsCache, new ShardRouter(1, 128),
+                meterRegistry, directory.toString());
+    }
+
+    private static CustomerMonthlyPoints row(long customerId, long points) {
+        YearMonth month = YearMonth.now();
+        return new CustomerMonthlyPoints() {
+            public Long getCustomerId() { return customerId; }
+            public String getCustomerName() { return "Customer " + customerId; }
+            public Integer getYear() { return month.getYear(); }
+            public Integer getMonth() { return month.getMonthValue(); }
+            public Long getPoints() { return points; }
+            public Long getTransactionCount() { return 1L; }
+        };
+    }
+
+    private void awaitCaughtUp() throws InterruptedException {
+        for (int i = 0; i < 500 && projection.getLag() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, projection.getLag());
+    }
+}
@@ -0,0 +1,142 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.CustomerName;
+import com.customerrewards.dto.CustomerRewardsResponse;
+import com.customerrewards.models.Customer;
+import com.customerrewards.models.Transaction;
+import com.customerrewards.repository.CustomerRepository;
+import com.customerrewards.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the number of SQL statements each read path issues, using Hibernate statistics.
+ * If one of these counts grows, an N+1 or an extra lookup has crept in.
+ */
+// Partition queries run on other connections and would not see this test's uncommitted rows
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "rewards.fanout.partitions=1"
+})
+@Import({RewardsService.class, MonthlyPointsLedger.class, RewardsSnapshotStore.class, ShardRouter.class, RetentionPolicy.class,
+        RewardsProjection.class, TransactionEventLog.class, RewardsCache.class, CustomerPartitionFanOut.class, ColumnarRewardsEngine.class,
+        RewardsMetrics.class, RewardRules.class, SimpleMeterRegistry.class})
+public class RewardsServiceQueryCountTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RewardsService rewardsService;
+
+    @Autowired
+    private RewardsSnapshotStore rewardsSnapshotStore;
+
+    @Autowired
+    private MonthlyPointsLedger monthlyPointsLedger;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private Statistics statistics;
+    private List<Customer> customers;
+
+    @BeforeEach
+    void setUp() {
+        customers = List.of(
+                entityManager.persist(new Customer("Customer 1", "customer1@email.com")),
+                entityManager.persist(new Customer("Customer 2", "customer2@email.com")),
+                entityManager.persist(new Customer("Customer 3", "customer3@email.com"))
+        );
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Customer customer : customers) {
+            entityManager.persist(new Transaction(customer, new BigDecimal("120.00"), now.minusDays(10), "Purchase 1"));
+            entityManager.persist(new Transaction(customer, new BigDecimal("75.50"), now.minusDays(40), "Purchase 2"));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        // snapshots outlive a test's rolled-back rows, so start every test from an empty store
+        rewardsSnapshotStore.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void testGetCustomerRewards_SingleCustomer_ThreeStatements() {
+        CustomerRewardsResponse response = rewardsService.getCustomerRewards(customers.get(0).getId());
+
+        assertEquals(115, response.getTotalPoints());
+        // one name lookup, one read of the customer's closed months, one for the open month;
+        // no snapshot of every customer is built
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, rewardsSnapshotStore.getBuildCount());
+    }
+
+    @Test
+    void testGetCustomerRewards_SingleCustomer_ClosedMonthsFromRollupOnceLedgerIsReady() {
+        monthlyPointsLedger.setReady(true);
+        try {
+            CustomerRewardsResponse response = rewardsService.getCustomerRewards(customers.get(0).getId());
+
+            assertEquals(115, response.getTotalPoints());
+            assertEquals(3, statistics.getPrepareStatementCount());
+            assertEquals(0, statistics.getEntityLoadCount());
+        } finally {
+            monthlyPointsLedger.setReady(false);
+        }
+    }
+
+    @Test
+    void testGetCustomerRewards_AllCustomers_OneStatement() {
+        rewardsService.getCustomerRewards();
+        statistics.clear();
+
+        List<CustomerRewardsResponse> responses = rewardsService.getCustomerRewards();
+
+        assertEquals(3, responses.size());
+        // closed months come from snapshots, the open month from one aggregation
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testFindTransactionsByDateRange_FetchesCustomersInSameStatement() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Transaction> transactions = transactionRepository.findTransactionsByDateRange(now.minusMonths(3), now);
+
+        transactions.forEach(t -> assertNotNull(t.getCustomer().getName()));
+        assertEquals(6, transactions.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFindNamesByIdIn_OneStatementPerPage() {
+        List<CustomerName> names = customerRepository.findNamesByIdIn(customers.stream().map(Customer::getId).toList());
+
+        assertEquals(3, names.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -1,27 +1,47 @@
 package com.customerrewards.services;
 
+import com.customerrewards.dto.CustomerMonthTotal;
+import com.customerrewards.dto.CustomerMonthlyPoints;
+import com.customerrewards.dto.CustomerName;
 import com.customerrewards.dto.CustomerRewardsResponse;
+import com.customerrewards.dto.MonthPoints;
+import com.customerrewards.dto.TransactionAmount;
 import com.customerrewards.models.Customer;
 import com.customerrewards.models.Transaction;
 import com.customerrewards.repository.CustomerRepository;
+import com.customerrewards.repository.MonthlyPointsRollupRepository;
 import com.customerrewards.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +53,38 @@ public class RewardsServiceTest {
     @Mock
     private TransactionRepository transactionRepository;
 
+    @Mock
+    private RewardsSnapshotStore rewardsSnapshotStore;
+
+    @Mock
+    private CustomerPartitionFanOut customerPartitionFanOut;
+
+    @Mock
+    private ColumnarRewardsEngine columnarRewardsEngine;
+
+    @Mock
+    private RewardsProjection rewardsProjection;
+
+    @Mock
+    private MonthlyPointsRollupRepository monthlyPointsRollupRepository;
+
+    @Mock
+    private MonthlyPointsLedger monthlyPointsLedger;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private RewardsMetrics rewardsMetrics = new RewardsMetrics(meterRegistry);
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(1, 128);
+
+    @Spy
+    private RetentionPolicy retentionPolicy = new RetentionPolicy(24);
+
+    @Spy
+    private RewardRules rewardRules = RewardRules.defaults();
+
     @InjectMocks
     private RewardsService rewardsService;
 
@@ -90,9 +142,10 @@ public class RewardsServiceTest {
     @Test
     void testGetCustomerRewards_ValidCustomerId() {
         // Arrange
-        when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
-        when(transactionRepository.findByCustomerIdAndDateRange(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(testTransactions);
+        when(customerRepository.findNameById(1L)).thenReturn(Optional.of("John Doe"));
+        when(monthlyPointsLedger.isReady()).thenReturn(true);
+        when(transactionRepository.findAmountsByCustomerIdAndDateRange(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(testTransactions.stream().map(RewardsServiceTest::amountOf).toList());
 
         // Act
         CustomerRewardsResponse response = rewardsService.getCustomerRewards(1L);
@@ -104,14 +157,83 @@ public class RewardsServiceTest {
         assertTrue(response.getTotalPoints() > 0);
 
         // Verify method calls
-        verify(customerRepository).findById(1L);
-        verify(transactionRepository).findByCustomerIdAndDateRange(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(customerRepository).findNameById(1L);
+        verify(transactionRepository).findAmountsByCustomerIdAndDateRange(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class));
+
+        // Verify metrics
+        assertEquals(3, meterRegistry.get("rewards.transactions.scanned").tag("operation", "customer").counter().count());
+        assertEquals(1, meterRegistry.get("rewards.stage").tags("operation", "customer", "stage", "points").timer().count());
+    }
+
+    @Test
+    void testGetCustomerRewards_ClosedMonthsFromRollup() {
+        // Arrange: the two closed months come from the customer's rollup rows, the current month from raw transactions
+        YearMonth currentMonth = YearMonth.now();
+        YearMonth lastMonth = currentMonth.minusMonths(1);
+        when(customerRepository.findNameById(1L)).thenReturn(Optional.of("John Doe"));
+        when(monthlyPointsLedger.isReady()).thenReturn(true);
+        when(monthlyPointsRollupRepository.findByCustomerIdAndMonthRange(1L, lastMonth.minusMonths(1).toString(), lastMonth.toString()))
+                .thenReturn(List.of(monthPoints(lastMonth, 40L)));
+        when(transactionRepository.findAmountsByCustomerIdAndDateRange(1L, currentMonth.atDay(1).atStartOfDay(),
+                LocalDate.now().plusDays(1).atStartOfDay()))
+                .thenReturn(List.of(amountOf(new Transaction(testCustomer, new BigDecimal("120.00"),
+                        currentMonth.atDay(1).atTime(12, 0), "Test purchase"))));
+
+        // Act
+        CustomerRewardsResponse response = rewardsService.getCustomerRewards(1L);
+
+        // Assert
+        assertEquals(130, response.getTotalPoints()); // 40 from the rollup + 90 for $120
+        assertEquals(40, response.getMonthlyPoints().get(lastMonth.toString()));
+        assertEquals(90, response.getMonthlyPoints().get(currentMonth.toString()));
+        assertEquals(2, response.getMonthlyPoints().size());
+        verifyNoInteractions(rewardsSnapshotStore);
+    }
+
+    @Test
+    void testGetCustomerRewards_ClosedMonthsFromTransactionsUntilLedgerIsReady() {
+        // Arrange: before the first reconcile the closed months are read from raw transactions too
+        YearMonth currentMonth = YearMonth.now();
+        LocalDateTime windowStart = currentMonth.minusMonths(2).atDay(1).atStartOfDay();
+        when(customerRepository.findNameById(1L)).thenReturn(Optional.of("John Doe"));
+        when(transactionRepository.findAmountsByCustomerIdAndDateRange(1L, windowStart, currentMonth.atDay(1).atStartOfDay()))
+                .thenReturn(List.of(amountOf(new Transaction(testCustomer, new BigDecimal("90.00"),
+                        windowStart.plusDays(3), "Test purchase"))));
+        when(transactionRepository.findAmountsByCustomerIdAndDateRange(1L, currentMonth.atDay(1).atStartOfDay(),
+                LocalDate.now().plusDays(1).atStartOfDay()))
+                .thenReturn(List.of());
+
+        // Act
+        CustomerRewardsResponse response = rewardsService.getCustomerRewards(1L);
+
+        // Assert
+        assertEquals(40, response.getTotalPoints());
+        assertEquals(40, response.getMonthlyPoints().get(YearMonth.from(windowStart).toString()));
+        verify(monthlyPointsRollupRepository, never()).findByCustomerIdAndMonthRange(anyLong(), any(), any());
+        verify(transactionRepository, times(2)).findAmountsByCustomerIdAndDateRange(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testGetCustomerRewards_ClosedWindowNeedsNoLiveQuery() {
+        // Arrange
+        YearMonth month = YearMonth.now().minusMonths(3);
+        when(customerRepository.findNameById(1L)).thenReturn(Optional.of("John Doe"));
+        when(monthlyPointsLedger.isReady()).thenReturn(true);
+        when(monthlyPointsRollupRepository.findByCustomerIdAndMonthRange(1L, month.toString(), month.toString()))
+                .thenReturn(List.of(monthPoints(month, 25L)));
+
+        // Act
+        CustomerRewardsResponse response = rewardsService.getCustomerRewards(1L, RewardsWindow.of(month, month, null));
+
+        // Assert
+        assertEquals(25, response.getTotalPoints());
+        verify(transactionRepository, never()).findAmountsByCustomerIdAndDateRange(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class));
     }
 
     @Test
     void testGetCustomerRewards_InvalidCustomerId() {
         // Arrange
-        when(customerRepository.findById(999L)).thenReturn(Optional.empty());
+        when(customerRepository.findNameById(999L)).thenReturn(Optional.empty());
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class,
@@ -123,17 +245,183 @@ public class RewardsServiceTest {
     @Test
     void testGetCustomerRewards_AllCustomers() {
         // Arrange
-        when(transactionRepository.findTransactionsByDateRange(any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(testTransactions);
+        when(rewardsSnapshotStore.get(any(YearMonth.class))).thenReturn(snapshot());
+        when(transactionRepository.sumPointsByCustomerAndMonth(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Arrays.asList(
+                        monthlyPoints(2L, "Zoe Adams", 2024, 9, 10L),
+                        monthlyPoints(1L, "John Doe", 2024, 8, 90L),
+                        monthlyPoints(1L, "John Doe", 2024, 9, 25L)
+                ));
 
         // Act
         List<CustomerRewardsResponse> responses = rewardsService.getCustomerRewards();
 
         // Assert
         assertNotNull(responses);
-        assertEquals(1, responses.size());
+        assertEquals(2, responses.size());
         assertEquals("John Doe", responses.get(0).getCustomerName());
+        assertEquals(115, responses.get(0).getTotalPoints());
+        assertEquals(90, responses.get(0).getMonthlyPoints().get("2024-08"));
+        assertEquals(25, responses.get(0).getMonthlyPoints().get("2024-09"));
+        assertEquals("Zoe Adams", responses.get(1).getCustomerName());
+
+        verify(transactionRepository).sumPointsByCustomerAndMonth(any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testGetCustomerRewards_AllCustomers_MergesSnapshotsWithOpenMonth() {
+        // Arrange
+        YearMonth lastMonth = YearMonth.now().minusMonths(1);
+        YearMonth currentMonth = YearMonth.now();
+        when(rewardsSnapshotStore.get(lastMonth.minusMonths(1))).thenReturn(snapshot());
+        when(rewardsSnapshotStore.get(lastMonth)).thenReturn(snapshot(monthTotal(1L, "John Doe", 40L), monthTotal(2L, "Zoe Adams", 10L)));
+        when(transactionRepository.sumPointsByCustomerAndMonth(currentMonth.atDay(1).atStartOfDay(), LocalDate.now().plusDays(1).atStartOfDay()))
+                .thenReturn(List.of(monthlyPoints(1L, "John Doe", currentMonth.getYear(), currentMonth.getMonthValue(), 90L)));
+
+        // Act
+        List<CustomerRewardsResponse> responses = rewardsService.getCustomerRewards();
+
+        // Assert
+        assertEquals(2, responses.size());
+        assertEquals(130, responses.get(0).getTotalPoints());
+        assertEquals(40, responses.get(0).getMonthlyPoints().get(lastMonth.toString()));
+        assertEquals(90, responses.get(0).getMonthlyPoints().get(currentMonth.toString()));
+        assertEquals(10, responses.get(1).getTotalPoints());
+    }
+
+    @Test
+    void testGetCustomerRewards_AllCustomers_MergesProjectedPointsWithNamesInIdOrder() {
+        // Arrange: the projection holds customers 1 and 3 for the open month
+        int currentMonth = MonthKeys.ordinal(YearMonth.now());
+        when(rewardsSnapshotStore.get(any(YearMonth.class))).thenReturn(snapshot());
+        when(rewardsProjection.covers(any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(true);
+        doAnswer(invocation -> {
+            CustomerPointsStore.PointsConsumer consumer = invocation.getArgument(1);
+            consumer.accept(1L, 90L);
+            consumer.accept(3L, 10L);
+            return null;
+        }).when(rewardsProjection).forEachCustomer(eq(currentMonth), any());
+        when(rewardsProjection.getPoints(1L, currentMonth)).thenReturn(90L);
+        when(rewardsProjection.getPoints(3L, currentMonth)).thenReturn(10L);
+        when(customerRepository.findChunkAfter(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(name(1L, "John Doe"), name(2L, "No Points"), name(3L, "Zoe Adams")));
+
+        // Act
+        List<CustomerRewardsResponse> responses = rewardsService.getCustomerRewards();
+
+        // Assert
+        assertEquals(2, responses.size());
+        assertEquals("John Doe", responses.get(0).getCustomerName());
+        assertEquals(90, responses.get(0).getTotalPoints());
+        assertEquals("Zoe Adams", responses.get(1).getCustomerName());
+        assertEquals(10, responses.get(1).getTotalPoints());
+        verify(customerRepository, never()).findNamesByIdIn(any());
+    }
+
+    @Test
+    void testStreamCustomerRewards_EmitsEachCustomerOnce() {
+        // Arrange: rows arrive ordered by customer
+        when(transactionRepository.streamPointsByCustomerAndMonth(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Stream.of(
+                        monthlyPoints(1L, "John Doe", 2024, 8, 90L),
+                        monthlyPoints(1L, "John Doe", 2024, 9, 25L),
+                        monthlyPoints(2L, "Zoe Adams", 2024, 9, 10L)
+                ));
+
+        // Act
+        List<CustomerRewardsResponse> emitted = new ArrayList<>();
+        rewardsService.streamCustomerRewards(RewardsWindow.defaultWindow(), emitted::add);
+
+        // Assert
+        assertEquals(2, emitted.size());
+        assertEquals("John Doe", emitted.get(0).getCustomerName());
+        assertEquals(115, emitted.get(0).getTotalPoints());
+        assertEquals(2, emitted.get(0).getMonthlyPoints().size());
+        assertEquals("Zoe Adams", emitted.get(1).getCustomerName());
+        assertEquals(10, emitted.get(1).getTotalPoints());
+    }
+
+    @Test
+    void testStreamCustomerRewards_ShardedReadsKeysetPages() {
+        // Arrange: 1,200 customers over two shards, each shard answering its own keyset pages
+        ShardRouter sharded = new ShardRouter(2, 128);
+        RewardsService shardedService = new RewardsService(customerRepository, transactionRepository, rewardsSnapshotStore,
+                customerPartitionFanOut, columnarRewardsEngine, rewardsMetrics, sharded, retentionPolicy, rewardsProjection,
+                rewardRules, monthlyPointsRollupRepository, monthlyPointsLedger, null);
+        List<CustomerName> customers = LongStream.rangeClosed(1, 1_200)
+                .mapToObj(id -> name(id, String.format("Customer %04d", 1_201 - id)))
+                .sorted(Comparator.comparing(CustomerName::getName))
+                .toList();
+        when(customerRepository.findFirstPageWithTransactions(any(), any(), any(Limit.class))).thenAnswer(invocation ->
+                shardPage(customers, sharded, null, invocation.getArgument(2)));
+        when(customerRepository.findPageWithTransactionsAfter(any(), any(), any(), any(), any(Limit.class))).thenAnswer(invocation ->
+                shardPage(customers, sharded, invocation.getArgument(0), invocation.getArgument(4)));
+        when(transactionRepository.sumPointsByCustomerIdsAndMonth(any(), any(), any())).thenReturn(List.of());
+
+        // Act
+        List<CustomerRewardsResponse> emitted = new ArrayList<>();
+        shardedService.streamCustomerRewards(RewardsWindow.defaultWindow(), emitted::add);
+
+        // Assert: every customer once, in name order, without reading the whole summary
+        assertEquals(customers.stream().map(CustomerName::getName).toList(),
+                emitted.stream().map(CustomerRewardsResponse::getCustomerName).toList());
+        verify(transactionRepository, never()).sumPointsByCustomerAndMonth(any(), any());
+        verify(customerRepository, times(2 * 2)).findPageWithTransactionsAfter(any(), any(), any(), any(), any(Limit.class));
+    }
+
+    /** The calling shard's customers after the name, as the keyset page queries return them. */
+    private static List<CustomerName> shardPage(List<CustomerName> customers, ShardRouter shardRouter, String afterName, Limit limit) {
+        return customers.stream()
+                .filter(customer -> shardRouter.shardFor(customer.getId()) == ShardContext.current())
+                .filter(customer -> afterName == null || customer.getName().compareTo(afterName) > 0)
+                .limit(limit.max())
+                .toList();
+    }
+
+    private static CustomerMonthlyPoints monthlyPoints(Long customerId, String name, int year, int month, Long points) {
+        return new CustomerMonthlyPoints() {
+            public Long getCustomerId() { return customerId; }
+            public String getCustomerName() { return name; }
+            public Integer getYear() { return year; }
+            public Integer getMonth() { return month; }
+            public Long getPoints() { return points; }
+            public Long getTransactionCount() { return 1L; }
+        };
+    }
+
+    private static CustomerName name(Long id, String name) {
+        return new CustomerName() {
+            public Long getId() { return id; }
+            public String getName() { return name; }
+        };
+    }
+
+    private static CustomerMonthTotal monthTotal(Long customerId, String name, Long points) {
+        return new CustomerMonthTotal() {
+            public Long getCustomerId() { return customerId; }
+            public String getCustomerName() { return name; }
+            public Long getPoints() { return points; }
+            public Long getTransactionCount() { return 1L; }
+        };
+    }
+
+    private static MonthPoints monthPoints(YearMonth month, Long points) {
+        return new MonthPoints() {
+            public String getMonthKey() { return month.toString(); }
+            public Long getPoints() { return points; }
+        };
+    }
+
+    private static RewardsSnapshotStore.MonthSnapshot snapshot(CustomerMonthTotal... totals) {
+        return new RewardsSnapshotStore.MonthSnapshot(List.of(totals));
+    }
 
-        verify(transactionRepository).findTransactionsByDateRange(any(LocalDateTime.class), any(LocalDateTime.class));
+    private static TransactionAmount amountOf(Transaction transaction) {
+        return new TransactionAmount() {
+            public Long getId() { return transaction.getId(); }
+            public Long getAmountInCents() { return transaction.getAmountInCents(); }
+            public Integer getPoints() { return RewardPoints.ofCents(transaction.getAmountInCents()); }
+            public LocalDateTime getTransactionDate() { return transaction.getTransactionDate(); }
+        };
     }
 }
@@ -0,0 +1,63 @@
+package com.customerrewards.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardRouterTest {
+
+    private static final int CUSTOMERS = 100_000;
+
+    @Test
+    void testShardFor_SpreadsSequentialIdsEvenly() {
+        // Arrange
+        ShardRouter router = new ShardRouter(4, 128);
+        int[] counts = new int[4];
+
+        // Act
+        for (long id = 1; id <= CUSTOMERS; id++) {
+            counts[router.shardFor(id)]++;
+        }
+
+        // Assert: every shard within 20% of its fair share
+        for (int count : counts) {
+            assertTrue(Math.abs(count - CUSTOMERS / 4) < CUSTOMERS / 4 * 0.2, "Uneven shard: " + count);
+        }
+    }
+
+    @Test
+    void testShardFor_AddingAShardOnlyMovesCustomersToIt() {
+        // Arrange
+        ShardRouter before = new ShardRouter(4, 128);
+        ShardRouter after = new ShardRouter(5, 128);
+        int moved = 0;
+
+        // Act
+        for (long id = 1; id <= CUSTOMERS; id++) {
+            int from = before.shardFor(id);
+            int to = after.shardFor(id);
+            if (from != to) {
+                moved++;
+                assertEquals(4, to);
+            }
+        }
+
+        // Assert: about 1/5 of the customers move, all to the new shard
+        assertTrue(moved > CUSTOMERS * 0.15 && moved < CUSTOMERS * 0.25, "Moved: " + moved);
+    }
+
+    @Test
+    void testForEachShard_RunsEachQueryRoutedToItsShard() {
+        // Arrange
+        ShardRouter router = new ShardRouter(3, 16);
+
+        // Act
+        List<Integer> shards = router.forEachShard(shard -> List.of(ShardContext.current(), shard));
+
+        // Assert
+        assertEquals(List.of(0, 0, 1, 1, 2, 2), shards);
+        assertNull(ShardContext.current());
+    }
+}
@@ -0,0 +1,134 @@
+package com.customerrewards.services;
+
+import com.customerrewards.dto.ArchiveReport;
+import com.customerrewards.dto.LedgerReconcileReport;
+import com.customerrewards.dto.MonthPoints;
+import com.customerrewards.models.Customer;
+import com.customerrewards.models.Transaction;
+import com.customerrewards.repository.MonthlyPointsRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({TransactionArchiver.class, MonthlyPointsLedger.class, MonthlyPointsReconciler.class, RewardsSnapshotStore.class,
+        ShardRouter.class, RetentionPolicy.class})
+// one row per delete batch, so every month takes several batches
+@TestPropertySource(properties = {"rewards.retention.months=3", "rewards.retention.delete-batch-size=1"})
+public class TransactionArchiverTest {
+
+    private static final YearMonth OLD_MONTH = YearMonth.now().minusMonths(4);
+    private static final YearMonth RETAINED_MONTH = YearMonth.now().minusMonths(2);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransactionArchiver transactionArchiver;
+
+    @Autowired
+    private MonthlyPointsReconciler monthlyPointsReconciler;
+
+    @Autowired
+    private RewardsSnapshotStore rewardsSnapshotStore;
+
+    @Autowired
+    private MonthlyPointsRollupRepository monthlyPointsRollupRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM transactions");
+        jdbcTemplate.update("DELETE FROM customer_monthly_points");
+        customer = entityManager.persistAndFlush(new Customer("Archive Customer", "archive@email.com"));
+        persist(OLD_MONTH, "120.00");
+        persist(OLD_MONTH, "75.00");
+        persist(RETAINED_MONTH, "120.00");
+        entityManager.flush();
+    }
+
+    @Test
+    void testArchive_RollsOldMonthsIntoSummaryAndDeletesRawRows() {
+        // Arrange: the rollup has drifted; archiving must not carry the drift over
+        jdbcTemplate.update("UPDATE customer_monthly_points SET points = 1 WHERE month_key = ?", OLD_MONTH.toString());
+
+        // Act
+        ArchiveReport report = transactionArchiver.archive();
+
+        // Assert: the empty month between the old one and the retention window is archived too
+        assertEquals(2, report.getMonthsArchived());
+        assertEquals(2, report.getTransactionsDeleted());
+        assertEquals(1, count("SELECT COUNT(*) FROM transactions"));
+        assertEquals(115, count("SELECT points FROM customer_monthly_points WHERE month_key = '" + OLD_MONTH + "'"));
+
+        RewardsSnapshotStore.MonthSnapshot snapshot = rewardsSnapshotStore.get(OLD_MONTH);
+        assertEquals(115, snapshot.getPoints(snapshot.indexOf(customer.getId())));
+        assertEquals(2, snapshot.getTransactionCount(snapshot.indexOf(customer.getId())));
+    }
+
+    @Test
+    void testArchive_ArchivedMonthsReadableByCustomerBeforeReconcile() {
+        // Act
+        transactionArchiver.archive();
+
+        // Assert: only archived months are returned, the retained one still has its raw rows
+        List<MonthPoints> months = monthlyPointsRollupRepository.findArchivedByCustomerIdAndMonthRange(
+                customer.getId(), OLD_MONTH.toString(), RETAINED_MONTH.toString());
+        assertEquals(1, months.size());
+        assertEquals(OLD_MONTH.toString(), months.get(0).getMonthKey());
+        assertEquals(115, months.get(0).getPoints());
+    }
+
+    @Test
+    void testReconcile_LeavesArchivedMonthsAlone() {
+        // Arrange
+        transactionArchiver.archive();
+
+        // Act
+        LedgerReconcileReport report = monthlyPointsReconciler.reconcile();
+
+        // Assert
+        assertEquals(0, report.getDriftedRows());
+        assertEquals(115, count("SELECT points FROM customer_monthly_points WHERE month_key = '" + OLD_MONTH + "'"));
+    }
+
+    @Test
+    void testArchive_DeletesLateRowsWithoutRecountingThem() {
+        // Arrange: a backfill lands in the month after it was archived
+        transactionArchiver.archive();
+        persist(OLD_MONTH, "60.00");
+        entityManager.flush();
+
+        // Act
+        ArchiveReport report = transactionArchiver.archive();
+
+        // Assert
+        assertEquals(0, report.getMonthsArchived());
+        assertEquals(1, report.getTransactionsDeleted());
+        assertEquals(125, count("SELECT points FROM customer_monthly_points WHERE month_key = '" + OLD_MONTH + "'"));
+        assertEquals(3, count("SELECT transaction_count FROM customer_monthly_points WHERE month_key = '" + OLD_MONTH + "'"));
+    }
+
+    private void persist(YearMonth month, String amount) {
+        entityManager.persist(new Transaction(customer, new BigDecimal(amount), month.atDay(10).atTime(12, 0), "Purchase"));
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}